@@ -2,11 +2,21 @@ package com.example.aicreator;
 
 import android.app.Application;
 import android.os.StrictMode;
+import android.os.SystemClock;
 import android.util.Log;
 
-import androidx.room.Room;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
 
 import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.ImageWriteBuffer;
+import com.example.aicreator.network.HedgingCallFactory;
+import com.example.aicreator.network.HttpClientProvider;
+import com.example.aicreator.repository.MutationOutbox;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.RetrofitClient;
 
 /**
  * 应用程序类
@@ -14,12 +24,15 @@ import com.example.aicreator.database.AppDatabase;
  */
 public class AICreatorApplication extends Application {
     private static final String TAG = "AICreatorApplication";
+    
+    // 进程结束时等待后台任务完成的最长时间（毫秒）
+    private static final long SHUTDOWN_TIMEOUT_MS = 3000;
     private static AICreatorApplication instance;
-    private AppDatabase database;
     
     @Override
     public void onCreate() {
         super.onCreate();
+        long start = SystemClock.elapsedRealtime();
         instance = this;
         
         // 在调试版本中启用严格模式，检测主线程IO操作等问题
@@ -27,13 +40,13 @@ public class AICreatorApplication extends Application {
             enableStrictMode();
         }
         
-        // 初始化数据库
-        initDatabase();
+        // 在后台并行执行启动任务（包括打开数据库），启动页等待其完成
+        AppStartup.getInstance().start(this);
         
         // 初始化应用全局组件
         initializeComponents();
         
-        Log.d(TAG, "应用程序初始化完成");
+        Log.d(TAG, "应用程序初始化完成，耗时: " + (SystemClock.elapsedRealtime() - start) + "ms");
     }
     
     /**
@@ -47,7 +60,7 @@ public class AICreatorApplication extends Application {
      * 获取数据库实例
      */
     public AppDatabase getDatabase() {
-        return database;
+        return AppDatabase.getInstance(this);
     }
     
     /**
@@ -70,22 +83,44 @@ public class AICreatorApplication extends Application {
      * 初始化应用全局组件
      */
     private void initializeComponents() {
-        // 初始化第三方库等组件
-        // 例如: Timber日志库、Firebase等
+        // 发送上次未同步的修改，并在网络恢复时自动发送
+        MutationOutbox.getInstance(this).start();
+        
+        // 正式设备上不会调用onTerminate，进程退到后台后随时可能被回收，在这里写入缓冲的数据
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                onAppBackgrounded();
+            }
+        });
+    }
+    
+    /**
+     * 应用的所有界面都已不可见
+     */
+    private void onAppBackgrounded() {
+        ImageWriteBuffer.flushIfStarted();
+        logDiagnostics();
     }
     
     /**
-     * 初始化数据库
+     * 输出线程池等共享组件的运行统计，便于在正式设备上通过logcat查看
      */
-    private void initDatabase() {
-        database = Room.databaseBuilder(
-                getApplicationContext(),
-                AppDatabase.class,
-                "aicreator.db")
-                .fallbackToDestructiveMigration()
-                .build();
+    private void logDiagnostics() {
+        AppExecutors.getInstance().logStats();
+        RetrofitClient.logRateLimiterStats();
+        Log.d(TAG, HttpClientProvider.getDns().getStatsSummary());
+        Log.d(TAG, HedgingCallFactory.getStatsSummary());
+    }
+    
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
         
-        Log.d(TAG, "数据库初始化成功");
+        // 界面进入后台后进程随时可能被回收，立即写入缓冲中的图像记录
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            ImageWriteBuffer.flushIfStarted();
+        }
     }
     
     @Override
@@ -93,6 +128,10 @@ public class AICreatorApplication extends Application {
         super.onTerminate();
         Log.d(TAG, "应用程序终止");
         
+        // 先写入缓冲中的图像记录，再关闭共享线程池
         // Room数据库会自动关闭连接，不需要手动关闭
+        ImageWriteBuffer.shutdownIfStarted(SHUTDOWN_TIMEOUT_MS);
+        logDiagnostics();
+        AppExecutors.getInstance().shutdown(SHUTDOWN_TIMEOUT_MS);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.example.aicreator;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.network.ApiClient;
+import com.example.aicreator.network.ConnectionPrewarmer;
+import com.example.aicreator.network.HttpClientProvider;
+import com.example.aicreator.repository.HistorySync;
+import com.example.aicreator.services.PredictionTracker;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PreferenceManager;
+import com.example.aicreator.utils.PriorityExecutor;
+import com.example.aicreator.utils.RetrofitClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 应用启动协调器
+ * 在后台并行执行启动任务（打开数据库、加载偏好设置、初始化网络传输层并预热连接），
+ * 启动页在全部完成后立即离开，并记录每次冷启动到主页的耗时
+ */
+public class AppStartup {
+    private static final String TAG = "AppStartup";
+
+    // 启动耗时记录
+    private static final String METRICS_PREF_NAME = "startup_metrics";
+    private static final String KEY_LAST_COLD_START_MS = "last_cold_start_ms";
+    private static final String KEY_LAST_READY_MS = "last_ready_ms";
+    private static final String KEY_LAUNCH_COUNT = "launch_count";
+
+    // 进程启动时间的兜底值（API 24以下），在Application.onCreate首次使用本类时记录
+    private static final long FALLBACK_PROCESS_START = SystemClock.elapsedRealtime();
+
+    private static AppStartup instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Runnable> readyCallbacks = new ArrayList<>();
+
+    private Context appContext;
+    private int pendingTasks;
+    private boolean started;
+    private long readyAt;
+    private boolean coldStartReported;
+
+    /**
+     * 获取AppStartup单例实例
+     */
+    public static synchronized AppStartup getInstance() {
+        if (instance == null) {
+            instance = new AppStartup();
+        }
+        return instance;
+    }
+
+    /**
+     * 开始执行启动任务，只在Application.onCreate中调用一次
+     * @param context 应用上下文
+     */
+    public synchronized void start(Context context) {
+        if (started) {
+            return;
+        }
+        started = true;
+        appContext = context.getApplicationContext();
+
+        AppExecutors executors = AppExecutors.getInstance();
+        pendingTasks = 3;
+
+        // 数据库在磁盘线程池中打开，完成后回调
+        long databaseStart = SystemClock.elapsedRealtime();
+        AppDatabase.warmUp(appContext).addListener(() -> {
+            Log.d(TAG, "数据库初始化完成，耗时: " + (SystemClock.elapsedRealtime() - databaseStart) + "ms");
+            onTaskFinished();
+        }, Runnable::run);
+
+        executors.diskIO().execute(PriorityExecutor.Priority.HIGH,
+                new StartupTask("偏好设置", this::loadPreferences));
+        executors.networkIO().execute(PriorityExecutor.Priority.HIGH,
+                new StartupTask("网络传输层", this::warmTransport));
+    }
+
+    /**
+     * 启动任务全部完成或超时后在主线程回调
+     * @param timeoutMs 最长等待时间（毫秒）
+     * @param callback 回调，只会执行一次
+     * @return 用于取消回调的句柄
+     */
+    public Runnable whenReady(long timeoutMs, Runnable callback) {
+        Runnable once = new Runnable() {
+            private boolean called;
+
+            @Override
+            public void run() {
+                if (called) {
+                    return;
+                }
+                called = true;
+                cancel(this);
+                callback.run();
+            }
+        };
+
+        synchronized (this) {
+            if (started && pendingTasks == 0) {
+                mainHandler.post(once);
+                return once;
+            }
+            readyCallbacks.add(once);
+        }
+        mainHandler.postDelayed(once, timeoutMs);
+        return once;
+    }
+
+    /**
+     * 取消尚未执行的回调（例如启动页被提前销毁）
+     * @param handle whenReady返回的句柄
+     */
+    public void cancel(Runnable handle) {
+        synchronized (this) {
+            readyCallbacks.remove(handle);
+        }
+        mainHandler.removeCallbacks(handle);
+    }
+
+    /**
+     * 启动任务是否全部完成
+     */
+    public synchronized boolean isReady() {
+        return started && pendingTasks == 0;
+    }
+
+    /**
+     * 记录主页首次显示，每个进程只记录一次
+     * @param context 上下文
+     */
+    public void reportMainScreenShown(Context context) {
+        long coldStartMs;
+        long readyMs;
+        synchronized (this) {
+            if (coldStartReported) {
+                return;
+            }
+            coldStartReported = true;
+            coldStartMs = SystemClock.elapsedRealtime() - getProcessStartTime();
+            readyMs = readyAt > 0 ? readyAt - getProcessStartTime() : -1;
+        }
+
+        Log.i(TAG, "冷启动到主页耗时: " + coldStartMs + "ms，启动任务完成耗时: " + readyMs + "ms");
+
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(METRICS_PREF_NAME, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putLong(KEY_LAST_COLD_START_MS, coldStartMs)
+                .putLong(KEY_LAST_READY_MS, readyMs)
+                .putInt(KEY_LAUNCH_COUNT, prefs.getInt(KEY_LAUNCH_COUNT, 0) + 1)
+                .apply();
+    }
+
+    /**
+     * 获取进程启动时间（elapsedRealtime时基）
+     */
+    private static long getProcessStartTime() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Process.getStartElapsedRealtime();
+        }
+        return FALLBACK_PROCESS_START;
+    }
+
+    /**
+     * 从磁盘加载偏好设置，后续读取不再阻塞主线程；已登录时开始同步历史记录
+     */
+    private void loadPreferences() {
+        PreferenceManager preferences = new PreferenceManager(appContext);
+        if (preferences.isLoggedIn()) {
+            HistorySync.getInstance(appContext).start(preferences.getUserId());
+        }
+    }
+
+    /**
+     * 创建共享的OkHttpClient、Retrofit实例和服务代理，把类加载和初始化移出首次请求和主线程，
+     * 然后在低优先级任务中预解析DNS并建立连接，不推迟启动完成
+     */
+    private void warmTransport() {
+        HttpClientProvider.getSharedClient();
+        HttpClientProvider.getDns().watchNetworkChanges(appContext);
+        RetrofitClient.getReplicateInstance();
+        ApiClient.getApiService();
+        PredictionTracker.getInstance();
+
+        // 先创建预热器，使之后的第一个请求能被记录
+        ConnectionPrewarmer prewarmer = ConnectionPrewarmer.getInstance(appContext);
+        List<String> dnsUrls = new ArrayList<>(Arrays.asList(RetrofitClient.getBaseUrls()));
+        dnsUrls.add(ApiClient.getBaseUrl());
+        String[] connectUrls = ConnectionPrewarmer.defaultConnectUrls(RetrofitClient.getBaseUrls()[0]);
+        AppExecutors.getInstance().networkIO().execute(PriorityExecutor.Priority.LOW, () ->
+                prewarmer.prewarm(dnsUrls.toArray(new String[0]), connectUrls));
+    }
+
+    private void onTaskFinished() {
+        List<Runnable> callbacks;
+        synchronized (this) {
+            pendingTasks--;
+            if (pendingTasks > 0) {
+                return;
+            }
+            readyAt = SystemClock.elapsedRealtime();
+            callbacks = new ArrayList<>(readyCallbacks);
+        }
+        for (Runnable callback : callbacks) {
+            mainHandler.post(callback);
+        }
+    }
+
+    /**
+     * 单个启动任务，记录耗时，失败不影响其他任务
+     */
+    private class StartupTask implements Runnable {
+        private final String name;
+        private final Runnable body;
+
+        StartupTask(String name, Runnable body) {
+            this.name = name;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                body.run();
+                Log.d(TAG, name + "初始化完成，耗时: " + (SystemClock.elapsedRealtime() - start) + "ms");
+            } catch (RuntimeException e) {
+                Log.e(TAG, name + "初始化失败: " + e.getMessage());
+            } finally {
+                onTaskFinished();
+            }
+        }
+    }
+}
@@ -192,6 +192,23 @@ public class ImageToVideoActivity extends AppCompatActivity {
         // 观察加载状态
         viewModel.getIsLoading().observe(this, isLoading -> {
             binding.loadingOverlay.setVisibility(isLoading ? View.VISIBLE : View.GONE);
+            if (!isLoading) {
+                binding.tvLoadingMessage.setText(R.string.loading);
+            }
+        });
+        
+        // 观察图片上传进度
+        viewModel.getUploadProgress().observe(this, percent -> {
+            if (percent != null) {
+                binding.tvLoadingMessage.setText("正在上传图片 " + percent + "%");
+            }
+        });
+        
+        // 观察视频下载进度
+        viewModel.getDownloadProgress().observe(this, progress -> {
+            if (progress != null && progress.getPercent() >= 0) {
+                binding.tvLoadingMessage.setText("正在下载视频 " + progress.getPercent() + "%");
+            }
         });
         
         // 观察错误消息
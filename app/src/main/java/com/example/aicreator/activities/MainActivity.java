@@ -10,10 +10,16 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.lifecycle.ViewModelProvider;
 
+import com.example.aicreator.AppStartup;
 import com.example.aicreator.R;
+import com.example.aicreator.database.entity.UserEntity;
 import com.example.aicreator.databinding.ActivityMainBinding;
+import com.example.aicreator.repository.HistorySync;
+import com.example.aicreator.repository.Resource;
 import com.example.aicreator.utils.PreferenceManager;
+import com.example.aicreator.viewmodels.UserViewModel;
 
 /**
  * 主活动
@@ -23,6 +29,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
 
     private ActivityMainBinding binding;
     private PreferenceManager preferenceManager;
+    private UserViewModel userViewModel;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,6 +55,14 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         binding.cardVoiceClone.setOnClickListener(this);
         binding.cardContentWriting.setOnClickListener(this);
         binding.cardDigitalHuman.setOnClickListener(this);
+        
+        // 在工具栏显示当前用户，先显示本地数据再后台刷新
+        userViewModel = new ViewModelProvider(this).get(UserViewModel.class);
+        userViewModel.loadUserById(preferenceManager.getUserId());
+        userViewModel.getCurrentUser().observe(this, this::renderCurrentUser);
+        
+        // 首帧布局完成后记录冷启动耗时
+        binding.getRoot().post(() -> AppStartup.getInstance().reportMainScreenShown(this));
     }
     
     @Override
@@ -109,10 +124,36 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         }
     }
     
+    /**
+     * 在工具栏副标题显示用户名和刷新状态
+     */
+    private void renderCurrentUser(Resource<UserEntity> user) {
+        if (getSupportActionBar() == null || user == null) {
+            return;
+        }
+        String username = user.getData() != null
+                ? user.getData().getUsername() : preferenceManager.getUsername();
+        switch (user.getStatus()) {
+            case LOADING:
+                getSupportActionBar().setSubtitle("正在加载用户信息");
+                break;
+            case STALE:
+                getSupportActionBar().setSubtitle(username + " · 正在更新");
+                break;
+            case ERROR:
+                getSupportActionBar().setSubtitle(username + " · " + user.getMessage());
+                break;
+            default:
+                getSupportActionBar().setSubtitle(username);
+                break;
+        }
+    }
+    
     /**
      * 执行登出操作
      */
     private void performLogout() {
+        HistorySync.getInstance(this).stop();
         preferenceManager.clear();
         navigateToLogin();
     }
@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.view.View;
 import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
@@ -12,6 +13,7 @@ import android.widget.ProgressBar;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.aicreator.AppStartup;
 import com.example.aicreator.R;
 import com.example.aicreator.databinding.ActivitySplashBinding;
 import com.example.aicreator.utils.PreferenceManager;
@@ -23,9 +25,18 @@ import com.example.aicreator.utils.PreferenceManager;
 public class SplashActivity extends AppCompatActivity {
 
     private ActivitySplashBinding binding;
-    private static final long SPLASH_DISPLAY_TIME = 2000; // 2秒
+    
+    // 启动画面动画时长，也是启动页的最短显示时间
+    private static final long MIN_DISPLAY_TIME = 500;
+    
+    // 启动任务的最长等待时间，超时后不再等待直接进入下一个页面
+    private static final long MAX_WAIT_TIME = 3000;
+    
     private ImageView logoImageView;
     private ProgressBar progressBar;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Runnable readyHandle;
+    private long shownAt;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,13 +50,27 @@ public class SplashActivity extends AppCompatActivity {
         
         // 设置淡入动画
         Animation fadeIn = new AlphaAnimation(0, 1);
-        fadeIn.setDuration(1000);
+        fadeIn.setDuration(MIN_DISPLAY_TIME);
         
         binding.ivLogo.startAnimation(fadeIn);
         binding.tvAppName.startAnimation(fadeIn);
         
-        // 延迟跳转
-        new Handler(Looper.getMainLooper()).postDelayed(this::navigateToNextScreen, SPLASH_DISPLAY_TIME);
+        // 启动任务完成后跳转，动画未播放完时等待动画结束
+        shownAt = SystemClock.elapsedRealtime();
+        readyHandle = AppStartup.getInstance().whenReady(MAX_WAIT_TIME, () -> {
+            readyHandle = null;
+            long remaining = MIN_DISPLAY_TIME - (SystemClock.elapsedRealtime() - shownAt);
+            handler.postDelayed(this::navigateToNextScreen, Math.max(0, remaining));
+        });
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (readyHandle != null) {
+            AppStartup.getInstance().cancel(readyHandle);
+        }
+        handler.removeCallbacksAndMessages(null);
     }
     
     /**
@@ -82,4 +107,4 @@ public class SplashActivity extends AppCompatActivity {
                     | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY);
         }
     }
-}}
+}
@@ -24,8 +24,11 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.target.CustomTarget;
@@ -33,7 +36,9 @@ import com.bumptech.glide.request.transition.Transition;
 import com.example.aicreator.R;
 import com.example.aicreator.adapters.GeneratedImageAdapter;
 import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.model.ImageHistoryItem;
 import com.example.aicreator.databinding.ActivityTextToImageBinding;
+import com.example.aicreator.repository.Resource;
 import com.example.aicreator.utils.PreferenceManager;
 import com.example.aicreator.viewmodels.TextToImageViewModel;
 
@@ -61,6 +66,9 @@ public class TextToImageActivity extends AppCompatActivity implements GeneratedI
     private static final int REQUEST_STORAGE_PERMISSION = 100;
     private static final String[] IMAGE_SIZES = {"512x512", "768x768", "1024x1024", "1024x1536", "1536x1024"};
     
+    // 距离列表底部多少项时开始加载下一页
+    private static final int HISTORY_PREFETCH_DISTANCE = 6;
+    
     private String selectedSize = IMAGE_SIZES[2]; // 默认1024x1024
     private float creativityLevel = 7.0f; // 默认创意度
     private Bitmap currentGeneratedBitmap;
@@ -144,9 +152,24 @@ public class TextToImageActivity extends AppCompatActivity implements GeneratedI
         binding.btnFavorite.setOnClickListener(v -> toggleFavorite());
         
         // 设置历史记录RecyclerView
-        binding.recyclerHistory.setLayoutManager(new GridLayoutManager(this, 2));
+        GridLayoutManager layoutManager = new GridLayoutManager(this, 2);
+        binding.recyclerHistory.setLayoutManager(layoutManager);
         imageAdapter = new GeneratedImageAdapter(this, new ArrayList<>(), this);
         binding.recyclerHistory.setAdapter(imageAdapter);
+        
+        // 滚动接近底部时加载下一页历史图像
+        binding.recyclerHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) {
+                    return;
+                }
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= imageAdapter.getItemCount() - HISTORY_PREFETCH_DISTANCE) {
+                    viewModel.loadMoreHistory();
+                }
+            }
+        });
     }
     
     private void observeViewModel() {
@@ -201,6 +224,32 @@ public class TextToImageActivity extends AppCompatActivity implements GeneratedI
                 imageAdapter.updateImages(images);
             }
         });
+        
+        // 观察历史记录同步状态
+        viewModel.getHistoryStatus().observe(this, this::renderHistoryStatus);
+    }
+    
+    /**
+     * 在工具栏副标题显示历史记录的同步状态，同步完成后清除
+     */
+    private void renderHistoryStatus(Resource<Integer> status) {
+        if (getSupportActionBar() == null || status == null) {
+            return;
+        }
+        switch (status.getStatus()) {
+            case LOADING:
+                getSupportActionBar().setSubtitle("正在读取历史记录");
+                break;
+            case STALE:
+                getSupportActionBar().setSubtitle("正在同步历史记录");
+                break;
+            case ERROR:
+                getSupportActionBar().setSubtitle("历史记录" + status.getMessage());
+                break;
+            default:
+                getSupportActionBar().setSubtitle(null);
+                break;
+        }
     }
     
     private void generateImage() {
@@ -376,7 +425,21 @@ public class TextToImageActivity extends AppCompatActivity implements GeneratedI
     }
     
     @Override
-    public void onImageClick(GeneratedImageEntity image) {
+    public void onImageClick(ImageHistoryItem item) {
+        // 历史列表只包含轻量字段，点击时再读取完整记录
+        LiveData<GeneratedImageEntity> source = viewModel.getImageById(item.getId());
+        source.observe(this, new Observer<GeneratedImageEntity>() {
+            @Override
+            public void onChanged(GeneratedImageEntity image) {
+                source.removeObserver(this);
+                if (image != null) {
+                    showHistoryImage(image);
+                }
+            }
+        });
+    }
+    
+    private void showHistoryImage(GeneratedImageEntity image) {
         // 点击历史图像，显示大图
         binding.etPrompt.setText(image.getPrompt());
         
@@ -414,7 +477,7 @@ public class TextToImageActivity extends AppCompatActivity implements GeneratedI
     }
     
     @Override
-    public void onDeleteClick(GeneratedImageEntity image) {
+    public void onDeleteClick(ImageHistoryItem image) {
         // 删除图像
         viewModel.deleteImage(image.getId());
         Toast.makeText(this, "图像已删除", Toast.LENGTH_SHORT).show();
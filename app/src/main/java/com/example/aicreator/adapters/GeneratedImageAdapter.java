@@ -12,7 +12,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.aicreator.R;
-import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.model.ImageHistoryItem;
 
 import java.util.List;
 
@@ -23,15 +23,15 @@ import java.util.List;
 public class GeneratedImageAdapter extends RecyclerView.Adapter<GeneratedImageAdapter.ImageViewHolder> {
 
     private final Context context;
-    private List<GeneratedImageEntity> images;
+    private List<ImageHistoryItem> images;
     private final OnImageClickListener listener;
 
     public interface OnImageClickListener {
-        void onImageClick(GeneratedImageEntity image);
-        void onDeleteClick(GeneratedImageEntity image);
+        void onImageClick(ImageHistoryItem image);
+        void onDeleteClick(ImageHistoryItem image);
     }
 
-    public GeneratedImageAdapter(Context context, List<GeneratedImageEntity> images, OnImageClickListener listener) {
+    public GeneratedImageAdapter(Context context, List<ImageHistoryItem> images, OnImageClickListener listener) {
         this.context = context;
         this.images = images;
         this.listener = listener;
@@ -46,11 +46,11 @@ public class GeneratedImageAdapter extends RecyclerView.Adapter<GeneratedImageAd
 
     @Override
     public void onBindViewHolder(@NonNull ImageViewHolder holder, int position) {
-        GeneratedImageEntity image = images.get(position);
+        ImageHistoryItem image = images.get(position);
         
         // 加载图像
         Glide.with(context)
-                .load(image.getImageUrl())
+                .load(image.getDisplayUrl())
                 .placeholder(R.drawable.placeholder_image)
                 .error(R.drawable.error_image)
                 .centerCrop()
@@ -99,9 +99,33 @@ public class GeneratedImageAdapter extends RecyclerView.Adapter<GeneratedImageAd
      * 更新图像列表
      * @param newImages 新的图像列表
      */
-    public void updateImages(List<GeneratedImageEntity> newImages) {
+    public void updateImages(List<ImageHistoryItem> newImages) {
+        List<ImageHistoryItem> oldImages = this.images;
         this.images = newImages;
-        notifyDataSetChanged();
+        
+        // 加载下一页时新列表只是在末尾追加，只通知新增的范围
+        if (isAppended(oldImages, newImages)) {
+            notifyItemRangeInserted(oldImages.size(), newImages.size() - oldImages.size());
+        } else {
+            notifyDataSetChanged();
+        }
+    }
+    
+    /**
+     * 判断新列表是否是在旧列表末尾追加得到的
+     */
+    private static boolean isAppended(List<ImageHistoryItem> oldImages, List<ImageHistoryItem> newImages) {
+        if (oldImages.isEmpty() || newImages.size() <= oldImages.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldImages.size(); i++) {
+            ImageHistoryItem oldItem = oldImages.get(i);
+            ImageHistoryItem newItem = newImages.get(i);
+            if (oldItem.getId() != newItem.getId() || oldItem.isFavorite() != newItem.isFavorite()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     static class ImageViewHolder extends RecyclerView.ViewHolder {
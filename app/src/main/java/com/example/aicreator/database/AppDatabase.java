@@ -1,6 +1,8 @@
 package com.example.aicreator.database;
 
 import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.room.Database;
 import androidx.room.Room;
@@ -9,44 +11,94 @@ import androidx.room.TypeConverters;
 
 import com.example.aicreator.database.dao.GeneratedImageDao;
 import com.example.aicreator.database.dao.GeneratedVideoDao;
+import com.example.aicreator.database.dao.GenerationCacheDao;
+import com.example.aicreator.database.dao.PendingMutationDao;
 import com.example.aicreator.database.dao.UserDao;
 import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.entity.GeneratedImageFtsEntity;
+import com.example.aicreator.database.entity.GenerationCacheEntity;
+import com.example.aicreator.database.entity.PendingMutationEntity;
 import com.example.aicreator.database.entity.UserEntity;
 import com.example.aicreator.database.util.DateConverter;
 import com.example.aicreator.models.GeneratedVideo;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+import com.example.aicreator.utils.SettableFuture;
 
 /**
  * Room数据库类
- * 用于本地数据缓存
+ * 用于本地数据缓存，整个进程只有这一个实例
  */
 @Database(
-    entities = {UserEntity.class, GeneratedImageEntity.class, GeneratedVideo.class},
-    version = 1,
+    entities = {UserEntity.class, GeneratedImageEntity.class, GeneratedVideo.class,
+            GenerationCacheEntity.class, GeneratedImageFtsEntity.class, PendingMutationEntity.class},
+    version = 5,
     exportSchema = false
 )
 @TypeConverters({DateConverter.class})
 public abstract class AppDatabase extends RoomDatabase {
     
+    private static final String TAG = "AppDatabase";
     private static final String DATABASE_NAME = "aicreator.db";
     private static volatile AppDatabase instance;
+    private static SettableFuture<AppDatabase> warmUpFuture;
     
     // 数据访问对象(DAO)
     public abstract UserDao userDao();
     public abstract GeneratedImageDao generatedImageDao();
     public abstract GeneratedVideoDao generatedVideoDao();
+    public abstract GenerationCacheDao generationCacheDao();
+    public abstract PendingMutationDao pendingMutationDao();
     
     /**
      * 获取数据库实例（单例模式）
+     * 构建实例本身很轻量，数据库文件在第一次查询或warmUp()时才真正打开
      */
-    public static synchronized AppDatabase getInstance(Context context) {
-        if (instance == null) {
-            instance = Room.databaseBuilder(
-                    context.getApplicationContext(),
-                    AppDatabase.class,
-                    DATABASE_NAME)
-                    .fallbackToDestructiveMigration() // 升级时如果没有迁移策略，则重建数据库
-                    .build();
+    public static AppDatabase getInstance(Context context) {
+        AppDatabase result = instance;
+        if (result == null) {
+            synchronized (AppDatabase.class) {
+                result = instance;
+                if (result == null) {
+                    result = Room.databaseBuilder(
+                            context.getApplicationContext(),
+                            AppDatabase.class,
+                            DATABASE_NAME)
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING) // 读写并发，写入不阻塞读取
+                            .fallbackToDestructiveMigration() // 升级时如果没有迁移策略，则重建数据库
+                            .build();
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 在磁盘线程池中打开数据库，完成建表、迁移和连接初始化
+     * 多次调用返回同一个Future
+     * @param context 上下文
+     * @return 数据库打开完成后返回实例的Future
+     */
+    public static synchronized SettableFuture<AppDatabase> warmUp(Context context) {
+        if (warmUpFuture == null) {
+            SettableFuture<AppDatabase> future = new SettableFuture<>();
+            warmUpFuture = future;
+            Context appContext = context.getApplicationContext();
+            
+            AppExecutors.getInstance().diskIO().execute(PriorityExecutor.Priority.HIGH, () -> {
+                long start = SystemClock.elapsedRealtime();
+                try {
+                    AppDatabase database = getInstance(appContext);
+                    database.getOpenHelper().getWritableDatabase();
+                    Log.d(TAG, "数据库预热完成，耗时: " + (SystemClock.elapsedRealtime() - start) + "ms");
+                    future.set(database);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "数据库预热失败: " + e.getMessage());
+                    future.setException(e);
+                }
+            });
+        }
+        return warmUpFuture;
+    }
+}
@@ -0,0 +1,620 @@
+package com.example.aicreator.database;
+
+import android.util.Log;
+
+import com.example.aicreator.utils.AppExecutors;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MySQL连接池
+ * 维护有上限的物理连接集合，借出时校验连接有效性，定期回收空闲和超过最长存活时间的连接，
+ * 并为每个连接缓存PreparedStatement。借出的连接是代理对象，close()只是归还到连接池
+ */
+public class ConnectionPool {
+    private static final String TAG = "ConnectionPool";
+
+    // 后台维护任务的执行间隔（毫秒）
+    private static final long HOUSEKEEPING_INTERVAL_MS = 30 * 1000;
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionReturned = lock.newCondition();
+
+    // 以下状态只在持有lock时访问
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowedConnections =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+    private int totalConnections;
+    private boolean closed;
+
+    private final ScheduledFuture<?> housekeeping;
+
+    // 借用等待统计
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong borrowTimeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    public ConnectionPool(int maxSize, long borrowTimeoutMs) {
+        this(DatabaseConfig.JDBC_URL, DatabaseConfig.DB_USER, DatabaseConfig.DB_PASSWORD,
+                maxSize, borrowTimeoutMs);
+    }
+
+    /**
+     * 连接到指定数据库，测试中用于连接内存数据库
+     * @param jdbcUrl JDBC连接URL
+     * @param user 用户名
+     * @param password 密码
+     * @param maxSize 最大连接数
+     * @param borrowTimeoutMs 等待空闲连接的最长时间（毫秒）
+     */
+    ConnectionPool(String jdbcUrl, String user, String password, int maxSize, long borrowTimeoutMs) {
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+
+        // 维护任务会关闭物理连接，在定时线程上触发后转交给磁盘线程池执行
+        AppExecutors executors = AppExecutors.getInstance();
+        housekeeping = executors.scheduler().scheduleWithFixedDelay(
+                () -> executors.diskIO().execute(this::housekeep),
+                HOUSEKEEPING_INTERVAL_MS, HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从连接池借出连接，使用完毕后调用close()归还
+     * @return 连接代理
+     * @throws SQLException 等待超时或无法创建连接时抛出
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (candidate == null && !create) {
+                    if (closed) {
+                        throw new SQLException("连接池已关闭");
+                    }
+                    candidate = idleConnections.pollFirst();
+                    if (candidate == null) {
+                        if (totalConnections < maxSize) {
+                            totalConnections++;
+                            create = true;
+                        } else {
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                borrowTimeoutCount.incrementAndGet();
+                                throw new SQLException("获取数据库连接超时，已等待" + borrowTimeoutMs + "ms");
+                            }
+                            try {
+                                connectionReturned.awaitNanos(remaining);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new SQLException("等待数据库连接时被中断", e);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    candidate = new PooledConnection(openPhysicalConnection());
+                    createdCount.incrementAndGet();
+                } catch (SQLException e) {
+                    discard(null);
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                candidate.closePhysical();
+                discard(candidate);
+                continue;
+            }
+
+            lock.lock();
+            try {
+                borrowedConnections.add(candidate);
+            } finally {
+                lock.unlock();
+            }
+            recordBorrowWait(System.nanoTime() - start);
+            return candidate.lend();
+        }
+    }
+
+    /**
+     * 关闭连接池及所有空闲连接
+     * 已借出的连接在归还时关闭
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idleConnections);
+            totalConnections -= idleConnections.size();
+            idleConnections.clear();
+            connectionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeping.cancel(false);
+        for (PooledConnection connection : toClose) {
+            connection.closePhysical();
+        }
+    }
+
+    /**
+     * 获取当前物理连接总数
+     */
+    public int getTotalConnections() {
+        lock.lock();
+        try {
+            return totalConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前空闲连接数
+     */
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idleConnections.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取借出连接的总次数
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * 获取平均借用等待时间（毫秒）
+     */
+    public double getAverageBorrowWaitMillis() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : totalBorrowWaitNanos.get() / (double) count / 1_000_000;
+    }
+
+    /**
+     * 获取最长借用等待时间（毫秒）
+     */
+    public double getMaxBorrowWaitMillis() {
+        return maxBorrowWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * 获取借用超时次数
+     */
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount.get();
+    }
+
+    /**
+     * 获取检测到的连接泄漏次数
+     */
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    /**
+     * 获取创建的物理连接总数
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * 获取因空闲、过期或失效而回收的物理连接总数
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    private Connection openPhysicalConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, user, password);
+    }
+
+    /**
+     * 借出前检查连接：超过最长存活时间的直接丢弃，其余通过isValid校验
+     */
+    private boolean isUsable(PooledConnection connection) {
+        if (connection.isExpired(System.currentTimeMillis())) {
+            return false;
+        }
+        try {
+            return connection.physical.isValid(DatabaseConfig.VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 归还连接，连接已失效或连接池已关闭时直接关闭
+     */
+    private void release(PooledConnection connection, boolean broken) {
+        boolean keep;
+        lock.lock();
+        try {
+            borrowedConnections.remove(connection);
+            keep = !closed && !broken && !connection.isExpired(System.currentTimeMillis());
+            if (keep) {
+                connection.lastReturnedAt = System.currentTimeMillis();
+                // 后进先出，让最近使用过的连接优先被借出，较冷的连接自然空闲超时
+                idleConnections.addFirst(connection);
+                connectionReturned.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!keep) {
+            connection.closePhysical();
+            discard(connection);
+        }
+    }
+
+    /**
+     * 从计数中移除一个物理连接并唤醒等待者
+     */
+    private void discard(PooledConnection connection) {
+        if (connection != null) {
+            evictedCount.incrementAndGet();
+        }
+        lock.lock();
+        try {
+            totalConnections--;
+            connectionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordBorrowWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalBorrowWaitNanos.addAndGet(waitNanos);
+        long currentMax;
+        do {
+            currentMax = maxBorrowWaitNanos.get();
+        } while (waitNanos > currentMax && !maxBorrowWaitNanos.compareAndSet(currentMax, waitNanos));
+    }
+
+    /**
+     * 后台维护：回收空闲超时和过期的连接，检测借出时间过长的连接
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> toClose = new ArrayList<>();
+
+        lock.lock();
+        try {
+            Iterator<PooledConnection> iterator = idleConnections.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection connection = iterator.next();
+                if (connection.isExpired(now)
+                        || now - connection.lastReturnedAt > DatabaseConfig.IDLE_TIMEOUT_MS) {
+                    iterator.remove();
+                    toClose.add(connection);
+                }
+            }
+
+            for (PooledConnection connection : borrowedConnections) {
+                if (!connection.leakReported
+                        && now - connection.borrowedAt > DatabaseConfig.LEAK_DETECTION_THRESHOLD_MS) {
+                    connection.leakReported = true;
+                    leakCount.incrementAndGet();
+                    Log.w(TAG, "数据库连接借出超过" + DatabaseConfig.LEAK_DETECTION_THRESHOLD_MS
+                            + "ms未归还，可能存在连接泄漏"
+                            + (connection.borrowStack == null ? "（调试版本中会记录借出位置）" : ""),
+                            connection.borrowStack);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection connection : toClose) {
+            connection.closePhysical();
+            discard(connection);
+        }
+    }
+
+    /**
+     * 连接池中的物理连接
+     */
+    private class PooledConnection {
+        final Connection physical;
+        final long createdAt;
+        final StatementCache statementCache;
+
+        // 以下字段在借出期间由借用线程访问，借出和归还通过lock建立先后关系
+        volatile long borrowedAt;
+        volatile long lastReturnedAt;
+        volatile Throwable borrowStack;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastReturnedAt = createdAt;
+            this.statementCache = new StatementCache(DatabaseConfig.STATEMENT_CACHE_SIZE);
+        }
+
+        /**
+         * 创建本次借用的代理
+         */
+        Connection lend() {
+            borrowedAt = System.currentTimeMillis();
+            borrowStack = DatabaseConfig.CAPTURE_BORROW_STACK ? new Throwable("连接借出位置") : null;
+            leakReported = false;
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new ConnectionHandler(this));
+        }
+
+        boolean isExpired(long now) {
+            return now - createdAt > DatabaseConfig.MAX_LIFETIME_MS;
+        }
+
+        void closePhysical() {
+            statementCache.closeAll();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                Log.w(TAG, "关闭数据库连接失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 借出连接的代理处理器
+     * close()归还连接，prepareStatement()优先使用缓存的语句
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        ConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    returnToPool();
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("连接已归还连接池");
+            }
+
+            if ("prepareStatement".equals(name) && isCacheable(method)) {
+                String sql = (String) args[0];
+                int autoGeneratedKeys = args.length > 1 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return pooled.statementCache.prepare(pooled.physical, sql, autoGeneratedKeys);
+            }
+
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * 只缓存prepareStatement(String)和prepareStatement(String, int)两种形式
+         */
+        private boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1
+                    || (types.length == 2 && types[1] == int.class);
+        }
+
+        private void returnToPool() {
+            if (returned) {
+                return;
+            }
+            returned = true;
+
+            // 恢复事务状态，避免把未提交的事务带给下一个借用者
+            boolean broken = false;
+            try {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+            pooled.statementCache.releaseAll();
+            release(pooled, broken);
+        }
+    }
+
+    /**
+     * 单个连接的PreparedStatement缓存
+     * 按最近使用顺序淘汰，被淘汰的语句在空闲后关闭
+     */
+    private static class StatementCache {
+        private final int capacity;
+        private final LinkedHashMap<String, CachedStatement> statements;
+
+        StatementCache(int capacity) {
+            this.capacity = capacity;
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() > StatementCache.this.capacity) {
+                        eldest.getValue().evicted = true;
+                        if (!eldest.getValue().inUse) {
+                            eldest.getValue().closeQuietly();
+                        }
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized PreparedStatement prepare(Connection physical, String sql, int autoGeneratedKeys)
+                throws SQLException {
+            String key = autoGeneratedKeys + ":" + sql;
+            CachedStatement cached = statements.get(key);
+
+            // 同一条语句在当前借用中尚未关闭时（嵌套使用），另外创建一个不缓存的语句
+            if (cached != null && cached.inUse) {
+                return physical.prepareStatement(sql, autoGeneratedKeys);
+            }
+            if (cached == null) {
+                cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+                statements.put(key, cached);
+            }
+            cached.inUse = true;
+            return cached.lend();
+        }
+
+        /**
+         * 归还连接时释放所有未关闭的语句
+         */
+        synchronized void releaseAll() {
+            for (CachedStatement cached : statements.values()) {
+                cached.release();
+            }
+        }
+
+        synchronized void closeAll() {
+            for (CachedStatement cached : statements.values()) {
+                cached.closeQuietly();
+            }
+            statements.clear();
+        }
+    }
+
+    /**
+     * 缓存的PreparedStatement，借出的代理close()时只清空参数
+     */
+    private static class CachedStatement implements InvocationHandler {
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement lend() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return !inUse || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        synchronized void release() {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                Log.w(TAG, "关闭预编译语句失败: " + e.getMessage());
+            }
+        }
+    }
+}
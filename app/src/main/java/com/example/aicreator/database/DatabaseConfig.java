@@ -1,5 +1,7 @@
 package com.example.aicreator.database;
 
+import com.example.aicreator.BuildConfig;
+
 /**
  * 数据库配置类
  * 存储MySQL数据库连接的相关配置信息
@@ -14,7 +16,8 @@ public class DatabaseConfig {
     
     // JDBC连接URL
     public static final String JDBC_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + "/" + DB_NAME +
-            "?useSSL=false&allowPublicKeyRetrieval=true&useUnicode=true&characterEncoding=UTF-8&serverTimezone=UTC";
+            "?useSSL=false&allowPublicKeyRetrieval=true&useUnicode=true&characterEncoding=UTF-8&serverTimezone=UTC" +
+            "&connectTimeout=" + DatabaseConfig.CONNECTION_TIMEOUT + "&useServerPrepStmts=true&rewriteBatchedStatements=true";
     
     // 连接超时设置（毫秒）
     public static final int CONNECTION_TIMEOUT = 5000;
@@ -28,4 +31,25 @@ public class DatabaseConfig {
     
     // 最大连接数
     public static final int MAX_POOL_SIZE = 10;
+    
+    // 连接池满时等待空闲连接的最长时间（毫秒）
+    public static final long BORROW_TIMEOUT_MS = 10000;
+    
+    // 借出连接时校验有效性的超时时间（秒）
+    public static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    
+    // 空闲连接的回收时间（毫秒）
+    public static final long IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    
+    // 物理连接的最长存活时间（毫秒），应小于服务端wait_timeout
+    public static final long MAX_LIFETIME_MS = 30 * 60 * 1000;
+    
+    // 连接借出超过该时间未归还时记录泄漏警告（毫秒）
+    public static final long LEAK_DETECTION_THRESHOLD_MS = 60 * 1000;
+    
+    // 借出连接时是否记录调用栈，用于定位泄漏位置；每次借出都要遍历调用栈，只在调试版本开启
+    public static final boolean CAPTURE_BORROW_STACK = BuildConfig.DEBUG;
+    
+    // 每个连接缓存的预编译语句数量
+    public static final int STATEMENT_CACHE_SIZE = 32;
 } 
\ No newline at end of file
@@ -2,16 +2,16 @@ package com.example.aicreator.database;
 
 import android.util.Log;
 
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
 
 /**
  * 数据库管理器
@@ -19,12 +19,19 @@ import java.util.concurrent.ExecutorService;
  */
 public class DatabaseManager {
     private static final String TAG = "DatabaseManager";
+    
+    // 关闭时等待写缓冲写入的最长时间（毫秒）
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MS = 5000;
     private static DatabaseManager instance;
-    private final ExecutorService executorService;
+    private final PriorityExecutor executorService;
+    private final ConnectionPool connectionPool;
     
     private DatabaseManager() {
-        // 初始化线程池，用于异步执行数据库操作
-        executorService = Executors.newFixedThreadPool(5);
+        // 使用应用共享的磁盘线程池异步执行数据库操作
+        executorService = AppExecutors.getInstance().diskIO();
+        
+        // 初始化连接池，物理连接按需创建
+        connectionPool = new ConnectionPool(DatabaseConfig.MAX_POOL_SIZE, DatabaseConfig.BORROW_TIMEOUT_MS);
         
         // 初始化数据库
         initDatabase();
@@ -58,14 +65,18 @@ public class DatabaseManager {
     }
     
     /**
-     * 获取数据库连接
+     * 从连接池获取数据库连接
+     * 使用完毕后必须调用close()归还，连接上的PreparedStatement会被缓存复用
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(
-                DatabaseConfig.JDBC_URL,
-                DatabaseConfig.DB_USER,
-                DatabaseConfig.DB_PASSWORD
-        );
+        return connectionPool.borrow();
+    }
+    
+    /**
+     * 获取连接池，用于查看连接和借用等待统计
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
     
     /**
@@ -143,9 +154,9 @@ public class DatabaseManager {
      * 关闭数据库管理器
      */
     public void close() {
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-        }
+        // 先写入缓冲中的图像，再关闭连接池
+        ImageWriteBuffer.shutdownIfStarted(SHUTDOWN_FLUSH_TIMEOUT_MS);
+        connectionPool.close();
     }
     
     /**
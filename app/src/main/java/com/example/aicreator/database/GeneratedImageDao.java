@@ -56,6 +56,62 @@ public class GeneratedImageDao {
         }
     }
     
+    /**
+     * 批量保存生成的图像
+     * 在一个事务中使用JDBC批量插入，成功后按顺序为每个图像设置生成的ID
+     * @param images 生成图像对象列表
+     * @return 全部保存成功返回true，否则返回false
+     */
+    public boolean saveImages(List<GeneratedImage> images) {
+        if (images.isEmpty()) {
+            return true;
+        }
+        
+        String sql = "INSERT INTO " + DatabaseConfig.TABLE_GENERATED_IMAGES + 
+                " (user_id, prompt, image_url, created_at) VALUES (?, ?, ?, ?)";
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            
+            conn.setAutoCommit(false);
+            for (GeneratedImage image : images) {
+                Date createdAt = image.getCreatedAt() != null ? image.getCreatedAt() : new Date();
+                pstmt.setInt(1, image.getUserId());
+                pstmt.setString(2, image.getPrompt());
+                pstmt.setString(3, image.getImageUrl());
+                pstmt.setTimestamp(4, new Timestamp(createdAt.getTime()));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            
+            // 生成的主键按插入顺序返回
+            int index = 0;
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                while (generatedKeys.next() && index < images.size()) {
+                    images.get(index++).setId(generatedKeys.getInt(1));
+                }
+            }
+            
+            // 主键数量不符时无法把ID对应回图像，回滚整个批次，避免调用方重试后重复插入
+            if (index != images.size()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+                for (GeneratedImage image : images) {
+                    image.setId(0);
+                }
+                Log.e(TAG, "批量保存图像失败: 返回" + index + "个主键，期望" + images.size() + "个");
+                return false;
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            
+            return true;
+        } catch (SQLException e) {
+            Log.e(TAG, "批量保存图像失败: " + e.getMessage());
+            return false;
+        }
+    }
+    
     /**
      * 根据ID查找图像
      * @param id 图像ID
@@ -0,0 +1,339 @@
+package com.example.aicreator.database;
+
+import android.util.Log;
+
+import com.example.aicreator.models.GeneratedImage;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.SettableFuture;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生成图像写缓冲
+ * 把零散的图像保存请求合并为JDBC批量插入，达到批次大小或等待超时后在磁盘线程池中写入，
+ * 生成的图像ID通过Future返回；开始关闭后提交的请求立即以异常完成
+ */
+public class ImageWriteBuffer {
+    private static final String TAG = "ImageWriteBuffer";
+
+    // 单批最多写入的图像数
+    private static final int MAX_BATCH_SIZE = 50;
+
+    // 第一条请求入队后最多等待多久写入（毫秒）
+    private static final long MAX_BATCH_DELAY_MS = 200;
+
+    // 缓冲区容量上限，超过后调用方需要等待
+    private static final int MAX_PENDING = 500;
+
+    // 缓冲区已满时调用方的最长等待时间（毫秒）
+    private static final long ENQUEUE_TIMEOUT_MS = 2000;
+
+    private static ImageWriteBuffer instance;
+
+    // 应用关闭时设置，之后获取到的实例都拒绝新的保存请求
+    private static boolean stopped;
+
+    private final GeneratedImageDao imageDao;
+    private final AppExecutors executors;
+
+    // 以下状态只在持有this锁时访问
+    private final ArrayDeque<PendingWrite> queue = new ArrayDeque<>();
+    private Future<?> batchTimer;
+    private boolean writerRunning;
+    private boolean shuttingDown;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public ImageWriteBuffer(GeneratedImageDao imageDao, AppExecutors executors) {
+        this.imageDao = imageDao;
+        this.executors = executors;
+    }
+
+    /**
+     * 获取ImageWriteBuffer单例实例
+     * 调用shutdownIfStarted之后返回的实例不再接收保存请求
+     */
+    public static synchronized ImageWriteBuffer getInstance() {
+        if (instance == null) {
+            instance = new ImageWriteBuffer(new GeneratedImageDao(), AppExecutors.getInstance());
+            if (stopped) {
+                instance.shutdown(0);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 如果写缓冲已经创建，立即写入缓冲中的请求（例如应用退到后台时）
+     */
+    public static void flushIfStarted() {
+        ImageWriteBuffer buffer;
+        synchronized (ImageWriteBuffer.class) {
+            buffer = instance;
+        }
+        if (buffer != null) {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * 如果写缓冲已经创建，写入剩余请求并停止；之后的保存请求都会被拒绝
+     * @param timeoutMs 最长等待时间（毫秒）
+     */
+    public static void shutdownIfStarted(long timeoutMs) {
+        ImageWriteBuffer buffer;
+        synchronized (ImageWriteBuffer.class) {
+            buffer = instance;
+            stopped = true;
+        }
+        if (buffer != null) {
+            buffer.shutdown(timeoutMs);
+        }
+    }
+
+    /**
+     * 提交保存请求
+     * @param image 生成图像对象，写入成功后会设置ID
+     * @return 生成的图像ID；缓冲已关闭或已满时以SQLException完成
+     */
+    public Future<Integer> save(GeneratedImage image) {
+        PendingWrite write = new PendingWrite(image);
+        String rejection = null;
+        synchronized (this) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ENQUEUE_TIMEOUT_MS);
+            try {
+                while (!shuttingDown && queue.size() >= MAX_PENDING) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejection = "等待写缓冲时被中断";
+            }
+
+            // 关闭标记和入队在同一把锁下，关闭开始后不会再有请求进入队列
+            if (rejection == null && shuttingDown) {
+                rejection = "写缓冲已关闭";
+            } else if (rejection == null && queue.size() >= MAX_PENDING) {
+                rejection = "写缓冲已满";
+            }
+            if (rejection == null) {
+                queue.add(write);
+                scheduleWriteLocked(queue.size() >= MAX_BATCH_SIZE);
+            }
+        }
+
+        if (rejection != null) {
+            failedCount.incrementAndGet();
+            write.future.setException(new SQLException(rejection));
+        }
+        return write.future;
+    }
+
+    /**
+     * 不再等待凑满批次，立即写入当前缓冲的请求
+     */
+    public synchronized void flush() {
+        if (!queue.isEmpty()) {
+            scheduleWriteLocked(true);
+        }
+    }
+
+    /**
+     * 停止接收新请求，写入剩余请求后返回
+     * @param timeoutMs 最长等待时间（毫秒）
+     * @return 在超时前全部写入时返回true
+     */
+    public synchronized boolean shutdown(long timeoutMs) {
+        shuttingDown = true;
+        // 唤醒等待缓冲区空间的调用方，让它们立即失败
+        notifyAll();
+        if (!queue.isEmpty()) {
+            scheduleWriteLocked(true);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            while (writerRunning || !queue.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean drained = !writerRunning && queue.isEmpty();
+        if (!drained) {
+            Log.w(TAG, "写缓冲关闭超时，剩余" + queue.size() + "条未写入");
+        }
+        return drained;
+    }
+
+    /**
+     * 获取当前缓冲的请求数
+     */
+    public synchronized int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * 获取已执行的批次数
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * 获取成功写入的图像数
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * 获取写入失败或被拒绝的图像数
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * 安排写入：立即写入时交给磁盘线程池，否则等待批次凑满或超时。
+     * 写入任务正在运行时什么也不做，它会继续写入新到的请求
+     */
+    private void scheduleWriteLocked(boolean immediately) {
+        if (writerRunning) {
+            return;
+        }
+        if (!immediately) {
+            if (batchTimer == null) {
+                try {
+                    batchTimer = executors.scheduler().schedule(this::onBatchTimer,
+                            MAX_BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // 调度器已关闭，直接写入
+                }
+            } else {
+                return;
+            }
+        }
+
+        if (batchTimer != null) {
+            batchTimer.cancel(false);
+            batchTimer = null;
+        }
+        writerRunning = true;
+        try {
+            executors.diskIO().execute(this::runWriter);
+        } catch (RejectedExecutionException e) {
+            writerRunning = false;
+            failAllLocked("磁盘线程池已关闭");
+        }
+    }
+
+    private synchronized void onBatchTimer() {
+        batchTimer = null;
+        if (!queue.isEmpty()) {
+            scheduleWriteLocked(true);
+        }
+    }
+
+    /**
+     * 写入任务：按批次写入，直到队列为空
+     */
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            synchronized (this) {
+                while (batch.size() < MAX_BATCH_SIZE && !queue.isEmpty()) {
+                    batch.add(queue.poll());
+                }
+                if (batch.isEmpty()) {
+                    writerRunning = false;
+                    notifyAll();
+                    return;
+                }
+                // 唤醒等待缓冲区空间的调用方
+                notifyAll();
+            }
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException e) {
+                // 不能让异常结束写入任务，否则writerRunning不会被清除
+                Log.e(TAG, "批量保存图像失败: " + e.getMessage());
+                for (PendingWrite write : batch) {
+                    failedCount.incrementAndGet();
+                    write.future.setException(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void failAllLocked(String reason) {
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            failedCount.incrementAndGet();
+            write.future.setException(new SQLException(reason));
+        }
+        notifyAll();
+    }
+
+    /**
+     * 批量写入并完成对应的Future
+     */
+    private void writeBatch(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<GeneratedImage> images = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            images.add(write.image);
+        }
+
+        boolean success = imageDao.saveImages(images);
+        batchCount.incrementAndGet();
+
+        for (PendingWrite write : batch) {
+            if (success && write.image.getId() > 0) {
+                writtenCount.incrementAndGet();
+                write.future.set(write.image.getId());
+            } else {
+                failedCount.incrementAndGet();
+                write.future.setException(new SQLException("保存图像到数据库失败"));
+            }
+        }
+        if (!success) {
+            Log.e(TAG, "批量保存" + batch.size() + "张图像失败");
+        }
+    }
+
+    /**
+     * 缓冲中的保存请求
+     */
+    private static class PendingWrite {
+        final GeneratedImage image;
+        final SettableFuture<Integer> future = new SettableFuture<>();
+
+        PendingWrite(GeneratedImage image) {
+            this.image = image;
+        }
+    }
+}
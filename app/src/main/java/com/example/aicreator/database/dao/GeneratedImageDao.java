@@ -9,6 +9,8 @@ import androidx.room.Query;
 import androidx.room.Update;
 
 import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.model.ImageHistoryItem;
+import com.example.aicreator.database.model.ImageSearchMatch;
 
 import java.util.List;
 
@@ -65,6 +67,38 @@ public interface GeneratedImageDao {
     @Query("SELECT * FROM generated_images WHERE user_id = :userId ORDER BY created_at DESC")
     LiveData<List<GeneratedImageEntity>> getImagesByUserId(int userId);
     
+    /**
+     * 观察用户的图像数量
+     * @param userId 用户ID
+     * @return 图像数量
+     */
+    @Query("SELECT COUNT(*) FROM generated_images WHERE user_id = :userId")
+    LiveData<Integer> observeImageCount(int userId);
+    
+    /**
+     * 获取用户历史图像的第一页（轻量投影）
+     * @param userId 用户ID
+     * @param limit 每页数量
+     * @return 历史图像列表项
+     */
+    @Query("SELECT id, image_url, local_path, is_favorite, created_at FROM generated_images " +
+            "WHERE user_id = :userId " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    List<ImageHistoryItem> getHistoryFirstPage(int userId, int limit);
+    
+    /**
+     * 获取游标之后的一页用户历史图像（键集分页）
+     * @param userId 用户ID
+     * @param createdAt 上一页最后一项的创建时间戳
+     * @param id 上一页最后一项的ID
+     * @param limit 每页数量
+     * @return 历史图像列表项
+     */
+    @Query("SELECT id, image_url, local_path, is_favorite, created_at FROM generated_images " +
+            "WHERE user_id = :userId AND (created_at < :createdAt OR (created_at = :createdAt AND id < :id)) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    List<ImageHistoryItem> getHistoryPageAfter(int userId, long createdAt, int id, int limit);
+    
     /**
      * 获取最近生成的图像
      * @param limit 限制数量
@@ -97,6 +131,28 @@ public interface GeneratedImageDao {
     @Query("UPDATE generated_images SET local_path = :localPath WHERE id = :imageId")
     void updateLocalPath(int imageId, String localPath);
     
+    /**
+     * 根据ID删除图像
+     * @param imageId 图像ID
+     */
+    @Query("DELETE FROM generated_images WHERE id = :imageId")
+    void deleteById(int imageId);
+    
+    /**
+     * 根据ID批量删除图像
+     * @param imageIds 图像ID列表
+     */
+    @Query("DELETE FROM generated_images WHERE id IN (:imageIds)")
+    void deleteByIds(List<Integer> imageIds);
+    
+    /**
+     * 根据ID批量查询图像（同步）
+     * @param imageIds 图像ID列表
+     * @return 已存在的图像实体列表
+     */
+    @Query("SELECT * FROM generated_images WHERE id IN (:imageIds)")
+    List<GeneratedImageEntity> getByIdsSync(List<Integer> imageIds);
+    
     /**
      * 删除用户的所有图像
      * @param userId 用户ID
@@ -105,10 +161,32 @@ public interface GeneratedImageDao {
     void deleteAllUserImages(int userId);
     
     /**
-     * 搜索图像
-     * @param query 搜索关键词
-     * @return 图像列表
+     * 全文搜索用户的图像提示词
+     * 候选结果按时间倒序返回，相关度排序由调用方根据match_info完成。
+     * 使用CROSS JOIN固定先执行MATCH再按rowid取行，否则SQLite会沿(user_id, created_at)索引
+     * 遍历该用户的每一行，并对每一行重新执行一次全文查询
+     * @param userId 用户ID
+     * @param match FTS4 MATCH表达式
+     * @param limit 候选数量上限
+     * @return 候选结果
+     */
+    @Query("SELECT g.id, g.image_url, g.local_path, g.is_favorite, g.created_at, " +
+            "matchinfo(generated_images_fts, 'pcx') AS match_info " +
+            "FROM generated_images_fts CROSS JOIN generated_images g ON g.id = generated_images_fts.rowid " +
+            "WHERE generated_images_fts MATCH :match AND g.user_id = :userId " +
+            "ORDER BY g.created_at DESC LIMIT :limit")
+    List<ImageSearchMatch> searchPrompts(int userId, String match, int limit);
+    
+    /**
+     * 子串搜索用户的图像提示词
+     * 用于分词器无法切分的中日韩文字查询
+     * @param userId 用户ID
+     * @param query 搜索关键词，需先用FtsQuery.escapeLike转义%、_和\
+     * @param limit 数量上限
+     * @return 历史图像列表项
      */
-    @Query("SELECT * FROM generated_images WHERE prompt LIKE '%' || :query || '%' ORDER BY created_at DESC")
-    LiveData<List<GeneratedImageEntity>> searchImages(String query);
-} 
\ No newline at end of file
+    @Query("SELECT id, image_url, local_path, is_favorite, created_at FROM generated_images " +
+            "WHERE user_id = :userId AND prompt LIKE '%' || :query || '%' ESCAPE '\\' " +
+            "ORDER BY created_at DESC LIMIT :limit")
+    List<ImageHistoryItem> searchPromptsBySubstring(int userId, String query, int limit);
+}
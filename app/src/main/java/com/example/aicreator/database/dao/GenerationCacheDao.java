@@ -0,0 +1,82 @@
+package com.example.aicreator.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.aicreator.database.entity.GenerationCacheEntity;
+
+import java.util.List;
+
+/**
+ * 生成结果缓存数据访问对象
+ * 定义生成结果缓存表的数据库操作，所有方法需在后台线程调用
+ */
+@Dao
+public interface GenerationCacheDao {
+    
+    /**
+     * 插入或替换缓存项
+     * @param entry 缓存实体
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(GenerationCacheEntity entry);
+    
+    /**
+     * 根据缓存键查询
+     * @param cacheKey 缓存键
+     * @return 缓存实体，不存在时返回null
+     */
+    @Query("SELECT * FROM generation_cache WHERE cache_key = :cacheKey")
+    GenerationCacheEntity getByKey(String cacheKey);
+    
+    /**
+     * 更新最后访问时间
+     * @param cacheKey 缓存键
+     * @param accessedAt 访问时间
+     */
+    @Query("UPDATE generation_cache SET last_accessed_at = :accessedAt WHERE cache_key = :cacheKey")
+    void updateLastAccessed(String cacheKey, long accessedAt);
+    
+    /**
+     * 删除缓存项
+     * @param cacheKey 缓存键
+     */
+    @Query("DELETE FROM generation_cache WHERE cache_key = :cacheKey")
+    void deleteByKey(String cacheKey);
+    
+    /**
+     * 获取在指定时间之前创建的缓存项
+     * @param createdBefore 时间戳
+     * @return 过期的缓存项列表
+     */
+    @Query("SELECT * FROM generation_cache WHERE created_at < :createdBefore")
+    List<GenerationCacheEntity> getCreatedBefore(long createdBefore);
+    
+    /**
+     * 按最后访问时间升序获取缓存项（最久未使用的在前）
+     * @param limit 限制数量
+     * @return 缓存项列表
+     */
+    @Query("SELECT * FROM generation_cache ORDER BY last_accessed_at ASC LIMIT :limit")
+    List<GenerationCacheEntity> getLeastRecentlyUsed(int limit);
+    
+    /**
+     * 获取缓存项数量
+     */
+    @Query("SELECT COUNT(*) FROM generation_cache")
+    int getCount();
+    
+    /**
+     * 获取缓存文件总大小
+     */
+    @Query("SELECT COALESCE(SUM(size_bytes), 0) FROM generation_cache")
+    long getTotalSize();
+    
+    /**
+     * 清空缓存
+     */
+    @Query("DELETE FROM generation_cache")
+    void deleteAll();
+}
@@ -0,0 +1,113 @@
+package com.example.aicreator.database.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import com.example.aicreator.database.entity.PendingMutationEntity;
+
+import java.util.List;
+
+/**
+ * 待发送修改数据访问对象
+ * 定义待发送修改表的数据库操作，除LiveData查询外需在后台线程调用
+ */
+@Dao
+public interface PendingMutationDao {
+    
+    /**
+     * 插入待发送修改
+     * @param mutation 修改实体
+     * @return 新插入的ID
+     */
+    @Insert
+    long insert(PendingMutationEntity mutation);
+    
+    /**
+     * 更新待发送修改
+     * @param mutation 修改实体
+     */
+    @Update
+    void update(PendingMutationEntity mutation);
+    
+    /**
+     * 批量更新待发送修改
+     * @param mutations 修改实体列表
+     */
+    @Update
+    void updateAll(List<PendingMutationEntity> mutations);
+    
+    /**
+     * 删除待发送修改
+     * @param id 修改ID
+     */
+    @Query("DELETE FROM pending_mutations WHERE id = :id")
+    void deleteById(long id);
+    
+    /**
+     * 获取某个对象尚未发送的修改（不包括正在发送的）
+     * @param type 操作类型
+     * @param targetId 对象ID
+     * @return 修改列表
+     */
+    @Query("SELECT * FROM pending_mutations WHERE type = :type AND target_id = :targetId " +
+           "AND status != 'in_flight' ORDER BY id")
+    List<PendingMutationEntity> getQueued(String type, int targetId);
+    
+    /**
+     * 删除某个对象尚未发送的修改（不包括正在发送的）
+     * @param type 操作类型
+     * @param targetId 对象ID
+     */
+    @Query("DELETE FROM pending_mutations WHERE type = :type AND target_id = :targetId " +
+           "AND status != 'in_flight'")
+    void deleteQueued(String type, int targetId);
+    
+    /**
+     * 获取有尚未完成的修改的对象ID（包括正在发送的，不包括已放弃的）
+     * @param types 操作类型列表
+     * @return 对象ID列表
+     */
+    @Query("SELECT DISTINCT target_id FROM pending_mutations WHERE type IN (:types) " +
+           "AND status != 'failed'")
+    List<Integer> getUnsyncedTargetIds(List<String> types);
+    
+    /**
+     * 获取已到发送时间的修改，按加入顺序排列
+     * @param now 当前时间戳
+     * @param limit 限制数量
+     * @return 修改列表
+     */
+    @Query("SELECT * FROM pending_mutations WHERE status = 'pending' AND next_attempt_at <= :now " +
+           "ORDER BY id LIMIT :limit")
+    List<PendingMutationEntity> getDue(long now, int limit);
+    
+    /**
+     * 获取最早的下次发送时间
+     * @return 时间戳，没有等待发送的修改时返回null
+     */
+    @Query("SELECT MIN(next_attempt_at) FROM pending_mutations WHERE status = 'pending'")
+    Long getNextAttemptAt();
+    
+    /**
+     * 进程重启后，把上次未完成的发送恢复为待发送
+     */
+    @Query("UPDATE pending_mutations SET status = 'pending' WHERE status = 'in_flight'")
+    void resetInFlight();
+    
+    /**
+     * 把发送失败的修改恢复为待发送
+     */
+    @Query("UPDATE pending_mutations SET status = 'pending', attempt_count = 0, next_attempt_at = 0 " +
+           "WHERE status = 'failed'")
+    void retryFailed();
+    
+    /**
+     * 观察所有待发送修改及其状态
+     * @return 修改列表LiveData
+     */
+    @Query("SELECT * FROM pending_mutations ORDER BY id")
+    LiveData<List<PendingMutationEntity>> observeAll();
+}
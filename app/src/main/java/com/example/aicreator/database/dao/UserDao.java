@@ -49,6 +49,14 @@ public interface UserDao {
     @Query("SELECT * FROM users WHERE id = :id")
     LiveData<UserEntity> getUserById(int id);
     
+    /**
+     * 根据ID同步查询用户
+     * @param id 用户ID
+     * @return 用户实体，不存在时为null
+     */
+    @Query("SELECT * FROM users WHERE id = :id")
+    UserEntity getUserByIdSync(int id);
+    
     /**
      * 根据用户名查询用户
      * @param username 用户名
@@ -20,7 +20,7 @@ import java.util.Date;
         childColumns = "user_id",
         onDelete = ForeignKey.CASCADE
     ),
-    indices = {@Index("user_id")}
+    indices = {@Index(value = {"user_id", "created_at", "id"})}
 )
 public class GeneratedImageEntity {
     
@@ -0,0 +1,27 @@
+package com.example.aicreator.database.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * 生成图像提示词全文索引
+ * generated_images表prompt列的FTS4外部内容影子表，
+ * 由Room生成的触发器与原表保持同步，rowid即图像ID
+ */
+@Fts4(contentEntity = GeneratedImageEntity.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "generated_images_fts")
+public class GeneratedImageFtsEntity {
+    
+    @ColumnInfo(name = "prompt")
+    private String prompt;
+
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public void setPrompt(String prompt) {
+        this.prompt = prompt;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.aicreator.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * 生成结果缓存实体类
+ * 以模型版本和输入参数的规范化哈希为键，保存生成结果及其本地文件
+ */
+@Entity(
+    tableName = "generation_cache",
+    indices = {@Index("last_accessed_at")}
+)
+public class GenerationCacheEntity {
+    
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "cache_key")
+    private String cacheKey = "";
+    
+    @ColumnInfo(name = "model_version")
+    private String modelVersion;
+    
+    @ColumnInfo(name = "output_url")
+    private String outputUrl;
+    
+    @ColumnInfo(name = "local_path")
+    private String localPath;
+    
+    @ColumnInfo(name = "size_bytes")
+    private long sizeBytes;
+    
+    @ColumnInfo(name = "created_at")
+    private Date createdAt;
+    
+    @ColumnInfo(name = "last_accessed_at")
+    private Date lastAccessedAt;
+
+    // 构造函数
+    public GenerationCacheEntity() {
+    }
+
+    public GenerationCacheEntity(@NonNull String cacheKey, String modelVersion, String outputUrl) {
+        this.cacheKey = cacheKey;
+        this.modelVersion = modelVersion;
+        this.outputUrl = outputUrl;
+        this.createdAt = new Date();
+        this.lastAccessedAt = this.createdAt;
+    }
+
+    // Getter和Setter方法
+    @NonNull
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(@NonNull String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    public String getOutputUrl() {
+        return outputUrl;
+    }
+
+    public void setOutputUrl(String outputUrl) {
+        this.outputUrl = outputUrl;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public void setLocalPath(String localPath) {
+        this.localPath = localPath;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    public void setLastAccessedAt(Date lastAccessedAt) {
+        this.lastAccessedAt = lastAccessedAt;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.aicreator.database.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * 待发送修改实体类
+ * 本地已生效、尚未同步到服务器的修改操作，进程重启后继续发送
+ */
+@Entity(
+    tableName = "pending_mutations",
+    indices = {@Index({"type", "target_id"}), @Index({"status", "next_attempt_at"})}
+)
+public class PendingMutationEntity {
+    
+    // 操作类型
+    public static final String TYPE_IMAGE_DELETE = "image_delete";
+    public static final String TYPE_IMAGE_FAVORITE = "image_favorite";
+    public static final String TYPE_USER_UPDATE = "user_update";
+    
+    // 发送状态
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_IN_FLIGHT = "in_flight";
+    public static final String STATUS_FAILED = "failed";
+    
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+    
+    @ColumnInfo(name = "type")
+    private String type;
+    
+    @ColumnInfo(name = "target_id")
+    private int targetId;
+    
+    // 请求内容（JSON或简单值），删除操作为null
+    @ColumnInfo(name = "payload")
+    private String payload;
+    
+    @ColumnInfo(name = "status")
+    private String status;
+    
+    @ColumnInfo(name = "attempt_count")
+    private int attemptCount;
+    
+    @ColumnInfo(name = "next_attempt_at")
+    private long nextAttemptAt;
+    
+    @ColumnInfo(name = "last_error")
+    private String lastError;
+    
+    @ColumnInfo(name = "created_at")
+    private Date createdAt;
+    
+    @ColumnInfo(name = "updated_at")
+    private Date updatedAt;
+
+    // 构造函数
+    public PendingMutationEntity() {
+    }
+
+    public PendingMutationEntity(String type, int targetId, String payload) {
+        this.type = type;
+        this.targetId = targetId;
+        this.payload = payload;
+        this.status = STATUS_PENDING;
+        this.createdAt = new Date();
+        this.updatedAt = this.createdAt;
+    }
+
+    // Getter和Setter方法
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(int targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttemptCount() {
+        return attemptCount;
+    }
+
+    public void setAttemptCount(int attemptCount) {
+        this.attemptCount = attemptCount;
+    }
+
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(long nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
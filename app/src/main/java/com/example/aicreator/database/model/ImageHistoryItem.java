@@ -0,0 +1,75 @@
+package com.example.aicreator.database.model;
+
+import androidx.room.ColumnInfo;
+
+import java.util.Date;
+
+/**
+ * 历史图像列表项
+ * generated_images表的轻量投影，只包含历史网格显示所需的列
+ */
+public class ImageHistoryItem {
+    
+    @ColumnInfo(name = "id")
+    private int id;
+    
+    @ColumnInfo(name = "image_url")
+    private String imageUrl;
+    
+    @ColumnInfo(name = "local_path")
+    private String localPath;
+    
+    @ColumnInfo(name = "is_favorite")
+    private boolean isFavorite;
+    
+    @ColumnInfo(name = "created_at")
+    private Date createdAt;
+
+    // Getter和Setter方法
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public void setLocalPath(String localPath) {
+        this.localPath = localPath;
+    }
+
+    public boolean isFavorite() {
+        return isFavorite;
+    }
+
+    public void setFavorite(boolean favorite) {
+        isFavorite = favorite;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    /**
+     * 获取用于显示的图像地址，优先使用本地文件
+     */
+    public String getDisplayUrl() {
+        return localPath != null ? localPath : imageUrl;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.aicreator.database.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+/**
+ * 提示词全文搜索的候选结果
+ * 包含历史列表项和FTS4 matchinfo('pcx')返回的匹配统计
+ */
+public class ImageSearchMatch {
+    
+    @Embedded
+    private ImageHistoryItem item;
+    
+    @ColumnInfo(name = "match_info")
+    private byte[] matchInfo;
+
+    public ImageHistoryItem getItem() {
+        return item;
+    }
+
+    public void setItem(ImageHistoryItem item) {
+        this.item = item;
+    }
+
+    public byte[] getMatchInfo() {
+        return matchInfo;
+    }
+
+    public void setMatchInfo(byte[] matchInfo) {
+        this.matchInfo = matchInfo;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.aicreator.database.util;
+
+import com.example.aicreator.database.model.ImageSearchMatch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * FTS4查询工具
+ * 负责把用户输入转换为安全的MATCH表达式，并根据matchinfo计算相关度
+ */
+public class FtsQuery {
+    
+    private FtsQuery() {
+    }
+    
+    /**
+     * 把用户输入转换为前缀匹配的MATCH表达式
+     * 只保留字母和数字，每个词加上*做前缀匹配，多个词之间为AND关系
+     * @param query 用户输入
+     * @return MATCH表达式，没有可搜索的词时返回null
+     */
+    public static String toPrefixMatch(String query) {
+        if (query == null) {
+            return null;
+        }
+        
+        StringBuilder match = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        String lower = query.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append(token).append('*');
+                token.setLength(0);
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+    
+    /**
+     * 转义LIKE模式中的通配符，配合ESCAPE '\'使用
+     * 用户输入的%、_和\都按字面匹配
+     * @param query 用户输入
+     * @return 转义后的字符串
+     */
+    public static String escapeLike(String query) {
+        StringBuilder escaped = new StringBuilder(query.length());
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+    
+    /**
+     * 判断输入是否包含中日韩文字
+     * unicode61分词器不会切分连续的中日韩文字，这类查询需要改用子串匹配
+     */
+    public static boolean containsCjk(String query) {
+        if (query == null) {
+            return false;
+        }
+        for (int i = 0; i < query.length(); i++) {
+            Character.UnicodeBlock block = Character.UnicodeBlock.of(query.charAt(i));
+            if (block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                    || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                    || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                    || block == Character.UnicodeBlock.HIRAGANA
+                    || block == Character.UnicodeBlock.KATAKANA
+                    || block == Character.UnicodeBlock.HANGUL_SYLLABLES) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 计算匹配的相关度
+     * 基于matchinfo('pcx')：对每个查询词，用本行命中次数乘以逆文档频率求和
+     * @param matchInfo matchinfo返回的数据
+     * @return 相关度，越大越相关
+     */
+    public static double score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+        if (matchInfo.length < (2 + 3 * phraseCount * columnCount) * 4) {
+            return 0;
+        }
+        
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int offset = (2 + 3 * (phrase * columnCount + column)) * 4;
+                int hitsThisRow = buffer.getInt(offset);
+                int docsWithHits = buffer.getInt(offset + 8);
+                if (hitsThisRow > 0 && docsWithHits > 0) {
+                    score += hitsThisRow / (double) docsWithHits;
+                }
+            }
+        }
+        return score;
+    }
+    
+    /**
+     * 按相关度从高到低排序，相关度相同时较新的在前
+     * @param matches 候选结果
+     * @param limit 返回数量上限
+     * @return 排序后的结果
+     */
+    public static List<ImageSearchMatch> rank(List<ImageSearchMatch> matches, int limit) {
+        List<ImageSearchMatch> ranked = new ArrayList<>(matches);
+        List<Double> scores = new ArrayList<>(ranked.size());
+        for (ImageSearchMatch match : ranked) {
+            scores.add(score(match.getMatchInfo()));
+        }
+        
+        // 候选集已按时间倒序，稳定排序可以保留相同分数下的时间顺序
+        Integer[] order = new Integer[ranked.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        
+        List<ImageSearchMatch> result = new ArrayList<>(Math.min(limit, order.length));
+        for (int i = 0; i < order.length && i < limit; i++) {
+            result.add(ranked.get(order[i]));
+        }
+        return result;
+    }
+}
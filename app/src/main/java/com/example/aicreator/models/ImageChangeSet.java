@@ -0,0 +1,51 @@
+package com.example.aicreator.models;
+
+import java.util.List;
+
+/**
+ * 图像增量变更模型类
+ * 服务器返回的一页自游标之后的变更：新增或修改的图像，以及已删除图像的ID
+ */
+public class ImageChangeSet {
+    private List<GeneratedImage> changed;
+    private List<Integer> deleted;
+    private String nextCursor;
+    private boolean hasMore;
+
+    // 构造函数
+    public ImageChangeSet() {
+    }
+
+    // Getter和Setter方法
+    public List<GeneratedImage> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<GeneratedImage> changed) {
+        this.changed = changed;
+    }
+
+    public List<Integer> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Integer> deleted) {
+        this.deleted = deleted;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -1,23 +1,28 @@
 package com.example.aicreator.models;
 
+import com.google.gson.annotations.SerializedName;
+
 import java.util.List;
-import java.util.Map;
 
 /**
  * Replicate API响应模型类
- * 用于解析Replicate API的返回数据
+ * 用于解析Replicate API的返回数据，由ModelTypeAdapterFactory流式解析，
+ * 只保留客户端使用的字段
  */
 public class ReplicateResponse {
     private String id;
     private String version;
     private List<String> output;
     private String status;
-    private Map<String, Object> input;
     private String error;
+    @SerializedName("created_at")
     private String createdAt;
+    @SerializedName("started_at")
+    private String startedAt;
+    @SerializedName("completed_at")
     private String completedAt;
-    private Map<String, Object> metrics;
-    private String[] logs;
+    // metrics.predict_time，单位为秒，没有时为-1
+    private double predictTimeSeconds = -1;
     
     public String getId() {
         return id;
@@ -51,14 +56,6 @@ public class ReplicateResponse {
         this.status = status;
     }
     
-    public Map<String, Object> getInput() {
-        return input;
-    }
-    
-    public void setInput(Map<String, Object> input) {
-        this.input = input;
-    }
-    
     public String getError() {
         return error;
     }
@@ -75,28 +72,28 @@ public class ReplicateResponse {
         this.createdAt = createdAt;
     }
     
-    public String getCompletedAt() {
-        return completedAt;
+    public String getStartedAt() {
+        return startedAt;
     }
     
-    public void setCompletedAt(String completedAt) {
-        this.completedAt = completedAt;
+    public void setStartedAt(String startedAt) {
+        this.startedAt = startedAt;
     }
     
-    public Map<String, Object> getMetrics() {
-        return metrics;
+    public String getCompletedAt() {
+        return completedAt;
     }
     
-    public void setMetrics(Map<String, Object> metrics) {
-        this.metrics = metrics;
+    public void setCompletedAt(String completedAt) {
+        this.completedAt = completedAt;
     }
     
-    public String[] getLogs() {
-        return logs;
+    public double getPredictTimeSeconds() {
+        return predictTimeSeconds;
     }
     
-    public void setLogs(String[] logs) {
-        this.logs = logs;
+    public void setPredictTimeSeconds(double predictTimeSeconds) {
+        this.predictTimeSeconds = predictTimeSeconds;
     }
     
     /**
@@ -114,4 +111,23 @@ public class ReplicateResponse {
     public boolean isProcessing() {
         return "starting".equals(status) || "processing".equals(status);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 检查预测是否以失败结束
+     * @return 如果状态为failed或canceled返回true
+     */
+    public boolean isFailed() {
+        return "failed".equals(status) || "canceled".equals(status);
+    }
+    
+    /**
+     * 获取模型实际推理耗时
+     * @return 推理耗时（毫秒），metrics中没有predict_time时返回-1
+     */
+    public long getPredictTimeMillis() {
+        if (predictTimeSeconds < 0) {
+            return -1;
+        }
+        return (long) (predictTimeSeconds * 1000);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.aicreator.models;
+
+/**
+ * 视频生成接口响应模型类
+ * 只保留客户端使用的字段，其余字段在解析时跳过
+ */
+public class VideoGenerationResponse {
+    private String videoUrl;
+    
+    public String getVideoUrl() {
+        return videoUrl;
+    }
+    
+    public void setVideoUrl(String videoUrl) {
+        this.videoUrl = videoUrl;
+    }
+}
@@ -1,9 +1,6 @@
 package com.example.aicreator.network;
 
-import java.util.concurrent.TimeUnit;
-
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -16,32 +13,42 @@ public class ApiClient {
     private static final String BASE_URL = "https://api.yourservice.com/";
     
     private static Retrofit retrofit = null;
+    private static ApiService apiService = null;
     
     /**
      * 获取Retrofit实例
      * @return Retrofit实例
      */
-    public static Retrofit getClient() {
+    public static synchronized Retrofit getClient() {
         if (retrofit == null) {
-            // 创建日志拦截器
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-            
-            // 创建OkHttpClient
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .addInterceptor(loggingInterceptor)
-                    .build();
+            // 基于共享传输层创建OkHttpClient
+            OkHttpClient client = HttpClientProvider.newApiClientBuilder().build();
             
-            // 创建Retrofit实例
+            // 创建Retrofit实例，标记了对冲请求头的读取接口由HedgingCallFactory发送
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
-                    .client(client)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .callFactory(new HedgingCallFactory(client))
+                    .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
                     .build();
         }
         return retrofit;
     }
+    
+    /**
+     * 获取共享的ApiService代理，启动时在后台线程创建
+     * @return ApiService实例
+     */
+    public static synchronized ApiService getApiService() {
+        if (apiService == null) {
+            apiService = getClient().create(ApiService.class);
+        }
+        return apiService;
+    }
+    
+    /**
+     * 获取后端API服务地址
+     */
+    public static String getBaseUrl() {
+        return BASE_URL;
+    }
 } 
\ No newline at end of file
@@ -2,15 +2,25 @@ package com.example.aicreator.network;
 
 import com.example.aicreator.models.GeneratedImage;
 import com.example.aicreator.models.User;
+import com.example.aicreator.models.VideoGenerationResponse;
 
 import java.util.List;
 import java.util.Map;
 
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.Multipart;
 import retrofit2.http.POST;
+import retrofit2.http.PUT;
+import retrofit2.http.Part;
+import retrofit2.http.PartMap;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 
@@ -28,20 +38,41 @@ public interface ApiService {
     Call<User> loginUser(@Body Map<String, String> credentials);
     
     @GET("users/{id}")
+    @Headers(HedgingCallFactory.HEADER + ": get_user")
     Call<User> getUser(@Path("id") int userId);
     
+    @PUT("users/{id}")
+    Call<User> updateUser(@Path("id") int userId, @Body User user);
+    
     // 图像生成相关API
     @POST("images/generate")
     Call<GeneratedImage> generateImage(@Body Map<String, Object> params);
     
     @GET("images/user/{userId}")
+    @Headers(HedgingCallFactory.HEADER + ": user_images")
     Call<List<GeneratedImage>> getUserImages(@Path("userId") int userId);
     
+    @GET("images/user/{userId}/changes")
+    @Headers(HedgingCallFactory.HEADER + ": image_changes")
+    Call<ResponseBody> getImageChanges(@Path("userId") int userId, @Query("cursor") String cursor,
+                                       @Query("limit") int limit);
+    
     @GET("images/recent")
+    @Headers(HedgingCallFactory.HEADER + ": recent_images")
     Call<List<GeneratedImage>> getRecentImages(@Query("limit") int limit);
     
     @DELETE("images/{id}")
     Call<Void> deleteImage(@Path("id") int imageId);
     
+    @PUT("images/{id}/favorite")
+    Call<Void> updateImageFavorite(@Path("id") int imageId, @Body Map<String, Boolean> body);
+    
+    // 视频生成相关API
+    @Multipart
+    @POST("videos/generate")
+    Call<VideoGenerationResponse> generateVideo(@Header("Authorization") String authorization,
+                                                @Part MultipartBody.Part image,
+                                                @PartMap Map<String, RequestBody> params);
+    
     // 其他API方法可以根据需要添加
 } 
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.aicreator.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * 把异步回调转换为同步调用的返回值
+ * 用于包装类Call的execute()：阻塞的只是调用方线程，请求本身仍通过调度器执行
+ */
+class BlockingCallback implements Callback {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Response response;
+    private IOException error;
+
+    @Override
+    public void onResponse(@NonNull Call call, @NonNull Response response) {
+        this.response = response;
+        done.countDown();
+    }
+
+    @Override
+    public void onFailure(@NonNull Call call, @NonNull IOException e) {
+        this.error = e;
+        done.countDown();
+    }
+
+    /**
+     * 等待请求完成
+     * @param call 等待期间线程被中断时取消的请求
+     * @return 响应
+     */
+    Response await(Call call) throws IOException {
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            call.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待请求完成时被中断");
+        }
+        if (response == null) {
+            throw error;
+        }
+        return response;
+    }
+}
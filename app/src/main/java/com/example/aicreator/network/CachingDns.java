@@ -0,0 +1,346 @@
+package com.example.aicreator.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.aicreator.utils.SettableFuture;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import okhttp3.Dns;
+
+/**
+ * 带缓存的DNS解析器
+ * 成功和失败的解析结果分别按各自的有效期缓存；经常使用的主机在过期前于后台刷新，
+ * 使请求不必等待系统解析器。同一主机同时未命中时只解析一次，其他请求等待该次结果。
+ * 返回的地址按IPv6、IPv4交替排列，一种协议的线路不通时下一次连接尝试就会换用另一种
+ */
+public class CachingDns implements Dns {
+    private static final String TAG = "CachingDns";
+
+    // 成功结果的有效期
+    private static final long POSITIVE_TTL_MS = 5 * 60 * 1000;
+
+    // 失败结果的有效期，离线时避免每个请求都等待解析超时
+    private static final long NEGATIVE_TTL_MS = 10 * 1000;
+
+    // 距离过期不足该时间且被再次使用时在后台刷新
+    private static final long REFRESH_AHEAD_MS = 60 * 1000;
+
+    /**
+     * 时间来源，测试时替换为可控制的时钟
+     */
+    interface Clock {
+        long elapsedRealtime();
+    }
+
+    private final Dns delegate;
+    private final Executor refreshExecutor;
+    private final Clock clock;
+
+    // 以下状态只在持有this锁时访问
+    private final Map<String, Entry> cache = new HashMap<>();
+    private final Map<String, SettableFuture<List<InetAddress>>> inFlight = new HashMap<>();
+    private long hitCount;
+    private long missCount;
+    private long negativeHitCount;
+    private long refreshCount;
+    private long lookupCount;
+    private long totalLookupMs;
+    private long maxLookupMs;
+    private long clearCount;
+    private boolean watchingNetwork;
+
+    /**
+     * @param delegate 实际的解析器
+     * @param refreshExecutor 执行后台刷新的线程池
+     */
+    public CachingDns(Dns delegate, Executor refreshExecutor) {
+        this(delegate, refreshExecutor, SystemClock::elapsedRealtime);
+    }
+
+    CachingDns(Dns delegate, Executor refreshExecutor, Clock clock) {
+        this.delegate = delegate;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        long now = clock.elapsedRealtime();
+        List<InetAddress> cached = null;
+        boolean refresh = false;
+        SettableFuture<List<InetAddress>> pending = null;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = cache.get(hostname);
+            if (entry != null && now < entry.expiresAt) {
+                if (entry.addresses == null) {
+                    negativeHitCount++;
+                    throw new UnknownHostException("无法解析主机（已缓存）: " + hostname);
+                }
+                hitCount++;
+                if (entry.expiresAt - now < REFRESH_AHEAD_MS && !entry.refreshing) {
+                    entry.refreshing = true;
+                    refreshCount++;
+                    refresh = true;
+                }
+                cached = entry.addresses;
+            } else {
+                missCount++;
+                pending = inFlight.get(hostname);
+                if (pending == null) {
+                    pending = new SettableFuture<>();
+                    inFlight.put(hostname, pending);
+                    owner = true;
+                }
+            }
+        }
+
+        if (cached != null) {
+            if (refresh) {
+                refreshExecutor.execute(() -> refresh(hostname));
+            }
+            return cached;
+        }
+        if (!owner) {
+            return awaitLookup(hostname, pending);
+        }
+
+        try {
+            List<InetAddress> addresses = resolve(hostname);
+            pending.set(addresses);
+            return addresses;
+        } catch (UnknownHostException | RuntimeException | Error e) {
+            pending.setException(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                if (inFlight.get(hostname) == pending) {
+                    inFlight.remove(hostname);
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待同一主机正在进行的解析
+     */
+    private static List<InetAddress> awaitLookup(String hostname, SettableFuture<List<InetAddress>> pending)
+            throws UnknownHostException {
+        try {
+            return pending.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            UnknownHostException failure = new UnknownHostException(cause.getMessage());
+            failure.initCause(cause);
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnknownHostException("等待解析时被中断: " + hostname);
+        }
+    }
+
+    /**
+     * 清空缓存，例如网络切换后
+     */
+    public synchronized void clear() {
+        cache.clear();
+        // 进行中的解析属于旧网络，之后的请求重新解析
+        inFlight.clear();
+        clearCount++;
+    }
+
+    /**
+     * 监听网络变化，有网络断开或新网络连接时清空缓存：
+     * 切换网络后DNS服务器和可达的地址都可能不同，旧网络下的失败结果也不再适用
+     * @param context 上下文
+     */
+    public void watchNetworkChanges(Context context) {
+        synchronized (this) {
+            if (watchingNetwork) {
+                return;
+            }
+            watchingNetwork = true;
+        }
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        // 注册时已连接的网络也会回调onAvailable，不应清空启动时预热的结果
+        Set<Network> knownNetworks = new HashSet<>();
+        Collections.addAll(knownNetworks, connectivityManager.getAllNetworks());
+
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivityManager.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                boolean added;
+                synchronized (knownNetworks) {
+                    added = knownNetworks.add(network);
+                }
+                if (added) {
+                    Log.d(TAG, "连接到新网络，清空DNS缓存");
+                    clear();
+                }
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) {
+                synchronized (knownNetworks) {
+                    knownNetworks.remove(network);
+                }
+                Log.d(TAG, "网络已断开，清空DNS缓存");
+                clear();
+            }
+        });
+    }
+
+    private void refresh(String hostname) {
+        try {
+            resolve(hostname);
+        } catch (UnknownHostException e) {
+            // 刷新失败时保留旧的成功结果直到过期
+            synchronized (this) {
+                Entry entry = cache.get(hostname);
+                if (entry != null) {
+                    entry.refreshing = false;
+                }
+            }
+            Log.w(TAG, "后台刷新DNS失败: " + hostname);
+        }
+    }
+
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        long start = clock.elapsedRealtime();
+        List<InetAddress> addresses;
+        try {
+            addresses = interleaveFamilies(delegate.lookup(hostname));
+        } catch (UnknownHostException e) {
+            long end = clock.elapsedRealtime();
+            synchronized (this) {
+                recordLookup(end - start);
+                Entry existing = cache.get(hostname);
+                // 后台刷新失败不覆盖仍然有效的成功结果
+                if (existing == null || existing.addresses == null || end >= existing.expiresAt) {
+                    cache.put(hostname, new Entry(null, end + NEGATIVE_TTL_MS));
+                }
+            }
+            throw e;
+        }
+
+        long end = clock.elapsedRealtime();
+        synchronized (this) {
+            recordLookup(end - start);
+            cache.put(hostname, new Entry(addresses, end + POSITIVE_TTL_MS));
+        }
+        return addresses;
+    }
+
+    /**
+     * 按IPv6、IPv4交替排列地址，保持同一协议内的原有顺序
+     */
+    static List<InetAddress> interleaveFamilies(List<InetAddress> addresses) {
+        List<InetAddress> v4 = new ArrayList<>();
+        List<InetAddress> v6 = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            if (address instanceof Inet4Address) {
+                v4.add(address);
+            } else {
+                v6.add(address);
+            }
+        }
+        if (v4.isEmpty() || v6.isEmpty()) {
+            return Collections.unmodifiableList(new ArrayList<>(addresses));
+        }
+        List<InetAddress> result = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(v4.size(), v6.size()); i++) {
+            if (i < v6.size()) {
+                result.add(v6.get(i));
+            }
+            if (i < v4.size()) {
+                result.add(v4.get(i));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private void recordLookup(long durationMs) {
+        lookupCount++;
+        totalLookupMs += durationMs;
+        maxLookupMs = Math.max(maxLookupMs, durationMs);
+    }
+
+    /**
+     * 获取缓存命中率（包括失败结果的命中）
+     */
+    public synchronized double getHitRate() {
+        long total = hitCount + negativeHitCount + missCount;
+        return total == 0 ? 0 : (hitCount + negativeHitCount) / (double) total;
+    }
+
+    /**
+     * 获取实际解析的平均耗时（毫秒）
+     */
+    public synchronized double getAverageLookupMillis() {
+        return lookupCount == 0 ? 0 : totalLookupMs / (double) lookupCount;
+    }
+
+    /**
+     * 获取实际解析的最长耗时（毫秒）
+     */
+    public synchronized long getMaxLookupMillis() {
+        return maxLookupMs;
+    }
+
+    /**
+     * 获取统计信息摘要
+     */
+    public synchronized String getStatsSummary() {
+        return String.format(Locale.ROOT,
+                "DNS: 命中%d 失败命中%d 未命中%d 命中率%.0f%% 后台刷新%d 平均解析%.1fms 最长解析%dms 网络切换清空%d",
+                hitCount, negativeHitCount, missCount, getHitRate() * 100, refreshCount,
+                getAverageLookupMillis(), maxLookupMs, clearCount);
+    }
+
+    /**
+     * 缓存项，addresses为null表示解析失败
+     */
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long expiresAt;
+        boolean refreshing;
+
+        Entry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
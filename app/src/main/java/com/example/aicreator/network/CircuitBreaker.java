@@ -0,0 +1,181 @@
+package com.example.aicreator.network;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按主机划分的熔断器
+ * 连续失败达到阈值后断开，断开期间的请求立即失败而不是等待超时；
+ * 冷却时间过后放行一个探测请求，成功则恢复，失败则继续断开
+ */
+public class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    // 断开前允许的连续失败次数
+    private static final int FAILURE_THRESHOLD = 5;
+
+    // 断开后到放行探测请求的冷却时间
+    private static final long OPEN_DURATION_MS = 30_000;
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        // 正常放行
+        CLOSED,
+        // 断开，请求立即失败
+        OPEN,
+        // 冷却结束，只放行一个探测请求
+        HALF_OPEN
+    }
+
+    /**
+     * 熔断器断开时抛出的异常，请求没有发出
+     */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String host) {
+            super("服务暂时不可用，请稍后重试（" + host + "）");
+        }
+    }
+
+    private static final Map<String, CircuitBreaker> breakers = new HashMap<>();
+    private static final MutableLiveData<Map<String, State>> states = new MutableLiveData<>();
+
+    private final String host;
+
+    // 状态只在持有this锁时修改，volatile便于汇总所有主机的状态时读取
+    private volatile State state = State.CLOSED;
+
+    // 以下状态只在持有this锁时访问
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private CircuitBreaker(String host) {
+        this.host = host;
+    }
+
+    /**
+     * 获取指定主机的熔断器
+     * @param host 主机名
+     * @return 熔断器
+     */
+    public static CircuitBreaker forHost(String host) {
+        synchronized (breakers) {
+            CircuitBreaker breaker = breakers.get(host);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(host);
+                breakers.put(host, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    /**
+     * 检查指定主机的熔断器是否断开，界面可以据此直接提示而不发起请求
+     * @param host 主机名
+     * @return 是否断开
+     */
+    public static boolean isOpen(String host) {
+        CircuitBreaker breaker;
+        synchronized (breakers) {
+            breaker = breakers.get(host);
+        }
+        return breaker != null && breaker.getState() == State.OPEN;
+    }
+
+    /**
+     * 观察各主机熔断器的状态变化，只包含出现过状态变化的主机
+     * @return 主机名到状态的LiveData
+     */
+    public static LiveData<Map<String, State>> getStates() {
+        return states;
+    }
+
+    /**
+     * 请求发出前调用
+     * @return 是否放行
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            if (SystemClock.elapsedRealtime() - openedAt < OPEN_DURATION_MS) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * 请求成功（包括4xx等非服务端错误）时调用
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    /**
+     * 请求因网络错误或5xx失败时调用
+     */
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+            openedAt = SystemClock.elapsedRealtime();
+            if (state != State.OPEN) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * 请求被取消等无法判断结果时调用，释放探测名额
+     */
+    public synchronized void onAbandoned() {
+        probeInFlight = false;
+    }
+
+    /**
+     * 获取当前状态，冷却结束但尚未探测时仍返回OPEN
+     */
+    public State getState() {
+        return state;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    private void transitionTo(State newState) {
+        Log.i(TAG, host + "熔断器状态: " + state + " -> " + newState);
+        state = newState;
+        publishStates();
+    }
+
+    private static void publishStates() {
+        Map<String, State> snapshot = new HashMap<>();
+        synchronized (breakers) {
+            for (CircuitBreaker breaker : breakers.values()) {
+                snapshot.put(breaker.host, breaker.state);
+            }
+        }
+        states.postValue(Collections.unmodifiableMap(snapshot));
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.aicreator.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 连接预热
+ * 启动页显示期间在后台解析已知服务地址的DNS，并向首个生成请求会用到的主机发起HEAD请求，
+ * 使TLS握手完成的HTTP/2连接留在共享连接池中。同时记录每个进程第一个实际请求的耗时，
+ * 区分该主机是否已预热，用于对比预热的效果
+ */
+public class ConnectionPrewarmer {
+    private static final String TAG = "ConnectionPrewarmer";
+
+    // Replicate生成结果所在的CDN
+    private static final String REPLICATE_CDN_URL = "https://replicate.delivery/";
+
+    // 预热开关和首个请求耗时记录
+    private static final String METRICS_PREF_NAME = "network_metrics";
+    private static final String KEY_PREWARM_ENABLED = "prewarm_enabled";
+    private static final String KEY_FIRST_REQUEST_WARM_MS = "first_request_warm_ms";
+    private static final String KEY_FIRST_REQUEST_COLD_MS = "first_request_cold_ms";
+    private static final String KEY_WARM_COUNT = "first_request_warm_count";
+    private static final String KEY_COLD_COUNT = "first_request_cold_count";
+
+    private static ConnectionPrewarmer instance;
+
+    private final Context appContext;
+
+    // 以下状态只在持有this锁时访问
+    private final Set<String> warmedHosts = new HashSet<>();
+    private boolean firstRequestRecorded;
+
+    private ConnectionPrewarmer(Context context) {
+        appContext = context;
+    }
+
+    /**
+     * 获取ConnectionPrewarmer单例实例
+     */
+    public static synchronized ConnectionPrewarmer getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConnectionPrewarmer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 设置是否在启动时预热，关闭后可以对比首个请求的耗时
+     * @param context 上下文
+     * @param enabled 是否启用
+     */
+    public static void setEnabled(Context context, boolean enabled) {
+        context.getSharedPreferences(METRICS_PREF_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_PREWARM_ENABLED, enabled)
+                .apply();
+    }
+
+    /**
+     * 解析DNS并建立连接，在后台线程调用；DNS解析是同步的，连接通过异步请求建立
+     * @param dnsUrls 只解析DNS的地址
+     * @param connectUrls 需要建立连接的地址
+     */
+    public void prewarm(String[] dnsUrls, String[] connectUrls) {
+        if (!appContext.getSharedPreferences(METRICS_PREF_NAME, Context.MODE_PRIVATE)
+                .getBoolean(KEY_PREWARM_ENABLED, true)) {
+            Log.d(TAG, "预热已关闭");
+            return;
+        }
+
+        OkHttpClient client = HttpClientProvider.getSharedClient();
+        Set<String> hosts = new LinkedHashSet<>();
+        for (String url : dnsUrls) {
+            addHost(hosts, url);
+        }
+        for (String url : connectUrls) {
+            addHost(hosts, url);
+        }
+        for (String host : hosts) {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                client.dns().lookup(host);
+                Log.d(TAG, "DNS预解析" + host + "耗时: " + (SystemClock.elapsedRealtime() - start) + "ms");
+            } catch (UnknownHostException e) {
+                Log.w(TAG, "DNS预解析失败: " + host);
+            }
+        }
+
+        for (String url : connectUrls) {
+            HttpUrl httpUrl = HttpUrl.parse(url);
+            if (httpUrl == null) {
+                continue;
+            }
+            long start = SystemClock.elapsedRealtime();
+            Request request = new Request.Builder()
+                    .url(httpUrl)
+                    .head()
+                    .tag(ConnectionPrewarmer.class, this)
+                    .build();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    response.close();
+                    markWarmed(httpUrl.host());
+                    Log.d(TAG, "连接预热" + httpUrl.host() + "耗时: "
+                            + (SystemClock.elapsedRealtime() - start) + "ms，协议: " + response.protocol());
+                }
+
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    Log.w(TAG, "连接预热失败: " + httpUrl.host() + "，" + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 获取默认需要建立连接的地址：Replicate接口、其输出CDN和后端服务
+     */
+    public static String[] defaultConnectUrls(String replicateBaseUrl) {
+        return new String[]{replicateBaseUrl, REPLICATE_CDN_URL, ApiClient.getBaseUrl()};
+    }
+
+    /**
+     * 记录进程内第一个实际请求耗时的拦截器，预热请求本身不计入
+     */
+    static Interceptor firstRequestTracker() {
+        return chain -> {
+            Request request = chain.request();
+            ConnectionPrewarmer prewarmer;
+            synchronized (ConnectionPrewarmer.class) {
+                prewarmer = instance;
+            }
+            if (prewarmer == null || request.tag(ConnectionPrewarmer.class) != null
+                    || !prewarmer.claimFirstRequest()) {
+                return chain.proceed(request);
+            }
+
+            boolean warm = prewarmer.isWarmed(request.url().host());
+            long start = SystemClock.elapsedRealtime();
+            Response response = chain.proceed(request);
+            prewarmer.recordFirstRequest(request.url().host(), warm,
+                    SystemClock.elapsedRealtime() - start);
+            return response;
+        };
+    }
+
+    private static void addHost(Set<String> hosts, String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl != null) {
+            hosts.add(httpUrl.host());
+        }
+    }
+
+    private synchronized void markWarmed(String host) {
+        warmedHosts.add(host);
+    }
+
+    private synchronized boolean isWarmed(String host) {
+        return warmedHosts.contains(host);
+    }
+
+    private synchronized boolean claimFirstRequest() {
+        if (firstRequestRecorded) {
+            return false;
+        }
+        firstRequestRecorded = true;
+        return true;
+    }
+
+    private void recordFirstRequest(String host, boolean warm, long durationMs) {
+        Log.i(TAG, "首个请求" + host + (warm ? "（已预热）" : "（未预热）") + "耗时: " + durationMs + "ms");
+
+        SharedPreferences prefs = appContext.getSharedPreferences(METRICS_PREF_NAME, Context.MODE_PRIVATE);
+        String countKey = warm ? KEY_WARM_COUNT : KEY_COLD_COUNT;
+        prefs.edit()
+                .putLong(warm ? KEY_FIRST_REQUEST_WARM_MS : KEY_FIRST_REQUEST_COLD_MS, durationMs)
+                .putInt(countKey, prefs.getInt(countKey, 0) + 1)
+                .apply();
+    }
+}
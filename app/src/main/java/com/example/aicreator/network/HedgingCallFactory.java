@@ -0,0 +1,356 @@
+package com.example.aicreator.network;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.aicreator.utils.AppExecutors;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+/**
+ * 对冲请求工厂
+ * 接口通过@Headers(HEADER + ": 接口名")选择启用，只应用于幂等的读取请求。
+ * 请求超过该接口近期延迟的p95仍未返回时，在另一个连接上发送相同的请求，
+ * 先返回的响应胜出，另一个被取消；对冲次数受预算限制，最多约为请求数的10%。
+ * 两次尝试都通过enqueue交给共享调度器执行，受每主机并发数限制，等待期间不占用任何线程
+ */
+public class HedgingCallFactory implements Call.Factory {
+    private static final String TAG = "HedgingCallFactory";
+
+    /**
+     * 启用对冲的请求头，值为用于统计延迟的接口名
+     */
+    public static final String HEADER = "X-Hedge";
+
+    // 样本不足时使用的对冲延迟
+    private static final long DEFAULT_HEDGE_DELAY_MS = 1_000;
+    private static final long MIN_HEDGE_DELAY_MS = 50;
+    private static final int MIN_SAMPLES = 20;
+
+    // 每个请求积累的对冲预算和预算上限
+    private static final double BUDGET_PER_REQUEST = 0.1;
+    private static final double MAX_BUDGET = 10;
+
+    // 每个接口保留的延迟样本数
+    private static final int SAMPLE_WINDOW = 100;
+
+    // 所有客户端共享的统计信息和预算，只在持有stats锁时访问
+    private static final Map<String, EndpointStats> stats = new HashMap<>();
+    private static double budget = MAX_BUDGET;
+
+    private final OkHttpClient client;
+    private final OkHttpClient hedgeClient;
+
+    /**
+     * 对冲请求使用独立的连接池，不会与慢请求复用同一个HTTP/2连接，
+     * 但与原请求共享调度器
+     * @param client 发送请求的客户端
+     */
+    public HedgingCallFactory(OkHttpClient client) {
+        this.client = client;
+        this.hedgeClient = client.newBuilder()
+                .connectionPool(new ConnectionPool(2, 1, TimeUnit.MINUTES))
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Call newCall(@NonNull Request request) {
+        String endpoint = request.header(HEADER);
+        if (endpoint == null) {
+            return client.newCall(request);
+        }
+        return new HedgedCall(request, endpoint);
+    }
+
+    private static EndpointStats statsFor(String endpoint) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        if (endpointStats == null) {
+            endpointStats = new EndpointStats();
+            stats.put(endpoint, endpointStats);
+        }
+        return endpointStats;
+    }
+
+    /**
+     * 获取各接口的对冲率和尾延迟摘要
+     */
+    public static String getStatsSummary() {
+        StringBuilder summary = new StringBuilder("对冲请求:");
+        synchronized (stats) {
+            for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+                EndpointStats s = entry.getValue();
+                summary.append(String.format(Locale.ROOT,
+                        " [%s 请求%d 对冲率%.1f%% 对冲胜出%d p50=%dms p95=%dms p99=%dms]",
+                        entry.getKey(), s.requests, s.getHedgeRate() * 100, s.hedgeWins,
+                        s.percentile(0.50), s.percentile(0.95), s.percentile(0.99)));
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * 一次可对冲的请求，包含原请求和可能的对冲请求两次尝试，第一个响应胜出
+     */
+    private class HedgedCall implements Call {
+        private final Request originalRequest;
+        private final String endpoint;
+        private final Call primary;
+
+        // 以下状态只在持有this锁时访问
+        private Call hedge;
+        private Future<?> hedgeTimer;
+        private Callback callback;
+        private boolean executed;
+        private boolean canceled;
+        private boolean finished;
+        private int pending;
+        private IOException failure;
+        private long start;
+
+        HedgedCall(Request originalRequest, String endpoint) {
+            this.originalRequest = originalRequest;
+            this.endpoint = endpoint;
+            this.primary = client.newCall(originalRequest.newBuilder().removeHeader(HEADER).build());
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return originalRequest;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback responseCallback) {
+            long delay;
+            synchronized (stats) {
+                budget = Math.min(MAX_BUDGET, budget + BUDGET_PER_REQUEST);
+                delay = statsFor(endpoint).hedgeDelay();
+            }
+
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already Executed");
+                }
+                executed = true;
+                callback = responseCallback;
+                start = SystemClock.elapsedRealtime();
+                pending = 1;
+                try {
+                    hedgeTimer = AppExecutors.getInstance().scheduler()
+                            .schedule(() -> startHedge(delay), delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 应用退出时调度器已关闭，只发送原请求
+                    hedgeTimer = null;
+                }
+            }
+            primary.enqueue(new AttemptCallback(false));
+        }
+
+        @NonNull
+        @Override
+        public Response execute() throws IOException {
+            // 同步调用阻塞的是调用方线程，两次尝试仍在调度器上执行
+            BlockingCallback blocking = new BlockingCallback();
+            enqueue(blocking);
+            return blocking.await(this);
+        }
+
+        /**
+         * 原请求超过对冲延迟仍未返回，预算允许时发送对冲请求
+         */
+        private void startHedge(long delay) {
+            Call attempt;
+            synchronized (this) {
+                if (finished || canceled) {
+                    return;
+                }
+                synchronized (stats) {
+                    if (budget < 1) {
+                        return;
+                    }
+                    budget -= 1;
+                }
+                attempt = hedgeClient.newCall(primary.request());
+                hedge = attempt;
+                pending++;
+            }
+            Log.d(TAG, endpoint + "超过" + delay + "ms未返回，发送对冲请求");
+            attempt.enqueue(new AttemptCallback(true));
+        }
+
+        private void onAttemptFinished(Response result, IOException error, boolean fromHedge) {
+            Callback target = null;
+            Call loser = null;
+            Future<?> timer = null;
+            boolean hedged;
+            synchronized (this) {
+                if (!finished) {
+                    pending--;
+                    if (result == null && failure == null) {
+                        failure = error;
+                    }
+                    if (result != null || pending == 0) {
+                        finished = true;
+                        target = callback;
+                        loser = fromHedge ? primary : hedge;
+                        timer = hedgeTimer;
+                    }
+                }
+                hedged = hedge != null;
+            }
+            if (target == null) {
+                // 另一个尝试已经胜出
+                if (result != null) {
+                    result.close();
+                }
+                return;
+            }
+
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            if (loser != null) {
+                loser.cancel();
+            }
+            synchronized (stats) {
+                statsFor(endpoint).record(SystemClock.elapsedRealtime() - start, hedged,
+                        result != null && fromHedge);
+            }
+
+            if (result != null) {
+                try {
+                    target.onResponse(this, result);
+                } catch (IOException e) {
+                    target.onFailure(this, e);
+                }
+            } else {
+                target.onFailure(this, failure != null ? failure : new IOException("请求失败"));
+            }
+        }
+
+        @Override
+        public void cancel() {
+            Call attempt;
+            Future<?> timer;
+            synchronized (this) {
+                canceled = true;
+                attempt = hedge;
+                timer = hedgeTimer;
+            }
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            primary.cancel();
+            if (attempt != null) {
+                attempt.cancel();
+            }
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return primary.timeout();
+        }
+
+        @NonNull
+        @Override
+        public Call clone() {
+            return new HedgedCall(originalRequest, endpoint);
+        }
+
+        /**
+         * 单次尝试的回调
+         */
+        private class AttemptCallback implements Callback {
+            private final boolean fromHedge;
+
+            AttemptCallback(boolean fromHedge) {
+                this.fromHedge = fromHedge;
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                onAttemptFinished(response, null, fromHedge);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                onAttemptFinished(null, e, fromHedge);
+            }
+        }
+    }
+
+    /**
+     * 单个接口的延迟样本和对冲统计，只在持有stats锁时访问
+     */
+    private static class EndpointStats {
+        private final long[] samples = new long[SAMPLE_WINDOW];
+        private int sampleCount;
+        private int nextSample;
+        private long requests;
+        private long hedges;
+        private long hedgeWins;
+
+        long hedgeDelay() {
+            if (sampleCount < MIN_SAMPLES) {
+                return DEFAULT_HEDGE_DELAY_MS;
+            }
+            return Math.max(MIN_HEDGE_DELAY_MS, percentile(0.95));
+        }
+
+        void record(long latencyMs, boolean hedged, boolean hedgeWon) {
+            samples[nextSample] = latencyMs;
+            nextSample = (nextSample + 1) % SAMPLE_WINDOW;
+            sampleCount = Math.min(sampleCount + 1, SAMPLE_WINDOW);
+            requests++;
+            if (hedged) {
+                hedges++;
+            }
+            if (hedgeWon) {
+                hedgeWins++;
+            }
+        }
+
+        long percentile(double p) {
+            if (sampleCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p * sampleCount) - 1;
+            return sorted[Math.max(0, Math.min(index, sampleCount - 1))];
+        }
+
+        double getHedgeRate() {
+            return requests == 0 ? 0 : hedges / (double) requests;
+        }
+    }
+}
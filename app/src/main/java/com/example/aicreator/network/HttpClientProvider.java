@@ -0,0 +1,127 @@
+package com.example.aicreator.network;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * HTTP传输层提供者
+ * 维护进程内唯一的OkHttpClient，所有Retrofit实例和文件下载都通过newBuilder()派生，
+ * 从而共享同一个连接池、调度器和线程池
+ */
+public class HttpClientProvider {
+    // 调度器并发限制
+    private static final int MAX_REQUESTS = 32;
+    private static final int MAX_REQUESTS_PER_HOST = 6;
+
+    // 连接池配置
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_DURATION_MINUTES = 5;
+
+    // 超时设置（秒）
+    private static final long DEFAULT_TIMEOUT_SECONDS = 30;
+    private static final long DOWNLOAD_READ_TIMEOUT_SECONDS = 60;
+
+    private static OkHttpClient sharedClient;
+    private static CachingDns dns;
+    private static OkHttpClient downloadClient;
+
+    /**
+     * 获取共享的基础OkHttpClient
+     * @return OkHttpClient实例
+     */
+    public static synchronized OkHttpClient getSharedClient() {
+        if (sharedClient == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(MAX_REQUESTS);
+            dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+            // 在调度器的线程池中后台刷新DNS缓存
+            dns = new CachingDns(Dns.SYSTEM, dispatcher.executorService());
+
+            sharedClient = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .dns(dns)
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS,
+                            KEEP_ALIVE_DURATION_MINUTES, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .connectTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .readTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .writeTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .addInterceptor(ConnectionPrewarmer.firstRequestTracker())
+                    // 熔断和重试在最外层，派生客户端添加的拦截器都在它之后执行
+                    .addInterceptor(new ResilienceInterceptor())
+                    .build();
+        }
+        return sharedClient;
+    }
+
+    /**
+     * 创建用于API调用的OkHttpClient构建器（带日志拦截器）
+     * @return 基于共享客户端派生的构建器
+     */
+    public static OkHttpClient.Builder newApiClientBuilder() {
+        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+
+        // 文件上传只记录请求头，记录请求体会把整个文件复制到内存
+        HttpLoggingInterceptor headersInterceptor = new HttpLoggingInterceptor();
+        headersInterceptor.setLevel(HttpLoggingInterceptor.Level.HEADERS);
+
+        return getSharedClient().newBuilder()
+                .addInterceptor(chain -> chain.request().body() instanceof MultipartBody
+                        ? headersInterceptor.intercept(chain)
+                        : loggingInterceptor.intercept(chain));
+    }
+
+    /**
+     * 获取用于下载媒体文件的OkHttpClient
+     * 不带日志拦截器，避免记录二进制响应体
+     * @return OkHttpClient实例
+     */
+    public static synchronized OkHttpClient getDownloadClient() {
+        if (downloadClient == null) {
+            downloadClient = getSharedClient().newBuilder()
+                    .readTimeout(DOWNLOAD_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .build();
+        }
+        return downloadClient;
+    }
+
+    /**
+     * 获取所有客户端共享的DNS缓存
+     * @return DNS解析器
+     */
+    public static synchronized CachingDns getDns() {
+        getSharedClient();
+        return dns;
+    }
+
+    /**
+     * 获取所有派生客户端正在执行的请求数
+     */
+    public static int getRunningCallsCount() {
+        return getSharedClient().dispatcher().runningCallsCount();
+    }
+
+    /**
+     * 获取所有派生客户端正在排队的请求数
+     */
+    public static int getQueuedCallsCount() {
+        return getSharedClient().dispatcher().queuedCallsCount();
+    }
+
+    /**
+     * 获取连接池中的连接数
+     */
+    public static int getConnectionCount() {
+        return getSharedClient().connectionPool().connectionCount();
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.aicreator.network;
+
+import com.example.aicreator.models.GeneratedImage;
+import com.example.aicreator.models.ReplicateResponse;
+import com.example.aicreator.models.User;
+import com.example.aicreator.models.VideoGenerationResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 网络模型的流式JSON适配器
+ * 按字段名逐个读取，不经过反射；客户端不使用的字段（如Replicate的input和logs）直接跳过，
+ * 不会构建Map或数组。字段名与反射解析时一致，日期仍使用Gson默认的日期格式
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    private static Gson gson;
+
+    /**
+     * 获取注册了模型适配器的共享Gson实例
+     * @return Gson实例
+     */
+    public static synchronized Gson gson() {
+        if (gson == null) {
+            gson = new GsonBuilder()
+                    .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+                    .create();
+        }
+        return gson;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == ReplicateResponse.class) {
+            return (TypeAdapter<T>) new ReplicateResponseAdapter().nullSafe();
+        }
+        if (rawType == VideoGenerationResponse.class) {
+            return (TypeAdapter<T>) new VideoGenerationResponseAdapter().nullSafe();
+        }
+        if (rawType == GeneratedImage.class) {
+            return (TypeAdapter<T>) new GeneratedImageAdapter(gson.getAdapter(Date.class)).nullSafe();
+        }
+        if (rawType == User.class) {
+            return (TypeAdapter<T>) new UserAdapter(gson.getAdapter(Date.class)).nullSafe();
+        }
+        return null;
+    }
+
+    /**
+     * Replicate预测结果适配器
+     * metrics只读取predict_time，input和logs不解析
+     */
+    private static class ReplicateResponseAdapter extends TypeAdapter<ReplicateResponse> {
+        @Override
+        public void write(JsonWriter out, ReplicateResponse value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.getId());
+            out.name("version").value(value.getVersion());
+            out.name("status").value(value.getStatus());
+            if (value.getOutput() != null) {
+                out.name("output").beginArray();
+                for (String url : value.getOutput()) {
+                    out.value(url);
+                }
+                out.endArray();
+            }
+            out.name("error").value(value.getError());
+            out.name("created_at").value(value.getCreatedAt());
+            out.name("started_at").value(value.getStartedAt());
+            out.name("completed_at").value(value.getCompletedAt());
+            if (value.getPredictTimeSeconds() >= 0) {
+                out.name("metrics").beginObject();
+                out.name("predict_time").value(value.getPredictTimeSeconds());
+                out.endObject();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ReplicateResponse read(JsonReader in) throws IOException {
+            ReplicateResponse response = new ReplicateResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        response.setId(nextString(in));
+                        break;
+                    case "version":
+                        response.setVersion(nextString(in));
+                        break;
+                    case "status":
+                        response.setStatus(nextString(in));
+                        break;
+                    case "output":
+                        response.setOutput(readOutput(in));
+                        break;
+                    case "error":
+                        response.setError(nextErrorString(in));
+                        break;
+                    case "created_at":
+                        response.setCreatedAt(nextString(in));
+                        break;
+                    case "started_at":
+                        response.setStartedAt(nextString(in));
+                        break;
+                    case "completed_at":
+                        response.setCompletedAt(nextString(in));
+                        break;
+                    case "metrics":
+                        response.setPredictTimeSeconds(readPredictTime(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        /**
+         * 读取输出，部分模型返回单个URL而不是数组
+         */
+        private static List<String> readOutput(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (token == JsonToken.STRING) {
+                return Collections.singletonList(in.nextString());
+            }
+            if (token != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                return null;
+            }
+            List<String> output = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.STRING) {
+                    output.add(in.nextString());
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endArray();
+            return output;
+        }
+
+        /**
+         * 读取错误信息，非字符串形式的错误只记录为unknown error
+         */
+        private static String nextErrorString(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.NULL) {
+                return nextString(in);
+            }
+            in.skipValue();
+            return "unknown error";
+        }
+
+        private static double readPredictTime(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                return -1;
+            }
+            double predictTime = -1;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("predict_time".equals(in.nextName()) && in.peek() == JsonToken.NUMBER) {
+                    predictTime = in.nextDouble();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return predictTime;
+        }
+    }
+
+    /**
+     * 视频生成响应适配器，只读取video_url
+     */
+    private static class VideoGenerationResponseAdapter extends TypeAdapter<VideoGenerationResponse> {
+        @Override
+        public void write(JsonWriter out, VideoGenerationResponse value) throws IOException {
+            out.beginObject();
+            out.name("video_url").value(value.getVideoUrl());
+            out.endObject();
+        }
+
+        @Override
+        public VideoGenerationResponse read(JsonReader in) throws IOException {
+            VideoGenerationResponse response = new VideoGenerationResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("video_url".equals(in.nextName())) {
+                    response.setVideoUrl(nextString(in));
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return response;
+        }
+    }
+
+    /**
+     * 生成图像适配器
+     */
+    private static class GeneratedImageAdapter extends TypeAdapter<GeneratedImage> {
+        private final TypeAdapter<Date> dateAdapter;
+
+        GeneratedImageAdapter(TypeAdapter<Date> dateAdapter) {
+            this.dateAdapter = dateAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, GeneratedImage value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.getId());
+            out.name("userId").value(value.getUserId());
+            out.name("prompt").value(value.getPrompt());
+            out.name("imageUrl").value(value.getImageUrl());
+            out.name("createdAt");
+            dateAdapter.write(out, value.getCreatedAt());
+            out.name("isFavorite").value(value.isFavorite());
+            out.name("localPath").value(value.getLocalPath());
+            out.endObject();
+        }
+
+        @Override
+        public GeneratedImage read(JsonReader in) throws IOException {
+            GeneratedImage image = new GeneratedImage();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        image.setId(nextInt(in));
+                        break;
+                    case "userId":
+                        image.setUserId(nextInt(in));
+                        break;
+                    case "prompt":
+                        image.setPrompt(nextString(in));
+                        break;
+                    case "imageUrl":
+                        image.setImageUrl(nextString(in));
+                        break;
+                    case "createdAt":
+                        image.setCreatedAt(dateAdapter.read(in));
+                        break;
+                    case "isFavorite":
+                        image.setFavorite(nextBoolean(in));
+                        break;
+                    case "localPath":
+                        image.setLocalPath(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return image;
+        }
+    }
+
+    /**
+     * 用户适配器
+     */
+    private static class UserAdapter extends TypeAdapter<User> {
+        private final TypeAdapter<Date> dateAdapter;
+
+        UserAdapter(TypeAdapter<Date> dateAdapter) {
+            this.dateAdapter = dateAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, User value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.getId());
+            out.name("username").value(value.getUsername());
+            out.name("password").value(value.getPassword());
+            out.name("email").value(value.getEmail());
+            out.name("createdAt");
+            dateAdapter.write(out, value.getCreatedAt());
+            out.name("lastLogin");
+            dateAdapter.write(out, value.getLastLogin());
+            out.endObject();
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            User user = new User();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        user.setId(nextInt(in));
+                        break;
+                    case "username":
+                        user.setUsername(nextString(in));
+                        break;
+                    case "password":
+                        user.setPassword(nextString(in));
+                        break;
+                    case "email":
+                        user.setEmail(nextString(in));
+                        break;
+                    case "createdAt":
+                        user.setCreatedAt(dateAdapter.read(in));
+                        break;
+                    case "lastLogin":
+                        user.setLastLogin(dateAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return user;
+        }
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static int nextInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    private static boolean nextBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        return in.nextBoolean();
+    }
+}
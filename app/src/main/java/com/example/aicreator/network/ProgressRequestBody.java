@@ -0,0 +1,156 @@
+package com.example.aicreator.network;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+/**
+ * 上传进度请求体
+ * 包装其他请求体，按固定大小分块写出并统计已发送字节数，按最小间隔回调进度，
+ * 超过空闲时间仍无法写出数据时判定为上传停滞并中止
+ */
+public class ProgressRequestBody extends RequestBody {
+
+    // 每次写入连接的最大字节数，决定进度的粒度
+    private static final long CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * 上传进度回调接口，在网络线程调用
+     */
+    public interface Listener {
+        /**
+         * @param bytesWritten 已发送字节数
+         * @param contentLength 总字节数，未知时为-1
+         */
+        void onProgress(long bytesWritten, long contentLength);
+    }
+
+    /**
+     * 上传停滞异常
+     */
+    public static class StalledException extends InterruptedIOException {
+        private final long bytesWritten;
+
+        public StalledException(long idleTimeoutMs, long bytesWritten) {
+            super("上传停滞超过" + idleTimeoutMs + "ms，已发送" + bytesWritten + "字节");
+            this.bytesWritten = bytesWritten;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+    }
+
+    private final RequestBody delegate;
+    private final long idleTimeoutMs;
+    private final long progressIntervalMs;
+    private final Listener listener;
+
+    private volatile long bytesWritten;
+
+    /**
+     * 创建上传进度请求体
+     * @param delegate 实际的请求体
+     * @param idleTimeoutMs 空闲超时（毫秒），单次写入阻塞超过该时间即判定为停滞
+     * @param progressIntervalMs 进度回调的最小间隔（毫秒）
+     * @param listener 进度回调
+     */
+    public ProgressRequestBody(RequestBody delegate, long idleTimeoutMs, long progressIntervalMs,
+                               Listener listener) {
+        this.delegate = delegate;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.progressIntervalMs = progressIntervalMs;
+        this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        long contentLength = contentLength();
+        bytesWritten = 0;
+        listener.onProgress(0, contentLength);
+
+        // 用空闲超时替换本次写入的超时，结束后恢复
+        Timeout timeout = sink.timeout();
+        long previousTimeoutNanos = timeout.timeoutNanos();
+        timeout.timeout(idleTimeoutMs, TimeUnit.MILLISECONDS);
+
+        CountingSink countingSink = new CountingSink(sink, contentLength);
+        BufferedSink bufferedSink = Okio.buffer(countingSink);
+        try {
+            delegate.writeTo(bufferedSink);
+            bufferedSink.emit();
+        } catch (InterruptedIOException e) {
+            // 套接字超时为SocketTimeoutException，其他Sink的超时为InterruptedIOException；
+            // 线程被中断时同样抛出InterruptedIOException，但会保留中断标志，不算停滞
+            if (e instanceof SocketTimeoutException || !Thread.currentThread().isInterrupted()) {
+                throw new StalledException(idleTimeoutMs, bytesWritten);
+            }
+            throw e;
+        } finally {
+            timeout.timeout(previousTimeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        listener.onProgress(bytesWritten, contentLength);
+    }
+
+    /**
+     * 获取最近一次发送的字节数
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * 分块写出并统计字节数的Sink
+     */
+    private class CountingSink extends ForwardingSink {
+        private final long contentLength;
+        private long lastReportTime;
+
+        CountingSink(Sink delegate, long contentLength) {
+            super(delegate);
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public void write(@NonNull Buffer source, long byteCount) throws IOException {
+            long remaining = byteCount;
+            while (remaining > 0) {
+                long chunk = Math.min(CHUNK_SIZE, remaining);
+                super.write(source, chunk);
+                remaining -= chunk;
+                bytesWritten += chunk;
+
+                long now = SystemClock.elapsedRealtime();
+                if (now - lastReportTime >= progressIntervalMs) {
+                    lastReportTime = now;
+                    listener.onProgress(bytesWritten, contentLength);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.aicreator.network;
+
+import androidx.annotation.NonNull;
+
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+/**
+ * 限流请求工厂
+ * 请求先在服务商的限流器中按优先级排队，获得令牌后才交给OkHttp调度器，
+ * 因此排队既不占用调度器线程，也不占用每主机并发名额，高优先级的生成请求不会被排在后台轮询之后；
+ * 收到429且等待时间不长时，由限流器在Retry-After之后重新放行，
+ * 而不是把错误直接交给界面让用户手动重试。
+ * 请求优先级取自Retrofit的@Tag参数（PriorityExecutor.Priority），
+ * 没有指定时GET请求（轮询、同步）视为低优先级，其余视为交互式的高优先级
+ */
+public class RateLimitedCallFactory implements Call.Factory {
+
+    // 429后自动重试的次数和可接受的最长等待
+    private static final int MAX_RETRIES = 2;
+    private static final long MAX_RETRY_WAIT_MS = 30_000;
+
+    private final OkHttpClient client;
+    private final RateLimiter limiter;
+
+    /**
+     * @param client 发送请求的客户端
+     * @param limiter 服务商的限流器
+     */
+    public RateLimitedCallFactory(OkHttpClient client, RateLimiter limiter) {
+        this.client = client;
+        this.limiter = limiter;
+    }
+
+    @NonNull
+    @Override
+    public Call newCall(@NonNull Request request) {
+        return new RateLimitedCall(request);
+    }
+
+    private static PriorityExecutor.Priority priorityOf(Request request) {
+        PriorityExecutor.Priority priority = request.tag(PriorityExecutor.Priority.class);
+        if (priority != null) {
+            return priority;
+        }
+        return "GET".equals(request.method())
+                ? PriorityExecutor.Priority.LOW : PriorityExecutor.Priority.HIGH;
+    }
+
+    /**
+     * 请求体只能写出一次时不能重试
+     */
+    private static boolean isRetryable(Request request) {
+        return request.body() == null || !request.body().isOneShot();
+    }
+
+    /**
+     * 经过限流器放行的请求，429重试时重新排队
+     */
+    private class RateLimitedCall implements Call {
+        private final Request request;
+        private final PriorityExecutor.Priority priority;
+
+        // 以下状态只在持有this锁时访问
+        private Call attempt;
+        private Runnable admission;
+        private Callback callback;
+        private boolean executed;
+        private boolean canceled;
+        private int retries;
+
+        RateLimitedCall(Request request) {
+            this.request = request;
+            this.priority = priorityOf(request);
+            this.attempt = client.newCall(request);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback responseCallback) {
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already Executed");
+                }
+                executed = true;
+                callback = responseCallback;
+            }
+            submitAttempt();
+        }
+
+        @NonNull
+        @Override
+        public Response execute() throws IOException {
+            // 同步调用阻塞的是调用方线程，排队和请求本身都不占用调度器线程
+            BlockingCallback blocking = new BlockingCallback();
+            enqueue(blocking);
+            return blocking.await(this);
+        }
+
+        /**
+         * 把当前尝试交给限流器，获得令牌后再交给调度器
+         */
+        private void submitAttempt() {
+            Runnable task = this::sendAttempt;
+            synchronized (this) {
+                admission = task;
+            }
+            limiter.submit(priority, task);
+        }
+
+        private void sendAttempt() {
+            Call call;
+            boolean wasCanceled;
+            synchronized (this) {
+                admission = null;
+                call = attempt;
+                wasCanceled = canceled;
+            }
+            if (wasCanceled) {
+                callback.onFailure(this, new IOException("Canceled"));
+                return;
+            }
+            call.enqueue(new Callback() {
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                    long retryAfter = limiter.onResponse(response);
+                    if (response.code() == 429 && retryAfter <= MAX_RETRY_WAIT_MS
+                            && isRetryable(request) && prepareRetry()) {
+                        // 限流器已暂停到Retry-After指定的时间，重新排队不会立即发送
+                        response.close();
+                        submitAttempt();
+                        return;
+                    }
+                    callback.onResponse(RateLimitedCall.this, response);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    callback.onFailure(RateLimitedCall.this, e);
+                }
+            });
+        }
+
+        private synchronized boolean prepareRetry() {
+            if (canceled || retries >= MAX_RETRIES) {
+                return false;
+            }
+            retries++;
+            attempt = client.newCall(request);
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            Call call;
+            Runnable queued;
+            synchronized (this) {
+                if (canceled) {
+                    return;
+                }
+                canceled = true;
+                call = attempt;
+                queued = admission;
+            }
+            call.cancel();
+            // 仍在限流器中排队时直接移除，不再占用令牌
+            if (queued != null && limiter.remove(queued)) {
+                callback.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public synchronized Timeout timeout() {
+            return attempt.timeout();
+        }
+
+        @NonNull
+        @Override
+        public Call clone() {
+            return new RateLimitedCall(request);
+        }
+    }
+}
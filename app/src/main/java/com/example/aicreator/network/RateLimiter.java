@@ -0,0 +1,299 @@
+package com.example.aicreator.network;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Response;
+
+/**
+ * 单个服务商的客户端限流器
+ * 令牌桶控制请求速率，请求在交给OkHttp调度器之前按优先级排队（交互式生成优先于后台轮询和同步），
+ * 并根据服务器返回的Retry-After和X-RateLimit-*响应头暂停发送
+ */
+public class RateLimiter {
+    private static final String TAG = "RateLimiter";
+
+    // 收到429但没有Retry-After时的默认暂停时间
+    private static final long DEFAULT_RETRY_AFTER_MS = 5_000;
+
+    // 响应头要求的暂停时间上限，避免异常的头部让请求长时间排队
+    private static final long MAX_PAUSE_MS = 5 * 60 * 1000;
+
+    private final String name;
+    private final int capacity;
+    private final double tokensPerMs;
+
+    // 以下状态只在持有this锁时访问
+    private final PriorityQueue<PendingTask> pending = new PriorityQueue<>();
+    private Future<?> drainTimer;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    private long sequence;
+
+    // 统计信息，只在持有this锁时访问
+    private int peakQueueDepth;
+    private long acquiredCount;
+    private long totalWaitMs;
+    private long maxWaitMs;
+    private int throttledCount;
+
+    /**
+     * @param name 服务商名称，用于日志
+     * @param capacity 令牌桶容量（允许的突发请求数）
+     * @param requestsPerMinute 每分钟补充的令牌数
+     */
+    public RateLimiter(String name, int capacity, int requestsPerMinute) {
+        this.name = name;
+        this.capacity = capacity;
+        this.tokensPerMs = requestsPerMinute / 60_000.0;
+        this.tokens = capacity;
+        this.lastRefill = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * 提交一个需要令牌的任务，有可用令牌且不处于暂停期时立即在当前线程执行，
+     * 否则按优先级排队，等到令牌补充后在定时线程上执行；排队期间不占用任何线程。
+     * 任务应尽快返回，通常只是把请求交给OkHttp调度器
+     * @param priority 请求优先级
+     * @param task 获得令牌后执行的任务
+     */
+    public void submit(PriorityExecutor.Priority priority, Runnable task) {
+        synchronized (this) {
+            pending.add(new PendingTask(priority, sequence++, task, SystemClock.elapsedRealtime()));
+            peakQueueDepth = Math.max(peakQueueDepth, pending.size());
+        }
+        drain();
+    }
+
+    /**
+     * 移除尚未获得令牌的任务
+     * @param task 提交时的任务
+     * @return 任务仍在排队并被移除时返回true，已经执行或正在执行时返回false
+     */
+    public synchronized boolean remove(Runnable task) {
+        for (Iterator<PendingTask> iterator = pending.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().task == task) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按优先级放行排队的任务，令牌不足时安排在令牌补充后再次放行
+     */
+    private void drain() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            refill(now);
+            while (!pending.isEmpty() && pausedUntil <= now && tokens >= 1) {
+                tokens -= 1;
+                PendingTask task = pending.poll();
+                long waited = now - task.submittedAt;
+                acquiredCount++;
+                totalWaitMs += waited;
+                maxWaitMs = Math.max(maxWaitMs, waited);
+                ready.add(task.task);
+            }
+            if (!pending.isEmpty() && drainTimer == null) {
+                long pause = pausedUntil - now;
+                long delay = pause > 0 ? pause : (long) Math.ceil((1 - tokens) / tokensPerMs);
+                try {
+                    drainTimer = AppExecutors.getInstance().scheduler()
+                            .schedule(this::onDrainTimer, Math.max(1, delay), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 应用退出时调度器已关闭，直接放行剩余任务，避免调用方永远等不到结果
+                    while (!pending.isEmpty()) {
+                        ready.add(pending.poll().task);
+                    }
+                }
+            }
+        }
+        for (Runnable task : ready) {
+            task.run();
+        }
+    }
+
+    private void onDrainTimer() {
+        synchronized (this) {
+            drainTimer = null;
+        }
+        drain();
+    }
+
+    /**
+     * 根据响应头更新限流状态
+     * @param response 服务器响应
+     * @return 收到429时返回需要等待的时间（毫秒），否则返回0
+     */
+    public long onResponse(Response response) {
+        long now = SystemClock.elapsedRealtime();
+        if (response.code() == 429) {
+            long delay = parseRetryAfter(response);
+            if (delay < 0) {
+                delay = parseReset(response.header("X-RateLimit-Reset"));
+            }
+            if (delay < 0) {
+                delay = DEFAULT_RETRY_AFTER_MS;
+            }
+            delay = Math.min(delay, MAX_PAUSE_MS);
+            synchronized (this) {
+                throttledCount++;
+                tokens = 0;
+                pausedUntil = Math.max(pausedUntil, now + delay);
+            }
+            Log.w(TAG, name + "请求被限流，暂停" + delay + "ms");
+            return delay;
+        }
+
+        // 配额已用完时暂停到重置时间
+        String remaining = response.header("X-RateLimit-Remaining");
+        if (remaining != null && remaining.trim().equals("0")) {
+            long delay = parseReset(response.header("X-RateLimit-Reset"));
+            if (delay > 0) {
+                synchronized (this) {
+                    tokens = 0;
+                    pausedUntil = Math.max(pausedUntil, now + Math.min(delay, MAX_PAUSE_MS));
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMs);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * 解析Retry-After，支持秒数和HTTP日期两种格式
+     * @return 等待时间（毫秒），无法解析时返回-1
+     */
+    static long parseRetryAfter(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, (long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate("Retry-After");
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    /**
+     * 解析X-RateLimit-Reset，各服务商分别使用剩余秒数、Unix秒或Unix毫秒
+     * @return 等待时间（毫秒），无法解析时返回-1
+     */
+    static long parseReset(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            double reset = Double.parseDouble(value.trim());
+            if (reset > 1e12) {
+                return Math.max(0, (long) reset - System.currentTimeMillis());
+            }
+            if (reset > 1e9) {
+                return Math.max(0, (long) (reset * 1000) - System.currentTimeMillis());
+            }
+            return Math.max(0, (long) (reset * 1000));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 获取服务商名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取当前等待令牌的任务数
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * 获取等待任务数的峰值
+     */
+    public synchronized int getPeakQueueDepth() {
+        return peakQueueDepth;
+    }
+
+    /**
+     * 获取平均等待时间（毫秒）
+     */
+    public synchronized double getAverageWaitMillis() {
+        return acquiredCount == 0 ? 0 : totalWaitMs / (double) acquiredCount;
+    }
+
+    /**
+     * 获取最长等待时间（毫秒）
+     */
+    public synchronized long getMaxWaitMillis() {
+        return maxWaitMs;
+    }
+
+    /**
+     * 获取收到429的次数
+     */
+    public synchronized int getThrottledCount() {
+        return throttledCount;
+    }
+
+    /**
+     * 获取统计信息摘要
+     */
+    public synchronized String getStatsSummary() {
+        return String.format(Locale.ROOT,
+                "%s: 排队%d(峰值%d) 放行%d 平均等待%.1fms 最长等待%dms 被限流%d",
+                name, pending.size(), peakQueueDepth, acquiredCount,
+                getAverageWaitMillis(), maxWaitMs, throttledCount);
+    }
+
+    /**
+     * 等待令牌的任务，优先级相同时先到先得
+     */
+    private static class PendingTask implements Comparable<PendingTask> {
+        final PriorityExecutor.Priority priority;
+        final long sequence;
+        final Runnable task;
+        final long submittedAt;
+
+        PendingTask(PriorityExecutor.Priority priority, long sequence, Runnable task, long submittedAt) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public int compareTo(PendingTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.aicreator.network;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.aicreator.services.PredictionTracker;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 容错拦截器
+ * 每个请求先经过目标主机的熔断器，断开时立即失败；幂等请求（GET、HEAD）在网络错误
+ * 或502/503/504时按带随机抖动的指数退避重试；按接口设置超时预算，
+ * 重试不会超出该请求的总预算
+ */
+public class ResilienceInterceptor implements Interceptor {
+    private static final String TAG = "ResilienceInterceptor";
+
+    /**
+     * 调用方自行重试的请求设置该请求头，拦截器不再重试，发送前移除
+     */
+    public static final String NO_RETRY_HEADER = "X-No-Retry";
+
+    // 幂等请求的最大重试次数
+    private static final int MAX_RETRIES = 2;
+
+    // 退避时间
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 4_000;
+
+    private final Random random = new Random();
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean idempotent = isIdempotent(request);
+        if (request.header(NO_RETRY_HEADER) != null) {
+            request = request.newBuilder().removeHeader(NO_RETRY_HEADER).build();
+            idempotent = false;
+        }
+        String host = request.url().host();
+        CircuitBreaker breaker = CircuitBreaker.forHost(host);
+        Budget budget = budgetFor(request);
+        if (budget != null) {
+            chain = chain.withConnectTimeout(budget.connectMs, TimeUnit.MILLISECONDS);
+            if (budget.readMs > 0) {
+                chain = chain.withReadTimeout(budget.readMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        long deadline = budget != null ? SystemClock.elapsedRealtime() + budget.totalMs : Long.MAX_VALUE;
+
+        int attempt = 0;
+        while (true) {
+            if (!breaker.allowRequest()) {
+                throw new CircuitBreaker.CircuitOpenException(host);
+            }
+
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (chain.call().isCanceled() || e instanceof ProgressRequestBody.StalledException) {
+                    breaker.onAbandoned();
+                    throw e;
+                }
+                breaker.onFailure();
+                long backoff = backoff(attempt);
+                if (!idempotent || attempt >= MAX_RETRIES
+                        || SystemClock.elapsedRealtime() + backoff >= deadline) {
+                    throw e;
+                }
+                Log.w(TAG, "请求失败，" + backoff + "ms后重试: " + request.url().encodedPath()
+                        + "，" + e.getMessage());
+                sleep(backoff);
+                attempt++;
+                continue;
+            }
+
+            if (!isServerError(response.code())) {
+                breaker.onSuccess();
+                return response;
+            }
+            breaker.onFailure();
+            long backoff = backoff(attempt);
+            if (!idempotent || !isRetryableStatus(response.code()) || attempt >= MAX_RETRIES
+                    || SystemClock.elapsedRealtime() + backoff >= deadline) {
+                return response;
+            }
+            Log.w(TAG, "服务器错误" + response.code() + "，" + backoff + "ms后重试: "
+                    + request.url().encodedPath());
+            response.close();
+            sleep(backoff);
+            attempt++;
+        }
+    }
+
+    /**
+     * 按接口确定超时预算，返回null时使用客户端的默认超时
+     */
+    private static Budget budgetFor(Request request) {
+        String path = request.url().encodedPath();
+        String method = request.method();
+        if (path.startsWith("/v1/predictions")) {
+            if ("GET".equals(method)) {
+                // 状态轮询很快返回，慢了不如下一次轮询
+                return new Budget(10_000, 10_000, 25_000);
+            }
+            // 创建预测可能带Prefer: wait，需要留出同步等待的时间
+            int readMs = (PredictionTracker.SYNC_WAIT_SECONDS + 10) * 1000;
+            return new Budget(10_000, readMs, readMs + 10_000);
+        }
+        if (path.endsWith("/videos/generate")) {
+            // 服务器在返回前完成视频生成
+            return new Budget(10_000, 120_000, 150_000);
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            // 读取超时保持客户端的设置，下载客户端的读取超时更长
+            return new Budget(10_000, 0, 60_000);
+        }
+        return null;
+    }
+
+    private static boolean isIdempotent(Request request) {
+        String method = request.method();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static boolean isServerError(int code) {
+        return code >= 500;
+    }
+
+    private static boolean isRetryableStatus(int code) {
+        return code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * 带随机抖动的指数退避，在上限的一半到上限之间取值
+     */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << attempt);
+        synchronized (random) {
+            return ceiling / 2 + (long) (random.nextDouble() * ceiling / 2);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("重试等待时被中断");
+        }
+    }
+
+    /**
+     * 单个接口的超时预算（毫秒），readMs为0时不修改读取超时
+     */
+    private static class Budget {
+        final int connectMs;
+        final int readMs;
+        final long totalMs;
+
+        Budget(int connectMs, int readMs, long totalMs) {
+            this.connectMs = connectMs;
+            this.readMs = readMs;
+            this.totalMs = totalMs;
+        }
+    }
+}
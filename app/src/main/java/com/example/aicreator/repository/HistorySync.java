@@ -0,0 +1,464 @@
+package com.example.aicreator.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.dao.GeneratedImageDao;
+import com.example.aicreator.database.dao.PendingMutationDao;
+import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.entity.PendingMutationEntity;
+import com.example.aicreator.models.GeneratedImage;
+import com.example.aicreator.models.ImageChangeSet;
+import com.example.aicreator.network.ApiClient;
+import com.example.aicreator.network.ApiService;
+import com.example.aicreator.network.ModelTypeAdapterFactory;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import retrofit2.Response;
+
+/**
+ * 历史记录增量同步
+ * 按保存的游标只拉取服务器上自上次同步以来变化的图像（包括删除记录），
+ * 每页在一个事务中写入generated_images；登录时和之后每隔一段时间执行一次。
+ * 因本地有未发送的修改而跳过的变更会被记录，发件箱发送完这些修改后从跳过处重新拉取
+ */
+public class HistorySync {
+    private static final String TAG = "HistorySync";
+
+    // 每页拉取的变更数量
+    private static final int PAGE_SIZE = 200;
+
+    // 定期同步的间隔
+    private static final long SYNC_INTERVAL_MS = 15 * 60 * 1000;
+
+    // 同步状态和耗时记录
+    private static final String STATE_PREF_NAME = "sync_state";
+    private static final String KEY_CURSOR_PREFIX = "image_cursor_";
+    private static final String KEY_REPLAY_CURSOR_PREFIX = "image_replay_cursor_";
+    private static final String KEY_DEFERRED_IDS_PREFIX = "image_deferred_ids_";
+    private static final String METRICS_PREF_NAME = "sync_metrics";
+    private static final String KEY_LAST_FULL_BYTES = "last_full_bytes";
+    private static final String KEY_LAST_FULL_MS = "last_full_ms";
+    private static final String KEY_LAST_DELTA_BYTES = "last_delta_bytes";
+    private static final String KEY_LAST_DELTA_MS = "last_delta_ms";
+
+    // 服务器无法从该游标继续（例如变更记录已清理）时返回
+    private static final int HTTP_GONE = 410;
+
+    // 以本地为准、同步时需要跳过的修改类型
+    private static final List<String> IMAGE_MUTATION_TYPES = Arrays.asList(
+            PendingMutationEntity.TYPE_IMAGE_DELETE, PendingMutationEntity.TYPE_IMAGE_FAVORITE);
+
+    private static HistorySync instance;
+
+    private final Context appContext;
+    private final AppDatabase database;
+    private final GeneratedImageDao imageDao;
+    private final PendingMutationDao mutationDao;
+    private final ApiService apiService;
+    private final PriorityExecutor networkExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final Gson gson = ModelTypeAdapterFactory.gson();
+
+    // 以下状态只在持有this锁时访问，键为正在同步的用户，值为等待该次同步结果的回调
+    private final Map<Integer, List<SingleFlight.Completion<Boolean>>> runningUsers = new HashMap<>();
+    private ScheduledFuture<?> periodicSync;
+    private int scheduledUserId;
+
+    private HistorySync(Context context) {
+        appContext = context;
+        database = AppDatabase.getInstance(context);
+        imageDao = database.generatedImageDao();
+        mutationDao = database.pendingMutationDao();
+        apiService = ApiClient.getApiService();
+        AppExecutors executors = AppExecutors.getInstance();
+        networkExecutor = executors.networkIO();
+        scheduler = executors.scheduler();
+        MutationOutbox.getInstance(context).addDrainListener(this::onOutboxDrained);
+    }
+
+    /**
+     * 获取HistorySync单例实例
+     */
+    public static synchronized HistorySync getInstance(Context context) {
+        if (instance == null) {
+            instance = new HistorySync(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 立即同步并开始定期同步，切换用户时替换之前的定期任务
+     * @param userId 用户ID
+     */
+    public synchronized void start(int userId) {
+        if (periodicSync != null) {
+            if (scheduledUserId == userId) {
+                requestSync(userId);
+                return;
+            }
+            periodicSync.cancel(false);
+        }
+        scheduledUserId = userId;
+        periodicSync = scheduler.scheduleWithFixedDelay(() -> requestSync(userId),
+                0, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定期同步（登出时调用）
+     */
+    public synchronized void stop() {
+        if (periodicSync != null) {
+            periodicSync.cancel(false);
+            periodicSync = null;
+        }
+    }
+
+    /**
+     * 请求同步一次，该用户的同步正在进行时忽略
+     * @param userId 用户ID
+     */
+    public void requestSync(int userId) {
+        requestSync(userId, null);
+    }
+
+    /**
+     * 请求同步一次并在完成后回调，该用户的同步正在进行时等待其结果
+     * @param userId 用户ID
+     * @param completion 完成回调，在网络线程调用，成功时传入true，可为null
+     */
+    public void requestSync(int userId, SingleFlight.Completion<Boolean> completion) {
+        synchronized (this) {
+            List<SingleFlight.Completion<Boolean>> waiters = runningUsers.get(userId);
+            if (waiters != null) {
+                if (completion != null) {
+                    waiters.add(completion);
+                }
+                return;
+            }
+            waiters = new ArrayList<>();
+            if (completion != null) {
+                waiters.add(completion);
+            }
+            runningUsers.put(userId, waiters);
+        }
+        networkExecutor.execute(PriorityExecutor.Priority.LOW, () -> {
+            boolean success = false;
+            try {
+                success = sync(userId);
+            } finally {
+                List<SingleFlight.Completion<Boolean>> waiters;
+                synchronized (this) {
+                    waiters = runningUsers.remove(userId);
+                }
+                for (SingleFlight.Completion<Boolean> waiter : waiters) {
+                    waiter.complete(success);
+                }
+            }
+        });
+    }
+
+    /**
+     * 发件箱发送完所有修改后，有跳过的变更时立即同步一次
+     */
+    private void onOutboxDrained() {
+        int userId;
+        synchronized (this) {
+            if (periodicSync == null) {
+                return;
+            }
+            userId = scheduledUserId;
+        }
+        if (appContext.getSharedPreferences(STATE_PREF_NAME, Context.MODE_PRIVATE)
+                .contains(KEY_REPLAY_CURSOR_PREFIX + userId)) {
+            requestSync(userId);
+        }
+    }
+
+    /**
+     * @return 是否同步成功
+     */
+    private boolean sync(int userId) {
+        try {
+            rewindForDeferred(userId);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "读取待发送修改失败: " + e.getMessage());
+            return false;
+        }
+        String cursor = getCursor(userId);
+        boolean full = cursor == null;
+        long start = SystemClock.elapsedRealtime();
+        long totalBytes = 0;
+        int changedCount = 0;
+        int deletedCount = 0;
+
+        try {
+            boolean hasMore = true;
+            while (hasMore) {
+                Response<ResponseBody> response =
+                        apiService.getImageChanges(userId, cursor, PAGE_SIZE).execute();
+
+                if (response.code() == HTTP_GONE && cursor != null) {
+                    // 游标已失效，从头完整同步
+                    Log.w(TAG, "同步游标已失效，重新完整同步");
+                    closeErrorBody(response);
+                    setCursor(userId, null);
+                    clearDeferred(userId);
+                    cursor = null;
+                    full = true;
+                    continue;
+                }
+                if (!response.isSuccessful() || response.body() == null) {
+                    Log.e(TAG, "同步历史记录失败: " + response.code());
+                    closeErrorBody(response);
+                    return false;
+                }
+
+                ImageChangeSet changes;
+                try (ResponseBody body = response.body()) {
+                    // 边读边解析，只统计读取的字节数，不把整页缓存在内存中
+                    CountingSource counting = new CountingSource(body.source());
+                    try {
+                        changes = gson.fromJson(new InputStreamReader(Okio.buffer(counting).inputStream(),
+                                StandardCharsets.UTF_8), ImageChangeSet.class);
+                    } finally {
+                        totalBytes += counting.bytesRead;
+                    }
+                }
+                if (changes == null) {
+                    Log.e(TAG, "同步历史记录失败: 响应为空");
+                    return false;
+                }
+
+                List<Integer> skipped = applyChanges(userId, changes);
+                if (!skipped.isEmpty()) {
+                    deferChanges(userId, cursor, skipped);
+                }
+                changedCount += changes.getChanged() != null ? changes.getChanged().size() : 0;
+                deletedCount += changes.getDeleted() != null ? changes.getDeleted().size() : 0;
+
+                // 变更写入成功后才推进游标
+                if (changes.getNextCursor() != null) {
+                    cursor = changes.getNextCursor();
+                    setCursor(userId, cursor);
+                }
+                hasMore = changes.isHasMore() && changes.getNextCursor() != null;
+            }
+        } catch (IOException | JsonParseException e) {
+            Log.e(TAG, "同步历史记录异常: " + e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "写入同步结果失败: " + e.getMessage());
+            return false;
+        }
+
+        recordMetrics(full, totalBytes, SystemClock.elapsedRealtime() - start,
+                changedCount, deletedCount);
+        return true;
+    }
+
+    /**
+     * 在一个事务中写入一页变更
+     * 本地有尚未发送的修改的图像以本地为准，等发件箱发送后重新拉取
+     * @return 跳过的图像ID
+     */
+    private List<Integer> applyChanges(int userId, ImageChangeSet changes) {
+        List<GeneratedImage> changed = changes.getChanged() != null
+                ? changes.getChanged() : new ArrayList<>();
+        List<Integer> deleted = changes.getDeleted() != null
+                ? changes.getDeleted() : new ArrayList<>();
+        List<Integer> skipped = new ArrayList<>();
+        if (changed.isEmpty() && deleted.isEmpty()) {
+            return skipped;
+        }
+
+        database.runInTransaction(() -> {
+            Set<Integer> unsynced = new HashSet<>(mutationDao.getUnsyncedTargetIds(IMAGE_MUTATION_TYPES));
+
+            List<Integer> changedIds = new ArrayList<>();
+            for (GeneratedImage image : changed) {
+                changedIds.add(image.getId());
+            }
+            Map<Integer, GeneratedImageEntity> existing = new HashMap<>();
+            for (GeneratedImageEntity entity : imageDao.getByIdsSync(changedIds)) {
+                existing.put(entity.getId(), entity);
+            }
+
+            List<GeneratedImageEntity> upserts = new ArrayList<>();
+            for (GeneratedImage image : changed) {
+                if (unsynced.contains(image.getId())) {
+                    skipped.add(image.getId());
+                    continue;
+                }
+                upserts.add(toEntity(userId, image, existing.get(image.getId())));
+            }
+            if (!upserts.isEmpty()) {
+                imageDao.insertAll(upserts);
+            }
+
+            List<Integer> tombstones = new ArrayList<>();
+            for (Integer id : deleted) {
+                if (unsynced.contains(id)) {
+                    skipped.add(id);
+                } else {
+                    tombstones.add(id);
+                }
+            }
+            if (!tombstones.isEmpty()) {
+                imageDao.deleteByIds(tombstones);
+            }
+        });
+        return skipped;
+    }
+
+    /**
+     * 记录跳过的图像，以及第一次跳过时所在页的游标，必须在推进游标前调用
+     * @param pageCursor 请求该页时使用的游标，从头同步时为null
+     */
+    private void deferChanges(int userId, String pageCursor, List<Integer> skipped) {
+        SharedPreferences prefs = appContext.getSharedPreferences(STATE_PREF_NAME, Context.MODE_PRIVATE);
+        Set<String> ids = new HashSet<>(prefs.getStringSet(KEY_DEFERRED_IDS_PREFIX + userId,
+                Collections.emptySet()));
+        for (Integer id : skipped) {
+            ids.add(String.valueOf(id));
+        }
+        SharedPreferences.Editor editor = prefs.edit().putStringSet(KEY_DEFERRED_IDS_PREFIX + userId, ids);
+        if (!prefs.contains(KEY_REPLAY_CURSOR_PREFIX + userId)) {
+            editor.putString(KEY_REPLAY_CURSOR_PREFIX + userId, pageCursor != null ? pageCursor : "");
+        }
+        editor.commit();
+    }
+
+    /**
+     * 跳过的图像都已没有待发送的修改时，把游标退回到第一次跳过的那页，本次同步从那里重新拉取
+     */
+    private void rewindForDeferred(int userId) {
+        SharedPreferences prefs = appContext.getSharedPreferences(STATE_PREF_NAME, Context.MODE_PRIVATE);
+        String replayCursor = prefs.getString(KEY_REPLAY_CURSOR_PREFIX + userId, null);
+        if (replayCursor == null) {
+            return;
+        }
+        Set<String> deferred = prefs.getStringSet(KEY_DEFERRED_IDS_PREFIX + userId, Collections.emptySet());
+        for (Integer id : mutationDao.getUnsyncedTargetIds(IMAGE_MUTATION_TYPES)) {
+            if (deferred.contains(String.valueOf(id))) {
+                return;
+            }
+        }
+
+        Log.d(TAG, "跳过的" + deferred.size() + "个图像已同步到服务器，重新拉取");
+        // 游标和记录在同一次提交中更新，重新拉取中断时下次从已写入的位置继续
+        prefs.edit()
+                .putString(KEY_CURSOR_PREFIX + userId, replayCursor.isEmpty() ? null : replayCursor)
+                .remove(KEY_REPLAY_CURSOR_PREFIX + userId)
+                .remove(KEY_DEFERRED_IDS_PREFIX + userId)
+                .commit();
+    }
+
+    private void clearDeferred(int userId) {
+        appContext.getSharedPreferences(STATE_PREF_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .remove(KEY_REPLAY_CURSOR_PREFIX + userId)
+                .remove(KEY_DEFERRED_IDS_PREFIX + userId)
+                .commit();
+    }
+
+    /**
+     * 转换为实体，保留只存在于本地的字段
+     */
+    private static GeneratedImageEntity toEntity(int userId, GeneratedImage image,
+                                                 GeneratedImageEntity local) {
+        GeneratedImageEntity entity = new GeneratedImageEntity(userId, image.getPrompt(), image.getImageUrl());
+        entity.setId(image.getId());
+        if (image.getCreatedAt() != null) {
+            entity.setCreatedAt(image.getCreatedAt());
+        } else if (local != null) {
+            entity.setCreatedAt(local.getCreatedAt());
+        }
+        entity.setFavorite(image.isFavorite());
+        if (local != null) {
+            entity.setLocalPath(local.getLocalPath());
+        }
+        return entity;
+    }
+
+    private static void closeErrorBody(Response<?> response) {
+        if (response.errorBody() != null) {
+            response.errorBody().close();
+        }
+    }
+
+    private String getCursor(int userId) {
+        return appContext.getSharedPreferences(STATE_PREF_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_CURSOR_PREFIX + userId, null);
+    }
+
+    private void setCursor(int userId, String cursor) {
+        // 游标必须在下一页请求前落盘，使用commit而不是apply
+        appContext.getSharedPreferences(STATE_PREF_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(KEY_CURSOR_PREFIX + userId, cursor)
+                .commit();
+    }
+
+    /**
+     * 分别记录完整同步和增量同步的数据量和耗时，用于对比
+     */
+    private void recordMetrics(boolean full, long bytes, long durationMs, int changed, int deleted) {
+        Log.i(TAG, (full ? "完整同步" : "增量同步") + "完成: " + bytes + "字节，耗时: " + durationMs
+                + "ms，更新" + changed + "条，删除" + deleted + "条");
+
+        SharedPreferences prefs = appContext.getSharedPreferences(METRICS_PREF_NAME, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putLong(full ? KEY_LAST_FULL_BYTES : KEY_LAST_DELTA_BYTES, bytes)
+                .putLong(full ? KEY_LAST_FULL_MS : KEY_LAST_DELTA_MS, durationMs)
+                .apply();
+    }
+
+    /**
+     * 统计读取字节数的Source
+     */
+    private static class CountingSource extends ForwardingSource {
+        long bytesRead;
+
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+}
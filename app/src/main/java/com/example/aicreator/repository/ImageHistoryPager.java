@@ -0,0 +1,139 @@
+package com.example.aicreator.repository;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.dao.GeneratedImageDao;
+import com.example.aicreator.database.model.ImageHistoryItem;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 历史图像分页加载器
+ * 基于(user_id, created_at, id)键集游标按需加载用户的历史图像，
+ * 表数据变化时只重新加载已加载的范围
+ */
+public class ImageHistoryPager {
+
+    // 每页加载数量
+    public static final int PAGE_SIZE = 40;
+
+    private final AppDatabase database;
+    private final GeneratedImageDao imageDao;
+    private final PriorityExecutor executor;
+    private final int userId;
+
+    private final MutableLiveData<List<ImageHistoryItem>> items = new MutableLiveData<>();
+    private final InvalidationTracker.Observer invalidationObserver;
+
+    // 以下状态只在持有this锁时访问
+    private final List<ImageHistoryItem> loadedItems = new ArrayList<>();
+    private boolean loading;
+    private boolean endReached;
+    private boolean closed;
+
+    ImageHistoryPager(AppDatabase database, PriorityExecutor executor, int userId) {
+        this.database = database;
+        this.imageDao = database.generatedImageDao();
+        this.executor = executor;
+        this.userId = userId;
+
+        invalidationObserver = new InvalidationTracker.Observer("generated_images") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                refresh();
+            }
+        };
+        database.getInvalidationTracker().addObserver(invalidationObserver);
+    }
+
+    /**
+     * 获取已加载的历史图像
+     * @return 历史图像列表LiveData
+     */
+    public LiveData<List<ImageHistoryItem>> getItems() {
+        return items;
+    }
+
+    /**
+     * 加载下一页，正在加载或已到末尾时忽略
+     */
+    public void loadNextPage() {
+        synchronized (this) {
+            if (loading || endReached || closed) {
+                return;
+            }
+            loading = true;
+        }
+
+        // 用户正在等待列表内容，优先于其他后台任务
+        executor.execute(PriorityExecutor.Priority.HIGH, () -> {
+            synchronized (this) {
+                List<ImageHistoryItem> page;
+                if (loadedItems.isEmpty()) {
+                    page = imageDao.getHistoryFirstPage(userId, PAGE_SIZE);
+                } else {
+                    ImageHistoryItem last = loadedItems.get(loadedItems.size() - 1);
+                    page = imageDao.getHistoryPageAfter(userId, cursorTime(last), last.getId(), PAGE_SIZE);
+                }
+
+                loadedItems.addAll(page);
+                endReached = page.size() < PAGE_SIZE;
+                loading = false;
+                publish();
+            }
+        });
+    }
+
+    /**
+     * 重新加载已加载范围内的数据
+     */
+    public void refresh() {
+        executor.execute(() -> {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                int count = Math.max(loadedItems.size(), PAGE_SIZE);
+                List<ImageHistoryItem> reloaded = imageDao.getHistoryFirstPage(userId, count);
+
+                loadedItems.clear();
+                loadedItems.addAll(reloaded);
+                endReached = reloaded.size() < count;
+                publish();
+            }
+        });
+    }
+
+    /**
+     * 是否已加载全部数据
+     */
+    public synchronized boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * 停止监听表变化，不再使用时必须调用
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        database.getInvalidationTracker().removeObserver(invalidationObserver);
+    }
+
+    private void publish() {
+        items.postValue(Collections.unmodifiableList(new ArrayList<>(loadedItems)));
+    }
+
+    private static long cursorTime(ImageHistoryItem item) {
+        return item.getCreatedAt() != null ? item.getCreatedAt().getTime() : 0;
+    }
+}
@@ -4,7 +4,6 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
 
 import com.example.aicreator.database.AppDatabase;
 import com.example.aicreator.database.dao.GeneratedImageDao;
@@ -12,11 +11,12 @@ import com.example.aicreator.database.entity.GeneratedImageEntity;
 import com.example.aicreator.models.GeneratedImage;
 import com.example.aicreator.network.ApiClient;
 import com.example.aicreator.network.ApiService;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.CanonicalParams;
+import com.example.aicreator.utils.PriorityExecutor;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -29,15 +29,30 @@ import retrofit2.Response;
 public class ImageRepository {
     private static final String TAG = "ImageRepository";
     
+    // 所有存储库实例共享的生成请求合并器，相同参数的并发请求只发起一次网络调用
+    private static final SingleFlight<GeneratedImage> GENERATE_REQUESTS = new SingleFlight<>();
+    
+    // 本地历史记录的有效期，超过后在后台增量同步
+    private static final long USER_IMAGES_TTL_MS = 5 * 60 * 1000;
+    
+    private final AppDatabase database;
     private final GeneratedImageDao imageDao;
     private final ApiService apiService;
-    private final Executor executor;
+    private final PriorityExecutor executor;
+    private final MutationOutbox outbox;
+    private final HistorySync historySync;
     
     public ImageRepository(Context context) {
-        AppDatabase db = AppDatabase.getInstance(context);
-        imageDao = db.generatedImageDao();
-        apiService = ApiClient.getClient().create(ApiService.class);
-        executor = Executors.newSingleThreadExecutor();
+        this(context, AppExecutors.getInstance());
+    }
+    
+    public ImageRepository(Context context, AppExecutors executors) {
+        database = AppDatabase.getInstance(context);
+        imageDao = database.generatedImageDao();
+        apiService = ApiClient.getApiService();
+        executor = executors.diskIO();
+        outbox = MutationOutbox.getInstance(context);
+        historySync = HistorySync.getInstance(context);
     }
     
     /**
@@ -50,8 +65,6 @@ public class ImageRepository {
      * @return 结果LiveData
      */
     public LiveData<GeneratedImage> generateImage(int userId, String prompt, int width, int height, float creativityLevel) {
-        MutableLiveData<GeneratedImage> result = new MutableLiveData<>();
-        
         // 构建请求参数
         Map<String, Object> params = new java.util.HashMap<>();
         params.put("user_id", userId);
@@ -60,37 +73,70 @@ public class ImageRepository {
         params.put("height", height);
         params.put("creativity_level", creativityLevel);
         
-        // 发起API请求
-        apiService.generateImage(params).enqueue(new Callback<GeneratedImage>() {
-            @Override
-            public void onResponse(Call<GeneratedImage> call, Response<GeneratedImage> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    GeneratedImage image = response.body();
-                    result.setValue(image);
+        // 相同参数的请求进行中时共享同一个结果
+        String requestKey = CanonicalParams.hash("images/generate", params);
+        return GENERATE_REQUESTS.execute(requestKey, completion ->
+                apiService.generateImage(params).enqueue(new Callback<GeneratedImage>() {
+                    @Override
+                    public void onResponse(Call<GeneratedImage> call, Response<GeneratedImage> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            GeneratedImage image = response.body();
+                            completion.complete(image);
+                            
+                            // 将结果保存到本地数据库
+                            saveToLocalDb(image);
+                        } else {
+                            Log.e(TAG, "生成图像失败: " + response.message());
+                            completion.complete(null);
+                        }
+                    }
                     
-                    // 将结果保存到本地数据库
-                    saveToLocalDb(image);
-                } else {
-                    Log.e(TAG, "生成图像失败: " + response.message());
-                }
+                    @Override
+                    public void onFailure(Call<GeneratedImage> call, Throwable t) {
+                        Log.e(TAG, "网络请求失败: " + t.getMessage());
+                        completion.complete(null);
+                    }
+                }));
+    }
+    
+    /**
+     * 获取用户历史记录的同步状态
+     * 列表由ImageHistoryPager分页读取，这里只观察图像数量；超过有效期时在后台从服务器增量同步，
+     * 写入的变化由分页加载器刷新到列表
+     * @param userId 用户ID
+     * @return 带状态的图像数量LiveData
+     */
+    public LiveData<Resource<Integer>> getHistoryStatus(int userId) {
+        return new NetworkBoundResource<Integer>("user_images:" + userId, USER_IMAGES_TTL_MS) {
+            @Override
+            protected LiveData<Integer> loadFromDb() {
+                return imageDao.observeImageCount(userId);
             }
             
             @Override
-            public void onFailure(Call<GeneratedImage> call, Throwable t) {
-                Log.e(TAG, "网络请求失败: " + t.getMessage());
+            protected void refresh(SingleFlight.Completion<Boolean> completion) {
+                historySync.requestSync(userId, completion);
             }
-        });
-        
-        return result;
+        }.asLiveData();
     }
     
     /**
-     * 获取用户生成的图像
+     * 创建用户历史图像的分页加载器
+     * 调用方负责在不再使用时调用close()
      * @param userId 用户ID
-     * @return 图像列表LiveData
+     * @return 分页加载器
      */
-    public LiveData<List<GeneratedImageEntity>> getUserImages(int userId) {
-        return imageDao.getImagesByUserId(userId);
+    public ImageHistoryPager createHistoryPager(int userId) {
+        return new ImageHistoryPager(database, executor, userId);
+    }
+    
+    /**
+     * 根据ID获取图像
+     * @param imageId 图像ID
+     * @return 图像LiveData
+     */
+    public LiveData<GeneratedImageEntity> getImageById(int imageId) {
+        return imageDao.getImageById(imageId);
     }
     
     /**
@@ -120,6 +166,9 @@ public class ImageRepository {
         executor.execute(() -> {
             imageDao.updateFavoriteStatus(imageId, isFavorite);
         });
+        
+        // 通过发件箱同步到服务器，连续切换会合并为一次请求
+        outbox.enqueueImageFavorite(imageId, isFavorite);
     }
     
     /**
@@ -128,36 +177,20 @@ public class ImageRepository {
      */
     public void deleteImage(int imageId) {
         // 先从本地数据库删除
-        executor.execute(() -> {
-            GeneratedImageEntity image = imageDao.getImageById(imageId).getValue();
-            if (image != null) {
-                imageDao.delete(image);
-            }
-            
-            // 然后从远程服务器删除
-            apiService.deleteImage(imageId).enqueue(new Callback<Void>() {
-                @Override
-                public void onResponse(Call<Void> call, Response<Void> response) {
-                    if (!response.isSuccessful()) {
-                        Log.e(TAG, "从服务器删除图像失败: " + response.message());
-                    }
-                }
-                
-                @Override
-                public void onFailure(Call<Void> call, Throwable t) {
-                    Log.e(TAG, "删除图像网络请求失败: " + t.getMessage());
-                }
-            });
-        });
+        executor.execute(() -> imageDao.deleteById(imageId));
+        
+        // 然后通过发件箱从远程服务器删除，离线时等网络恢复后发送
+        outbox.enqueueImageDelete(imageId);
     }
     
     /**
-     * 搜索图像
-     * @param query 搜索关键词
-     * @return 图像列表LiveData
+     * 创建用户提示词的防抖搜索
+     * 基于全文索引做前缀匹配并按相关度排序
+     * @param userId 用户ID
+     * @return 提示词搜索
      */
-    public LiveData<List<GeneratedImageEntity>> searchImages(String query) {
-        return imageDao.searchImages(query);
+    public PromptSearch createPromptSearch(int userId) {
+        return new PromptSearch(imageDao, executor, userId);
     }
     
     /**
@@ -170,7 +203,14 @@ public class ImageRepository {
                     image.getPrompt(),
                     image.getImageUrl()
             );
-            entity.setCreatedAt(image.getCreatedAt());
+            if (image.getCreatedAt() != null) {
+                entity.setCreatedAt(image.getCreatedAt());
+            }
+            
+            // 使用服务器ID，增量同步时才能对应到同一条记录
+            if (image.getId() > 0) {
+                entity.setId(image.getId());
+            }
             
             long id = imageDao.insert(entity);
             Log.d(TAG, "图像已保存到本地数据库，ID: " + id);
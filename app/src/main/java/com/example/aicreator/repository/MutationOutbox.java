@@ -0,0 +1,420 @@
+package com.example.aicreator.repository;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.dao.PendingMutationDao;
+import com.example.aicreator.database.entity.PendingMutationEntity;
+import com.example.aicreator.models.User;
+import com.example.aicreator.network.ApiClient;
+import com.example.aicreator.network.ApiService;
+import com.example.aicreator.network.ModelTypeAdapterFactory;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import retrofit2.Response;
+
+/**
+ * 修改操作发件箱
+ * 本地已生效的删除、收藏和用户信息修改先写入Room，再由发件箱发送到服务器；
+ * 尚未发送的重复操作会被合并，离线时保留到网络恢复后分批发送，失败时按指数退避重试。
+ * 连接失败说明的是网络而不是修改本身，不计入修改的重试次数
+ */
+public class MutationOutbox {
+    private static final String TAG = "MutationOutbox";
+
+    // 每批发送的数量
+    private static final int BATCH_SIZE = 20;
+
+    // 重试退避
+    private static final long BASE_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 10 * 60 * 1000;
+    private static final int MAX_ATTEMPTS = 8;
+
+    private static MutationOutbox instance;
+
+    private final AppDatabase database;
+    private final PendingMutationDao mutationDao;
+    private final ApiService apiService;
+    private final PriorityExecutor diskExecutor;
+    private final PriorityExecutor networkExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final ConnectivityManager connectivityManager;
+    private final Gson gson = ModelTypeAdapterFactory.gson();
+    private final List<Runnable> drainListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private volatile boolean flushRequested;
+
+    // 以下状态只在发送线程访问：连续连接失败的次数、下次按连接退避发送的时间，
+    // 以及上次发送完所有修改后是否又有修改得到了服务器响应
+    private int connectionFailures;
+    private long connectionRetryAt;
+    private boolean delivered;
+
+    // 以下状态只在持有this锁时访问
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean started;
+
+    private MutationOutbox(Context context) {
+        this(AppDatabase.getInstance(context), ApiClient.getApiService(), AppExecutors.getInstance(),
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE));
+    }
+
+    MutationOutbox(AppDatabase database, ApiService apiService, AppExecutors executors,
+                   ConnectivityManager connectivityManager) {
+        this.database = database;
+        this.mutationDao = database.pendingMutationDao();
+        this.apiService = apiService;
+        this.diskExecutor = executors.diskIO();
+        this.networkExecutor = executors.networkIO();
+        this.scheduler = executors.scheduler();
+        this.connectivityManager = connectivityManager;
+    }
+
+    /**
+     * 获取MutationOutbox单例实例
+     */
+    public static synchronized MutationOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new MutationOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 开始监听网络状态并发送上次进程遗留的修改，只需调用一次
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        // 上次进程在发送过程中退出的修改无法确认结果，重新发送
+        diskExecutor.execute(PriorityExecutor.Priority.LOW, () -> {
+            mutationDao.resetInFlight();
+            requestFlush();
+        });
+
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivityManager.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                // 重试次数用完的修改仍未同步到服务器，网络恢复时再给一次机会
+                Log.d(TAG, "网络已恢复，发送待发送的修改");
+                retryFailed();
+            }
+        });
+    }
+
+    /**
+     * 记录图像删除
+     * 同一图像尚未发送的收藏修改不再需要，直接丢弃
+     * @param imageId 图像ID
+     */
+    public void enqueueImageDelete(int imageId) {
+        enqueue(() -> {
+            if (!mutationDao.getQueued(PendingMutationEntity.TYPE_IMAGE_DELETE, imageId).isEmpty()) {
+                return;
+            }
+            mutationDao.deleteQueued(PendingMutationEntity.TYPE_IMAGE_FAVORITE, imageId);
+            mutationDao.insert(new PendingMutationEntity(
+                    PendingMutationEntity.TYPE_IMAGE_DELETE, imageId, null));
+        });
+    }
+
+    /**
+     * 记录图像收藏状态修改
+     * 尚未发送过的相反修改与本次修改互相抵消，否则只保留最新的状态
+     * @param imageId 图像ID
+     * @param isFavorite 是否收藏
+     */
+    public void enqueueImageFavorite(int imageId, boolean isFavorite) {
+        String payload = String.valueOf(isFavorite);
+        enqueue(() -> {
+            if (!mutationDao.getQueued(PendingMutationEntity.TYPE_IMAGE_DELETE, imageId).isEmpty()) {
+                return;
+            }
+
+            List<PendingMutationEntity> queued =
+                    mutationDao.getQueued(PendingMutationEntity.TYPE_IMAGE_FAVORITE, imageId);
+            if (queued.isEmpty()) {
+                mutationDao.insert(new PendingMutationEntity(
+                        PendingMutationEntity.TYPE_IMAGE_FAVORITE, imageId, payload));
+                return;
+            }
+
+            PendingMutationEntity existing = queued.get(0);
+            if (existing.getAttemptCount() == 0 && !payload.equals(existing.getPayload())) {
+                // 服务器上仍是修改前的状态
+                mutationDao.deleteById(existing.getId());
+                return;
+            }
+            existing.setPayload(payload);
+            requeue(existing);
+        });
+    }
+
+    /**
+     * 记录用户信息修改，尚未发送的旧修改被最新的信息替换
+     * @param user 用户对象
+     */
+    public void enqueueUserUpdate(User user) {
+        String payload = gson.toJson(user);
+        enqueue(() -> {
+            List<PendingMutationEntity> queued =
+                    mutationDao.getQueued(PendingMutationEntity.TYPE_USER_UPDATE, user.getId());
+            if (queued.isEmpty()) {
+                mutationDao.insert(new PendingMutationEntity(
+                        PendingMutationEntity.TYPE_USER_UPDATE, user.getId(), payload));
+                return;
+            }
+            PendingMutationEntity existing = queued.get(0);
+            existing.setPayload(payload);
+            requeue(existing);
+        });
+    }
+
+    /**
+     * 观察所有待发送修改及其状态
+     * @return 修改列表LiveData
+     */
+    public LiveData<List<PendingMutationEntity>> getMutations() {
+        return mutationDao.observeAll();
+    }
+
+    /**
+     * 添加发送完所有修改时的回调，在网络线程调用
+     * @param listener 回调
+     */
+    public void addDrainListener(Runnable listener) {
+        drainListeners.add(listener);
+    }
+
+    /**
+     * 重新发送已放弃的修改
+     */
+    public void retryFailed() {
+        diskExecutor.execute(() -> {
+            mutationDao.retryFailed();
+            requestFlush();
+        });
+    }
+
+    /**
+     * 请求发送，已在发送时在本轮结束后再检查一次
+     */
+    public void requestFlush() {
+        flushRequested = true;
+        if (flushing.compareAndSet(false, true)) {
+            networkExecutor.execute(PriorityExecutor.Priority.LOW, this::flushLoop);
+        }
+    }
+
+    private void enqueue(Runnable collapse) {
+        diskExecutor.execute(() -> {
+            database.runInTransaction(collapse);
+            requestFlush();
+        });
+    }
+
+    private void requeue(PendingMutationEntity mutation) {
+        mutation.setStatus(PendingMutationEntity.STATUS_PENDING);
+        mutation.setNextAttemptAt(0);
+        mutation.setLastError(null);
+        mutation.setUpdatedAt(new Date());
+        mutationDao.update(mutation);
+    }
+
+    private void flushLoop() {
+        while (true) {
+            flushRequested = false;
+            try {
+                while (sendBatch()) {
+                    // 继续发送下一批
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "发送修改失败: " + e.getMessage());
+            }
+            flushing.set(false);
+            if (!flushRequested || !flushing.compareAndSet(false, true)) {
+                break;
+            }
+        }
+        scheduleNextAttempt();
+    }
+
+    /**
+     * 发送一批已到发送时间的修改
+     * @return 是否可能还有下一批
+     */
+    private boolean sendBatch() {
+        if (!isOnline()) {
+            Log.d(TAG, "当前离线，等待网络恢复");
+            return false;
+        }
+
+        List<PendingMutationEntity> batch = mutationDao.getDue(System.currentTimeMillis(), BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return false;
+        }
+        for (PendingMutationEntity mutation : batch) {
+            mutation.setStatus(PendingMutationEntity.STATUS_IN_FLIGHT);
+        }
+        mutationDao.updateAll(batch);
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingMutationEntity mutation = batch.get(i);
+            Response<?> response;
+            try {
+                response = send(mutation);
+            } catch (IOException e) {
+                // 网络中断，本批剩余的修改也无法发送，结束本批且不计入重试次数
+                onConnectionFailure(batch.subList(i, batch.size()), e.getMessage());
+                return false;
+            }
+            connectionFailures = 0;
+            connectionRetryAt = 0;
+            delivered = true;
+            onResponse(mutation, response);
+        }
+        return batch.size() == BATCH_SIZE;
+    }
+
+    private Response<?> send(PendingMutationEntity mutation) throws IOException {
+        int targetId = mutation.getTargetId();
+        switch (mutation.getType()) {
+            case PendingMutationEntity.TYPE_IMAGE_DELETE:
+                return apiService.deleteImage(targetId).execute();
+            case PendingMutationEntity.TYPE_IMAGE_FAVORITE:
+                return apiService.updateImageFavorite(targetId, Collections.singletonMap(
+                        "is_favorite", Boolean.parseBoolean(mutation.getPayload()))).execute();
+            case PendingMutationEntity.TYPE_USER_UPDATE:
+                return apiService.updateUser(targetId,
+                        gson.fromJson(mutation.getPayload(), User.class)).execute();
+            default:
+                throw new IllegalStateException("未知的修改类型: " + mutation.getType());
+        }
+    }
+
+    private void onResponse(PendingMutationEntity mutation, Response<?> response) {
+        int code = response.code();
+        boolean alreadyDeleted = code == 404
+                && PendingMutationEntity.TYPE_IMAGE_DELETE.equals(mutation.getType());
+        if (response.isSuccessful() || alreadyDeleted) {
+            mutationDao.deleteById(mutation.getId());
+            return;
+        }
+
+        String error = "HTTP " + code + " " + response.message();
+        if (code == 408 || code == 429 || code >= 500) {
+            onRetryableFailure(mutation, error);
+            return;
+        }
+
+        // 请求本身有问题，重试不会成功
+        Log.e(TAG, "修改被服务器拒绝: " + mutation.getType() + "#" + mutation.getTargetId() + " " + error);
+        mutation.setStatus(PendingMutationEntity.STATUS_FAILED);
+        mutation.setLastError(error);
+        mutation.setUpdatedAt(new Date());
+        mutationDao.update(mutation);
+    }
+
+    /**
+     * 连接失败时把未发送的修改恢复为待发送，重试时间按连续连接失败的次数退避
+     */
+    private void onConnectionFailure(List<PendingMutationEntity> unsent, String error) {
+        connectionFailures++;
+        connectionRetryAt = System.currentTimeMillis() + backoff(connectionFailures);
+        Log.w(TAG, "发送修改时连接失败，第" + connectionFailures + "次: " + error);
+        unsent.get(0).setLastError(error);
+        unsent.get(0).setUpdatedAt(new Date());
+        for (PendingMutationEntity mutation : unsent) {
+            mutation.setStatus(PendingMutationEntity.STATUS_PENDING);
+        }
+        mutationDao.updateAll(unsent);
+    }
+
+    private void onRetryableFailure(PendingMutationEntity mutation, String error) {
+        int attempts = mutation.getAttemptCount() + 1;
+        mutation.setAttemptCount(attempts);
+        mutation.setLastError(error);
+        mutation.setUpdatedAt(new Date());
+        if (attempts >= MAX_ATTEMPTS) {
+            Log.e(TAG, "修改重试次数已用完: " + mutation.getType() + "#" + mutation.getTargetId());
+            mutation.setStatus(PendingMutationEntity.STATUS_FAILED);
+        } else {
+            mutation.setStatus(PendingMutationEntity.STATUS_PENDING);
+            mutation.setNextAttemptAt(System.currentTimeMillis() + backoff(attempts));
+        }
+        mutationDao.update(mutation);
+    }
+
+    /**
+     * 指数退避，加入随机抖动避免多个修改同时重试
+     */
+    private static long backoff(int attempts) {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 20));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    /**
+     * 在最早的重试时间安排下一次发送，连接失败后不早于连接退避的时间，离线时等待网络恢复回调
+     */
+    private void scheduleNextAttempt() {
+        Long next;
+        try {
+            next = mutationDao.getNextAttemptAt();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "读取重试时间失败: " + e.getMessage());
+            return;
+        }
+        if (next == null && delivered) {
+            delivered = false;
+            for (Runnable listener : drainListeners) {
+                listener.run();
+            }
+        }
+        if (next == null || !isOnline()) {
+            return;
+        }
+
+        long delay = Math.max(0, Math.max(next, connectionRetryAt) - System.currentTimeMillis());
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            scheduledFlush = scheduler.schedule(this::requestFlush, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean isOnline() {
+        NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+        return info != null && info.isConnected();
+    }
+}
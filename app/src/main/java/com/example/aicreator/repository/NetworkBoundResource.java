@@ -0,0 +1,137 @@
+package com.example.aicreator.repository;
+
+import android.os.SystemClock;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 先读缓存再后台刷新的数据源
+ * 立即从Room发出本地数据；超过有效期时标记为STALE并在后台刷新，
+ * 刷新结果写入Room后由Room的LiveData再次发出。相同键的刷新进行中时只执行一次，
+ * 刷新时间只保存在内存中，应用重启后第一次读取总会刷新。必须在主线程创建
+ * @param <T> 数据类型
+ */
+public abstract class NetworkBoundResource<T> {
+
+    // 刷新失败后在该时间内不再自动重试，避免离线时每次数据库变化都发起请求
+    private static final long RETRY_AFTER_FAILURE_MS = 30 * 1000;
+
+    // 所有资源共享的刷新合并器和刷新时间，按资源键区分
+    private static final SingleFlight<Boolean> REFRESHES = new SingleFlight<>();
+    private static final Map<String, Long> lastRefreshed = new HashMap<>();
+    private static final Map<String, Long> lastFailed = new HashMap<>();
+
+    private final MediatorLiveData<Resource<T>> result = new MediatorLiveData<>();
+    private final String key;
+    private final long ttlMs;
+
+    private T latest;
+    private boolean refreshing;
+
+    /**
+     * @param key 资源键，例如"user:1"
+     * @param ttlMs 数据有效期（毫秒）
+     */
+    protected NetworkBoundResource(String key, long ttlMs) {
+        this.key = key;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * 从Room读取数据
+     */
+    protected abstract LiveData<T> loadFromDb();
+
+    /**
+     * 从服务器获取数据并写入Room，可在任意线程调用completion
+     * @param completion 成功时传入true，失败时传入null或false
+     */
+    protected abstract void refresh(SingleFlight.Completion<Boolean> completion);
+
+    /**
+     * 开始读取并返回结果
+     * @return 带状态的数据LiveData
+     */
+    public LiveData<Resource<T>> asLiveData() {
+        result.setValue(Resource.loading(null));
+        result.addSource(loadFromDb(), data -> {
+            latest = data;
+            if (isFresh(key, ttlMs)) {
+                result.setValue(Resource.fresh(data));
+            } else if (refreshing || canRetry(key)) {
+                result.setValue(Resource.stale(data));
+                revalidate();
+            } else {
+                result.setValue(Resource.error("刷新失败，显示的是缓存数据", data));
+            }
+        });
+        return result;
+    }
+
+    private void revalidate() {
+        if (refreshing) {
+            return;
+        }
+        refreshing = true;
+        LiveData<Boolean> refresh = REFRESHES.execute(key, completion -> refresh(success -> {
+            if (Boolean.TRUE.equals(success)) {
+                markRefreshed(key);
+            } else {
+                markFailed(key);
+            }
+            completion.complete(success);
+        }));
+        result.addSource(refresh, success -> {
+            result.removeSource(refresh);
+            refreshing = false;
+            if (Boolean.TRUE.equals(success)) {
+                // 新数据写入Room后会再次发出，这里先更新状态
+                result.setValue(Resource.fresh(latest));
+            } else {
+                result.setValue(Resource.error("刷新失败，显示的是缓存数据", latest));
+            }
+        });
+    }
+
+    /**
+     * 使指定资源失效，下次读取时重新刷新
+     * @param key 资源键
+     */
+    public static void invalidate(String key) {
+        synchronized (lastRefreshed) {
+            lastRefreshed.remove(key);
+            lastFailed.remove(key);
+        }
+    }
+
+    private static boolean isFresh(String key, long ttlMs) {
+        synchronized (lastRefreshed) {
+            Long refreshedAt = lastRefreshed.get(key);
+            return refreshedAt != null && SystemClock.elapsedRealtime() - refreshedAt < ttlMs;
+        }
+    }
+
+    private static boolean canRetry(String key) {
+        synchronized (lastRefreshed) {
+            Long failedAt = lastFailed.get(key);
+            return failedAt == null || SystemClock.elapsedRealtime() - failedAt >= RETRY_AFTER_FAILURE_MS;
+        }
+    }
+
+    private static void markRefreshed(String key) {
+        synchronized (lastRefreshed) {
+            lastRefreshed.put(key, SystemClock.elapsedRealtime());
+            lastFailed.remove(key);
+        }
+    }
+
+    private static void markFailed(String key) {
+        synchronized (lastRefreshed) {
+            lastFailed.put(key, SystemClock.elapsedRealtime());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.aicreator.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.aicreator.database.dao.GeneratedImageDao;
+import com.example.aicreator.database.model.ImageHistoryItem;
+import com.example.aicreator.database.model.ImageSearchMatch;
+import com.example.aicreator.database.util.FtsQuery;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 提示词搜索
+ * 对输入做防抖处理后查询全文索引，只发布最后一次输入的结果
+ */
+public class PromptSearch {
+
+    // 防抖延迟（毫秒）
+    public static final long DEBOUNCE_DELAY_MS = 300;
+
+    // 返回结果数量上限
+    private static final int RESULT_LIMIT = 50;
+
+    // 参与相关度排序的候选数量上限
+    private static final int CANDIDATE_LIMIT = 500;
+
+    private final GeneratedImageDao imageDao;
+    private final PriorityExecutor executor;
+    private final int userId;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final MutableLiveData<List<ImageHistoryItem>> results = new MutableLiveData<>();
+
+    // 每次输入递增，用于丢弃过期查询的结果
+    private final AtomicInteger generation = new AtomicInteger();
+    private Runnable pendingSearch;
+
+    PromptSearch(GeneratedImageDao imageDao, PriorityExecutor executor, int userId) {
+        this.imageDao = imageDao;
+        this.executor = executor;
+        this.userId = userId;
+    }
+
+    /**
+     * 获取搜索结果
+     * @return 搜索结果LiveData
+     */
+    public LiveData<List<ImageHistoryItem>> getResults() {
+        return results;
+    }
+
+    /**
+     * 更新搜索关键词，停止输入超过防抖延迟后才执行查询
+     * 需要在主线程调用
+     * @param query 搜索关键词
+     */
+    public void setQuery(String query) {
+        int current = generation.incrementAndGet();
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+        }
+
+        String trimmed = query != null ? query.trim() : "";
+        if (trimmed.isEmpty()) {
+            pendingSearch = null;
+            results.setValue(Collections.emptyList());
+            return;
+        }
+
+        pendingSearch = () -> executor.execute(PriorityExecutor.Priority.HIGH, () -> {
+            List<ImageHistoryItem> items = search(trimmed);
+            if (generation.get() == current) {
+                results.postValue(items);
+            }
+        });
+        handler.postDelayed(pendingSearch, DEBOUNCE_DELAY_MS);
+    }
+
+    /**
+     * 取消尚未执行的查询
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+    }
+
+    /**
+     * 执行查询
+     * 中日韩文字无法被分词器切分，改用限定用户范围的子串匹配
+     */
+    private List<ImageHistoryItem> search(String query) {
+        if (FtsQuery.containsCjk(query)) {
+            return imageDao.searchPromptsBySubstring(userId, FtsQuery.escapeLike(query), RESULT_LIMIT);
+        }
+
+        String match = FtsQuery.toPrefixMatch(query);
+        if (match == null) {
+            return Collections.emptyList();
+        }
+
+        List<ImageSearchMatch> ranked = FtsQuery.rank(
+                imageDao.searchPrompts(userId, match, CANDIDATE_LIMIT), RESULT_LIMIT);
+        List<ImageHistoryItem> items = new ArrayList<>(ranked.size());
+        for (ImageSearchMatch candidate : ranked) {
+            items.add(candidate.getItem());
+        }
+        return items;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.aicreator.repository;
+
+/**
+ * 带加载状态的数据
+ * 由NetworkBoundResource发出，界面可以先用缓存数据渲染，再根据状态显示刷新提示
+ * @param <T> 数据类型
+ */
+public class Resource<T> {
+
+    /**
+     * 数据状态
+     */
+    public enum Status {
+        // 尚未读取到本地数据
+        LOADING,
+        // 本地数据已超过有效期，正在后台刷新
+        STALE,
+        // 本地数据在有效期内
+        FRESH,
+        // 后台刷新失败，数据为本地缓存（可能为null）
+        ERROR
+    }
+
+    private final Status status;
+    private final T data;
+    private final String message;
+
+    private Resource(Status status, T data, String message) {
+        this.status = status;
+        this.data = data;
+        this.message = message;
+    }
+
+    public static <T> Resource<T> loading(T data) {
+        return new Resource<>(Status.LOADING, data, null);
+    }
+
+    public static <T> Resource<T> stale(T data) {
+        return new Resource<>(Status.STALE, data, null);
+    }
+
+    public static <T> Resource<T> fresh(T data) {
+        return new Resource<>(Status.FRESH, data, null);
+    }
+
+    public static <T> Resource<T> error(String message, T data) {
+        return new Resource<>(Status.ERROR, data, message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
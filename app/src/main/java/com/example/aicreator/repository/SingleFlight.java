@@ -0,0 +1,79 @@
+package com.example.aicreator.repository;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 请求合并工具类
+ * 相同键的请求在进行中时只执行一次，所有调用方共享同一个结果LiveData。
+ * 某个调用方移除观察者不会影响共享的请求，请求完成后键被释放，之后的调用会重新执行
+ * @param <T> 结果类型
+ */
+public class SingleFlight<T> {
+    
+    private final Map<String, MutableLiveData<T>> inFlight = new HashMap<>();
+    
+    /**
+     * 实际执行的任务
+     */
+    public interface Task<T> {
+        void run(Completion<T> completion);
+    }
+    
+    /**
+     * 任务完成回调，可在任意线程调用，失败时传入null
+     */
+    public interface Completion<T> {
+        void complete(T result);
+    }
+    
+    /**
+     * 执行任务，相同键的任务进行中时直接返回共享结果
+     * @param key 请求的规范化键
+     * @param task 实际执行的任务
+     * @return 共享的结果LiveData
+     */
+    public LiveData<T> execute(String key, Task<T> task) {
+        MutableLiveData<T> shared;
+        synchronized (inFlight) {
+            shared = inFlight.get(key);
+            if (shared != null) {
+                return shared;
+            }
+            shared = new MutableLiveData<>();
+            inFlight.put(key, shared);
+        }
+        
+        final MutableLiveData<T> result = shared;
+        task.run(value -> {
+            synchronized (inFlight) {
+                inFlight.remove(key);
+            }
+            result.postValue(value);
+        });
+        return result;
+    }
+    
+    /**
+     * 检查指定键的请求是否正在进行
+     * @param key 请求的规范化键
+     * @return 是否正在进行
+     */
+    public boolean isInFlight(String key) {
+        synchronized (inFlight) {
+            return inFlight.containsKey(key);
+        }
+    }
+    
+    /**
+     * 获取正在进行的请求数量
+     */
+    public int getInFlightCount() {
+        synchronized (inFlight) {
+            return inFlight.size();
+        }
+    }
+}
@@ -7,18 +7,22 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.dao.PendingMutationDao;
 import com.example.aicreator.database.dao.UserDao;
+import com.example.aicreator.database.entity.PendingMutationEntity;
 import com.example.aicreator.database.entity.UserEntity;
 import com.example.aicreator.models.User;
 import com.example.aicreator.network.ApiClient;
 import com.example.aicreator.network.ApiService;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.CanonicalParams;
+import com.example.aicreator.utils.PriorityExecutor;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -31,15 +35,31 @@ import retrofit2.Response;
 public class UserRepository {
     private static final String TAG = "UserRepository";
     
+    // 所有存储库实例共享的登录请求合并器，重复点击登录只发起一次网络调用
+    private static final SingleFlight<User> LOGIN_REQUESTS = new SingleFlight<>();
+    
+    // 本地用户信息的有效期，超过后在后台从服务器刷新
+    private static final long USER_TTL_MS = 10 * 60 * 1000;
+    
     private final UserDao userDao;
+    private final PendingMutationDao mutationDao;
     private final ApiService apiService;
-    private final Executor executor;
+    private final PriorityExecutor executor;
+    private final MutationOutbox outbox;
+    private final HistorySync historySync;
     
     public UserRepository(Context context) {
+        this(context, AppExecutors.getInstance());
+    }
+    
+    public UserRepository(Context context, AppExecutors executors) {
         AppDatabase db = AppDatabase.getInstance(context);
         userDao = db.userDao();
-        apiService = ApiClient.getClient().create(ApiService.class);
-        executor = Executors.newSingleThreadExecutor();
+        mutationDao = db.pendingMutationDao();
+        apiService = ApiClient.getApiService();
+        executor = executors.diskIO();
+        outbox = MutationOutbox.getInstance(context);
+        historySync = HistorySync.getInstance(context);
     }
     
     /**
@@ -90,50 +110,109 @@ public class UserRepository {
      * @return 登录结果LiveData
      */
     public LiveData<User> login(String username, String password) {
-        MutableLiveData<User> result = new MutableLiveData<>();
-        
         // 创建登录参数
         Map<String, String> credentials = new HashMap<>();
         credentials.put("username", username);
         credentials.put("password", password);
         
-        // 发起API请求
-        apiService.loginUser(credentials).enqueue(new Callback<User>() {
-            @Override
-            public void onResponse(Call<User> call, Response<User> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    User loggedInUser = response.body();
-                    result.setValue(loggedInUser);
-                    
-                    // 更新本地数据库
-                    loggedInUser.setLastLogin(new Date());
-                    saveToLocalDb(loggedInUser);
+        // 相同凭据的登录请求进行中时共享同一个结果
+        String requestKey = CanonicalParams.hash("users/login", credentials);
+        return LOGIN_REQUESTS.execute(requestKey, completion ->
+                apiService.loginUser(credentials).enqueue(new Callback<User>() {
+                    @Override
+                    public void onResponse(Call<User> call, Response<User> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            User loggedInUser = response.body();
+                            completion.complete(loggedInUser);
+                            
+                            // 更新本地数据库
+                            loggedInUser.setLastLogin(new Date());
+                            saveToLocalDb(loggedInUser);
+                            
+                            // 更新最后登录时间
+                            executor.execute(() -> {
+                                userDao.updateLastLoginTime(loggedInUser.getId(), System.currentTimeMillis());
+                            });
+                            
+                            // 拉取服务器上的历史记录变更
+                            historySync.start(loggedInUser.getId());
+                        } else {
+                            Log.e(TAG, "登录失败: " + response.message());
+                            completion.complete(null);
+                        }
+                    }
                     
-                    // 更新最后登录时间
-                    executor.execute(() -> {
-                        userDao.updateLastLoginTime(loggedInUser.getId(), System.currentTimeMillis());
-                    });
-                } else {
-                    Log.e(TAG, "登录失败: " + response.message());
-                }
+                    @Override
+                    public void onFailure(Call<User> call, Throwable t) {
+                        Log.e(TAG, "网络请求失败: " + t.getMessage());
+                        completion.complete(null);
+                    }
+                }));
+    }
+    
+    /**
+     * 获取用户信息
+     * 立即返回本地数据，超过有效期时在后台从服务器刷新
+     * @param userId 用户ID
+     * @return 带状态的用户信息LiveData
+     */
+    public LiveData<Resource<UserEntity>> getUserById(int userId) {
+        return new NetworkBoundResource<UserEntity>("user:" + userId, USER_TTL_MS) {
+            @Override
+            protected LiveData<UserEntity> loadFromDb() {
+                return userDao.getUserById(userId);
             }
             
             @Override
-            public void onFailure(Call<User> call, Throwable t) {
-                Log.e(TAG, "网络请求失败: " + t.getMessage());
+            protected void refresh(SingleFlight.Completion<Boolean> completion) {
+                apiService.getUser(userId).enqueue(new Callback<User>() {
+                    @Override
+                    public void onResponse(Call<User> call, Response<User> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            User remote = response.body();
+                            executor.execute(() -> {
+                                mergeRemoteUser(remote);
+                                completion.complete(true);
+                            });
+                        } else {
+                            Log.e(TAG, "刷新用户信息失败: " + response.message());
+                            completion.complete(false);
+                        }
+                    }
+                    
+                    @Override
+                    public void onFailure(Call<User> call, Throwable t) {
+                        Log.e(TAG, "网络请求失败: " + t.getMessage());
+                        completion.complete(false);
+                    }
+                });
             }
-        });
-        
-        return result;
+        }.asLiveData();
     }
     
     /**
-     * 获取用户信息
-     * @param userId 用户ID
-     * @return 用户信息LiveData
+     * 将服务器返回的用户信息写入本地数据库
+     * 有尚未发送的本地修改时以本地为准，服务器不返回的字段保留本地值
      */
-    public LiveData<UserEntity> getUserById(int userId) {
-        return userDao.getUserById(userId);
+    private void mergeRemoteUser(User remote) {
+        if (mutationDao.getUnsyncedTargetIds(Collections.singletonList(
+                PendingMutationEntity.TYPE_USER_UPDATE)).contains(remote.getId())) {
+            return;
+        }
+        UserEntity local = userDao.getUserByIdSync(remote.getId());
+        UserEntity entity = userEntityFromUser(remote);
+        if (local != null) {
+            if (entity.getPassword() == null) {
+                entity.setPassword(local.getPassword());
+            }
+            if (entity.getCreatedAt() == null) {
+                entity.setCreatedAt(local.getCreatedAt());
+            }
+            if (entity.getLastLogin() == null) {
+                entity.setLastLogin(local.getLastLogin());
+            }
+        }
+        userDao.insert(entity);
     }
     
     /**
@@ -145,22 +224,10 @@ public class UserRepository {
             // 保存到本地数据库
             UserEntity entity = userEntityFromUser(user);
             userDao.update(entity);
-            
-            // 更新到远程服务器
-            apiService.updateUser(user.getId(), user).enqueue(new Callback<User>() {
-                @Override
-                public void onResponse(Call<User> call, Response<User> response) {
-                    if (!response.isSuccessful()) {
-                        Log.e(TAG, "更新用户信息失败: " + response.message());
-                    }
-                }
-                
-                @Override
-                public void onFailure(Call<User> call, Throwable t) {
-                    Log.e(TAG, "更新用户信息网络请求失败: " + t.getMessage());
-                }
-            });
         });
+        
+        // 通过发件箱更新到远程服务器，离线时等网络恢复后发送
+        outbox.enqueueUserUpdate(user);
     }
     
     /**
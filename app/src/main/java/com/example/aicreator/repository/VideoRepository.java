@@ -1,24 +1,28 @@
 package com.example.aicreator.repository;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
 
 import com.example.aicreator.database.AppDatabase;
 import com.example.aicreator.database.dao.GeneratedVideoDao;
 import com.example.aicreator.models.GeneratedVideo;
+import com.example.aicreator.models.VideoGenerationResponse;
 import com.example.aicreator.network.ApiClient;
 import com.example.aicreator.network.ApiService;
+import com.example.aicreator.network.ProgressRequestBody;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.ImagePreprocessor;
+import com.example.aicreator.utils.PriorityExecutor;
 import com.example.aicreator.utils.SharedPreferencesManager;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
@@ -34,9 +38,26 @@ import retrofit2.Response;
 public class VideoRepository {
     private static final String TAG = "VideoRepository";
     
+    // 视频模型使用的输入分辨率（最大边长），上传前按此缩小图片
+    public static final int MODEL_INPUT_SIZE = 1024;
+    
+    // 上传超过该时间没有进展即中止
+    private static final long UPLOAD_IDLE_TIMEOUT_MS = 20_000;
+    
+    // 上传进度回调的最小间隔
+    private static final long UPLOAD_PROGRESS_INTERVAL_MS = 200;
+    
+    // 上传耗时记录
+    private static final String METRICS_PREF_NAME = "upload_metrics";
+    private static final String KEY_LAST_ORIGINAL_BYTES = "last_original_bytes";
+    private static final String KEY_LAST_UPLOAD_BYTES = "last_upload_bytes";
+    private static final String KEY_LAST_PREPARE_MS = "last_prepare_ms";
+    private static final String KEY_LAST_UPLOAD_MS = "last_upload_ms";
+    
+    private final Context appContext;
     private final GeneratedVideoDao videoDao;
     private final ApiService apiService;
-    private final Executor executor;
+    private final PriorityExecutor executor;
     private final SharedPreferencesManager prefsManager;
     
     /**
@@ -44,10 +65,30 @@ public class VideoRepository {
      * @param context 应用上下文
      */
     public VideoRepository(Context context) {
+        this(context, AppExecutors.getInstance());
+    }
+    
+    /**
+     * 构造方法
+     * @param context 应用上下文
+     * @param executors 应用线程池
+     */
+    public VideoRepository(Context context, AppExecutors executors) {
+        this(context, executors, ApiClient.getApiService());
+    }
+    
+    /**
+     * 构造方法
+     * @param context 应用上下文
+     * @param executors 应用线程池
+     * @param apiService 后端API服务
+     */
+    public VideoRepository(Context context, AppExecutors executors, ApiService apiService) {
+        appContext = context.getApplicationContext();
         AppDatabase database = AppDatabase.getInstance(context);
         videoDao = database.generatedVideoDao();
-        apiService = ApiClient.getInstance().getApiService();
-        executor = Executors.newSingleThreadExecutor();
+        this.apiService = apiService;
+        executor = executors.diskIO();
         prefsManager = SharedPreferencesManager.getInstance(context);
     }
     
@@ -127,21 +168,23 @@ public class VideoRepository {
     
     /**
      * 生成视频（调用API）
-     * @param imagePath 源图片路径
+     * @param image 预处理后的源图片
      * @param style 视频风格
      * @param duration 视频时长
      * @param motionIntensity 运动强度
      * @param callback 回调接口
+     * @return 进行中的请求，可用于取消
      */
-    public void generateVideo(String imagePath, String style, int duration, 
-                              int motionIntensity, VideoGenerationCallback callback) {
-        MutableLiveData<VideoGenerationResult> resultLiveData = new MutableLiveData<>();
-        
-        // 准备图片文件
-        File imageFile = new File(imagePath);
-        RequestBody requestFile = RequestBody.create(MediaType.parse("image/*"), imageFile);
+    public Call<VideoGenerationResponse> generateVideo(ImagePreprocessor.PreparedImage image, String style,
+                              int duration, int motionIntensity, VideoGenerationCallback callback) {
+        // 从磁盘流式上传缩小后的图片，并报告上传进度
+        ProgressRequestBody requestFile = new ProgressRequestBody(
+                RequestBody.create(MediaType.parse("image/jpeg"), image.getFile()),
+                UPLOAD_IDLE_TIMEOUT_MS,
+                UPLOAD_PROGRESS_INTERVAL_MS,
+                callback::onUploadProgress);
         MultipartBody.Part imagePart = MultipartBody.Part.createFormData("image", 
-                imageFile.getName(), requestFile);
+                "image.jpg", requestFile);
         
         // 准备其他参数
         Map<String, RequestBody> params = new HashMap<>();
@@ -152,20 +195,21 @@ public class VideoRepository {
                 String.valueOf(motionIntensity)));
         
         // 发起API请求
-        Call<Map<String, Object>> call = apiService.generateVideo(
+        Call<VideoGenerationResponse> call = apiService.generateVideo(
                 "Bearer " + prefsManager.getAccessToken(),
                 imagePart,
                 params
         );
         
-        call.enqueue(new Callback<Map<String, Object>>() {
+        long uploadStart = SystemClock.elapsedRealtime();
+        call.enqueue(new Callback<VideoGenerationResponse>() {
             @Override
-            public void onResponse(Call<Map<String, Object>> call, 
-                                  Response<Map<String, Object>> response) {
+            public void onResponse(Call<VideoGenerationResponse> call, 
+                                  Response<VideoGenerationResponse> response) {
+                recordUploadMetrics(image, requestFile.getBytesWritten(),
+                        SystemClock.elapsedRealtime() - uploadStart);
                 if (response.isSuccessful() && response.body() != null) {
-                    Map<String, Object> result = response.body();
-                    String videoUrl = (String) result.get("video_url");
-                    callback.onSuccess(videoUrl);
+                    callback.onSuccess(response.body().getVideoUrl());
                 } else {
                     String errorMsg = "API错误: " + response.code();
                     Log.e(TAG, errorMsg);
@@ -174,12 +218,36 @@ public class VideoRepository {
             }
             
             @Override
-            public void onFailure(Call<Map<String, Object>> call, Throwable t) {
-                String errorMsg = "网络错误: " + t.getMessage();
+            public void onFailure(Call<VideoGenerationResponse> call, Throwable t) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                String errorMsg = t instanceof ProgressRequestBody.StalledException
+                        ? "上传停滞，请检查网络后重试"
+                        : "网络错误: " + t.getMessage();
                 Log.e(TAG, errorMsg);
                 callback.onError(errorMsg);
             }
         });
+        return call;
+    }
+    
+    /**
+     * 记录上传前后的字节数和耗时
+     * 上传耗时包含服务器处理时间，用于前后对比
+     */
+    private void recordUploadMetrics(ImagePreprocessor.PreparedImage image, long uploadBytes,
+                                     long uploadMs) {
+        Log.i(TAG, "图片上传: 原始" + image.getOriginalBytes() + "字节，实际上传" + uploadBytes
+                + "字节，预处理耗时: " + image.getPrepareMillis() + "ms，请求耗时: " + uploadMs + "ms");
+        
+        SharedPreferences prefs = appContext.getSharedPreferences(METRICS_PREF_NAME, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putLong(KEY_LAST_ORIGINAL_BYTES, image.getOriginalBytes())
+                .putLong(KEY_LAST_UPLOAD_BYTES, uploadBytes)
+                .putLong(KEY_LAST_PREPARE_MS, image.getPrepareMillis())
+                .putLong(KEY_LAST_UPLOAD_MS, uploadMs)
+                .apply();
     }
     
     /**
@@ -213,6 +281,7 @@ public class VideoRepository {
      * 视频生成回调接口
      */
     public interface VideoGenerationCallback {
+        void onUploadProgress(long bytesSent, long totalBytes);
         void onSuccess(String videoUrl);
         void onError(String errorMessage);
     }
@@ -0,0 +1,55 @@
+package com.example.aicreator.services;
+
+import android.content.Context;
+import android.net.Uri;
+
+import java.io.File;
+import java.io.IOException;
+
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * 保存直接返回图像数据的后端的生成结果
+ */
+class GeneratedImageFiles {
+    private static final String OUTPUT_DIR = "generated_images";
+
+    /**
+     * 把图像数据写入应用私有目录
+     * @param context 上下文
+     * @param backend 后端名称，用作文件名前缀
+     * @param extension 扩展名，如".png"
+     * @param source 图像数据
+     * @return 本地文件URI
+     * @throws IOException 写入失败时抛出
+     */
+    static String write(Context context, String backend, String extension, Source source) throws IOException {
+        File dir = new File(context.getFilesDir(), OUTPUT_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        File target = new File(dir, backend.toLowerCase() + "_" + System.currentTimeMillis() + extension);
+        try (BufferedSink sink = Okio.buffer(Okio.sink(target))) {
+            sink.writeAll(source);
+        } catch (IOException e) {
+            target.delete();
+            throw e;
+        }
+        return Uri.fromFile(target).toString();
+    }
+
+    /**
+     * 根据Content-Type确定扩展名
+     */
+    static String extensionFor(String contentType) {
+        if (contentType != null && contentType.contains("jpeg")) {
+            return ".jpg";
+        }
+        if (contentType != null && contentType.contains("webp")) {
+            return ".webp";
+        }
+        return ".png";
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.aicreator.services;
+
+import java.util.Map;
+
+/**
+ * 文生图后端
+ * 每个服务商一个实现，由GenerationRouter按健康状况选择
+ */
+public interface GenerationBackend {
+
+    /**
+     * 生成结果回调，可在任意线程调用
+     */
+    interface Callback {
+        /**
+         * @param imageUri 生成图像的地址（远程URL或本地文件URI）
+         */
+        void onSuccess(String imageUri);
+
+        /**
+         * @param error 错误信息
+         * @param retryable 是否可以换其他后端重试：只有网络错误、熔断、429和5xx可以；
+         *                  内容审核拒绝、参数错误和已提交后的超时不能，换后端只会重复计费
+         */
+        void onFailure(String error, boolean retryable);
+    }
+
+    /**
+     * 获取后端名称，用于日志和健康统计
+     */
+    String getName();
+
+    /**
+     * 获取使用的模型标识，用作生成结果缓存的键
+     */
+    String getModelId();
+
+    /**
+     * 获取服务端预估的排队时间（毫秒），不提供时返回0
+     */
+    long getQueueEstimateMs();
+
+    /**
+     * 生成图像
+     * @param params 通用生成参数：prompt、width、height、guidance_scale、
+     *               num_inference_steps，以及可选的seed
+     * @param callback 结果回调
+     */
+    void generate(Map<String, Object> params, Callback callback);
+}
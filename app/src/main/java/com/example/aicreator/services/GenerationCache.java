@@ -0,0 +1,338 @@
+package com.example.aicreator.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.dao.GenerationCacheDao;
+import com.example.aicreator.database.entity.GenerationCacheEntity;
+import com.example.aicreator.network.HttpClientProvider;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.CanonicalParams;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * 生成结果缓存
+ * 以模型版本、输入参数和种子的规范化哈希为键，持久化保存生成结果和本地文件，
+ * 相同请求再次生成时直接返回已保存的结果
+ */
+public class GenerationCache {
+    private static final String TAG = "GenerationCache";
+
+    // 缓存文件目录
+    private static final String CACHE_DIR = "generation_cache";
+
+    // 淘汰策略
+    private static final int MAX_ENTRIES = 200;
+    private static final long MAX_TOTAL_BYTES = 200L * 1024 * 1024;
+    private static final long MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    // Replicate输出链接的有效期，超过后只能使用本地文件
+    private static final long OUTPUT_URL_TTL_MS = 60 * 60 * 1000;
+
+    // 每次淘汰时批量读取的条目数
+    private static final int EVICTION_BATCH_SIZE = 20;
+
+    private static volatile GenerationCache instance;
+
+    private final GenerationCacheDao cacheDao;
+    private final File cacheDir;
+    private final PriorityExecutor diskExecutor;
+    private final PriorityExecutor networkExecutor;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * 缓存查询回调接口
+     */
+    public interface LookupCallback {
+        void onHit(CachedResult result);
+        void onMiss();
+    }
+
+    private GenerationCache(Context context) {
+        cacheDao = AppDatabase.getInstance(context).generationCacheDao();
+        cacheDir = new File(context.getFilesDir(), CACHE_DIR);
+        AppExecutors executors = AppExecutors.getInstance();
+        diskExecutor = executors.diskIO();
+        networkExecutor = executors.networkIO();
+    }
+
+    /**
+     * 获取GenerationCache单例实例
+     */
+    public static synchronized GenerationCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new GenerationCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 计算缓存键
+     * @param modelVersion 模型版本
+     * @param params 完整的模型输入参数（包含种子）
+     * @return 缓存键
+     */
+    public static String cacheKey(String modelVersion, Map<String, Object> params) {
+        return CanonicalParams.hash(modelVersion, params);
+    }
+
+    /**
+     * 异步查询缓存
+     * @param modelVersion 模型版本
+     * @param params 模型输入参数
+     * @param callback 查询回调，在后台线程调用
+     */
+    public void lookup(String modelVersion, Map<String, Object> params, LookupCallback callback) {
+        lookup(Collections.singletonList(modelVersion), params, callback);
+    }
+
+    /**
+     * 异步查询多个模型版本的缓存，按顺序返回第一个有效的结果，只计一次命中或未命中
+     * @param modelVersions 模型版本，靠前的优先
+     * @param params 模型输入参数
+     * @param callback 查询回调，在后台线程调用
+     */
+    public void lookup(List<String> modelVersions, Map<String, Object> params, LookupCallback callback) {
+        // 查询结果决定是否发起生成请求，优先执行
+        diskExecutor.execute(PriorityExecutor.Priority.HIGH, () -> {
+            for (String modelVersion : modelVersions) {
+                String key = cacheKey(modelVersion, params);
+                CachedResult result = getValidEntry(key);
+                if (result != null) {
+                    hitCount.incrementAndGet();
+                    cacheDao.updateLastAccessed(key, System.currentTimeMillis());
+                    callback.onHit(result);
+                    return;
+                }
+            }
+            missCount.incrementAndGet();
+            callback.onMiss();
+        });
+    }
+
+    /**
+     * 异步保存生成结果，下载输出文件到本地后写入缓存并执行淘汰
+     * @param modelVersion 模型版本
+     * @param params 模型输入参数
+     * @param outputUrl 生成结果链接
+     */
+    public void store(String modelVersion, Map<String, Object> params, String outputUrl) {
+        String key = cacheKey(modelVersion, params);
+        // 下载输出文件是网络任务，写入和淘汰不影响当前请求，低优先级执行
+        networkExecutor.execute(PriorityExecutor.Priority.LOW, () -> {
+            GenerationCacheEntity entry = new GenerationCacheEntity(key, modelVersion, outputUrl);
+
+            File localFile = downloadOutput(key, outputUrl);
+            if (localFile != null) {
+                entry.setLocalPath(localFile.getAbsolutePath());
+                entry.setSizeBytes(localFile.length());
+            }
+
+            cacheDao.insert(entry);
+            evictIfNeeded();
+        });
+    }
+
+    /**
+     * 移除缓存项（用于重新生成后旧结果失效的情况）
+     * @param modelVersion 模型版本
+     * @param params 模型输入参数
+     */
+    public void invalidate(String modelVersion, Map<String, Object> params) {
+        String key = cacheKey(modelVersion, params);
+        diskExecutor.execute(() -> {
+            GenerationCacheEntity entry = cacheDao.getByKey(key);
+            if (entry != null) {
+                removeEntry(entry);
+            }
+        });
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        diskExecutor.execute(() -> {
+            cacheDao.deleteAll();
+            File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * 获取缓存命中次数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 获取缓存未命中次数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 获取缓存命中率
+     * @return 命中率（0-1），尚无查询时返回0
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 读取有效的缓存项
+     * 本地文件存在时总是有效；没有本地文件时只有输出链接未过期才有效
+     */
+    private CachedResult getValidEntry(String key) {
+        GenerationCacheEntity entry = cacheDao.getByKey(key);
+        if (entry == null) {
+            return null;
+        }
+
+        long age = System.currentTimeMillis() - entry.getCreatedAt().getTime();
+        if (age > MAX_AGE_MS) {
+            removeEntry(entry);
+            return null;
+        }
+
+        File localFile = entry.getLocalPath() != null ? new File(entry.getLocalPath()) : null;
+        if (localFile != null && localFile.exists()) {
+            return new CachedResult(key, entry.getOutputUrl(), localFile);
+        }
+        if (age < OUTPUT_URL_TTL_MS) {
+            return new CachedResult(key, entry.getOutputUrl(), null);
+        }
+
+        removeEntry(entry);
+        return null;
+    }
+
+    /**
+     * 下载输出文件到缓存目录
+     * @return 本地文件，下载失败时返回null
+     */
+    private File downloadOutput(String key, String outputUrl) {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            return null;
+        }
+
+        File target = new File(cacheDir, key + fileExtension(outputUrl));
+        Request request = new Request.Builder().url(outputUrl).build();
+        try (Response response = HttpClientProvider.getDownloadClient().newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.w(TAG, "下载生成结果失败: " + response.code());
+                return null;
+            }
+            try (BufferedSink sink = Okio.buffer(Okio.sink(target))) {
+                sink.writeAll(response.body().source());
+            }
+            return target;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "下载生成结果异常: " + e.getMessage());
+            target.delete();
+            return null;
+        }
+    }
+
+    /**
+     * 按年龄、条目数和总大小淘汰缓存项
+     */
+    private void evictIfNeeded() {
+        long expireBefore = System.currentTimeMillis() - MAX_AGE_MS;
+        for (GenerationCacheEntity entry : cacheDao.getCreatedBefore(expireBefore)) {
+            removeEntry(entry);
+        }
+
+        while (cacheDao.getCount() > MAX_ENTRIES || cacheDao.getTotalSize() > MAX_TOTAL_BYTES) {
+            List<GenerationCacheEntity> victims = cacheDao.getLeastRecentlyUsed(EVICTION_BATCH_SIZE);
+            if (victims.isEmpty()) {
+                break;
+            }
+            for (GenerationCacheEntity entry : victims) {
+                removeEntry(entry);
+                if (cacheDao.getCount() <= MAX_ENTRIES && cacheDao.getTotalSize() <= MAX_TOTAL_BYTES) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void removeEntry(GenerationCacheEntity entry) {
+        if (entry.getLocalPath() != null) {
+            new File(entry.getLocalPath()).delete();
+        }
+        cacheDao.deleteByKey(entry.getCacheKey());
+    }
+
+    private static String fileExtension(String url) {
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int dot = path.lastIndexOf('.');
+        int slash = path.lastIndexOf('/');
+        if (dot > slash && path.length() - dot <= 5) {
+            return path.substring(dot);
+        }
+        return ".png";
+    }
+
+    /**
+     * 缓存命中的结果
+     */
+    public static class CachedResult {
+        private final String cacheKey;
+        private final String outputUrl;
+        private final File localFile;
+
+        public CachedResult(String cacheKey, String outputUrl, File localFile) {
+            this.cacheKey = cacheKey;
+            this.outputUrl = outputUrl;
+            this.localFile = localFile;
+        }
+
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        public String getOutputUrl() {
+            return outputUrl;
+        }
+
+        public File getLocalFile() {
+            return localFile;
+        }
+
+        /**
+         * 获取可直接用于显示的地址，优先使用本地文件
+         */
+        public String getDisplayUri() {
+            return localFile != null ? android.net.Uri.fromFile(localFile).toString() : outputUrl;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.aicreator.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.aicreator.utils.RetrofitClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 生成请求路由器
+ * 按各后端观测到的延迟、排队时间、进行中的请求数和错误率估算完成时间，选择最快的后端；
+ * 连续失败的后端在冷却期内不参与选择。只有网络错误、熔断和429/5xx会自动换下一个后端重试，
+ * 内容审核拒绝、参数错误和超时直接返回给调用方
+ */
+public class GenerationRouter {
+    private static final String TAG = "GenerationRouter";
+
+    // 指数加权平均的平滑系数
+    private static final double EWMA_ALPHA = 0.3;
+
+    // 错误率对预估时间的惩罚系数
+    private static final double ERROR_PENALTY = 4;
+
+    // 连续失败达到该次数后进入冷却
+    private static final int COOLDOWN_FAILURES = 3;
+    private static final long COOLDOWN_MS = 60 * 1000;
+
+    // 没有观测数据时，按列表顺序给出的初始延迟估计的间隔
+    private static final long INITIAL_LATENCY_MS = 10_000;
+    private static final long INITIAL_LATENCY_STEP_MS = 5_000;
+
+    private static GenerationRouter instance;
+
+    private final List<GenerationBackend> backends;
+    private final Map<GenerationBackend, BackendHealth> health = new HashMap<>();
+
+    /**
+     * @param backends 可用的后端，靠前的在没有观测数据时优先
+     */
+    public GenerationRouter(List<GenerationBackend> backends) {
+        this(backends, INITIAL_LATENCY_MS, INITIAL_LATENCY_STEP_MS, COOLDOWN_MS);
+    }
+
+    /**
+     * 使用指定的初始延迟估计和冷却时间，供测试缩短时间尺度
+     */
+    GenerationRouter(List<GenerationBackend> backends, long initialLatencyMs, long initialLatencyStepMs,
+                     long cooldownMs) {
+        this.backends = new ArrayList<>(backends);
+        for (int i = 0; i < backends.size(); i++) {
+            health.put(backends.get(i), new BackendHealth(initialLatencyMs + i * initialLatencyStepMs, cooldownMs));
+        }
+    }
+
+    /**
+     * 获取GenerationRouter单例实例，包含Replicate、HuggingFace和OpenRouter三个后端
+     */
+    public static synchronized GenerationRouter getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new GenerationRouter(Arrays.asList(
+                    new ReplicateBackend(
+                            RetrofitClient.getReplicateInstance().create(ReplicateApiService.class),
+                            PredictionTracker.getInstance()),
+                    new HuggingFaceBackend(appContext,
+                            RetrofitClient.getHuggingFaceInstance().create(HuggingFaceApiService.class)),
+                    new OpenRouterBackend(appContext,
+                            RetrofitClient.getOpenRouterInstance().create(OpenRouterApiService.class))));
+        }
+        return instance;
+    }
+
+    /**
+     * 路由结果回调，可在任意线程调用
+     */
+    public interface Callback {
+        /**
+         * @param backend 生成该结果的后端
+         * @param imageUri 生成图像的地址
+         */
+        void onSuccess(GenerationBackend backend, String imageUri);
+
+        /**
+         * 所有后端都失败，或后端返回了不可重试的错误
+         * @param error 最后一个后端的错误信息
+         */
+        void onFailure(String error);
+    }
+
+    /**
+     * 获取当前会被优先选择的后端
+     */
+    public GenerationBackend peekBackend() {
+        return rankBackends().get(0);
+    }
+
+    /**
+     * 获取按当前路由顺序排列的所有后端
+     */
+    public List<GenerationBackend> getRankedBackends() {
+        return rankBackends();
+    }
+
+    /**
+     * 判断HTTP状态码是否表示服务端暂时不可用，可以换其他后端重试
+     * @param code HTTP状态码
+     * @return 429和5xx返回true
+     */
+    static boolean isRetryableStatus(int code) {
+        return code == 429 || code >= 500;
+    }
+
+    /**
+     * 按路由顺序依次尝试生成，直到成功、遇到不可重试的错误或所有后端都失败
+     * @param params 通用生成参数
+     * @param callback 结果回调
+     */
+    public void generate(Map<String, Object> params, Callback callback) {
+        attempt(rankBackends(), 0, params, callback);
+    }
+
+    private void attempt(List<GenerationBackend> order, int index, Map<String, Object> params,
+                         Callback callback) {
+        GenerationBackend backend = order.get(index);
+        BackendHealth backendHealth = health.get(backend);
+        synchronized (backendHealth) {
+            backendHealth.inFlight++;
+        }
+        long start = nowMs();
+        backend.generate(params, new GenerationBackend.Callback() {
+            @Override
+            public void onSuccess(String imageUri) {
+                synchronized (backendHealth) {
+                    backendHealth.recordSuccess(nowMs() - start);
+                }
+                callback.onSuccess(backend, imageUri);
+            }
+
+            @Override
+            public void onFailure(String error, boolean retryable) {
+                if (!retryable) {
+                    // 后端工作正常，只是拒绝了这个请求，不影响健康统计
+                    synchronized (backendHealth) {
+                        backendHealth.recordRejected();
+                    }
+                    callback.onFailure(error);
+                    return;
+                }
+                synchronized (backendHealth) {
+                    backendHealth.recordFailure();
+                }
+                if (index + 1 < order.size()) {
+                    Log.w(TAG, backend.getName() + "生成失败，切换到" + order.get(index + 1).getName()
+                            + ": " + error);
+                    attempt(order, index + 1, params, callback);
+                } else {
+                    callback.onFailure(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按预估完成时间排序，冷却中的后端排在最后
+     */
+    private List<GenerationBackend> rankBackends() {
+        long now = nowMs();
+        Map<GenerationBackend, Double> costs = new HashMap<>();
+        for (GenerationBackend backend : backends) {
+            BackendHealth backendHealth = health.get(backend);
+            synchronized (backendHealth) {
+                double cost = backendHealth.expectedCostMs(backend.getQueueEstimateMs());
+                if (now < backendHealth.cooldownUntil) {
+                    cost += Double.MAX_VALUE / 2;
+                }
+                costs.put(backend, cost);
+            }
+        }
+        List<GenerationBackend> order = new ArrayList<>(backends);
+        Collections.sort(order, (a, b) -> Double.compare(costs.get(a), costs.get(b)));
+        return order;
+    }
+
+    /**
+     * 单调时钟的毫秒数，用于延迟统计和冷却计时
+     * 使用System.nanoTime而不是SystemClock，在JVM单元测试中也能得到真实的耗时
+     */
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    /**
+     * 获取后端的健康评分
+     * @param backend 后端
+     * @return 0到100，错误率越高、延迟越高分数越低，冷却中为0
+     */
+    public int getHealthScore(GenerationBackend backend) {
+        BackendHealth backendHealth = health.get(backend);
+        if (backendHealth == null) {
+            return 0;
+        }
+        synchronized (backendHealth) {
+            return backendHealth.score();
+        }
+    }
+
+    /**
+     * 获取各后端的健康状况摘要
+     */
+    public String getHealthSummary() {
+        StringBuilder summary = new StringBuilder("生成后端:");
+        for (GenerationBackend backend : backends) {
+            BackendHealth backendHealth = health.get(backend);
+            synchronized (backendHealth) {
+                summary.append(String.format(Locale.ROOT, " [%s 评分%d 延迟%dms 错误率%.0f%% 进行中%d]",
+                        backend.getName(), backendHealth.score(), (long) backendHealth.latencyMs,
+                        backendHealth.errorRate * 100, backendHealth.inFlight));
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * 单个后端的观测数据，只在持有该对象的锁时访问
+     */
+    private static class BackendHealth {
+        // 评分时视为满分的延迟
+        private static final double TARGET_LATENCY_MS = 10_000;
+
+        private final long cooldownMs;
+
+        double latencyMs;
+        double errorRate;
+        int inFlight;
+        int consecutiveFailures;
+        long cooldownUntil;
+
+        BackendHealth(long initialLatencyMs, long cooldownMs) {
+            this.cooldownMs = cooldownMs;
+            latencyMs = initialLatencyMs;
+        }
+
+        void recordSuccess(long durationMs) {
+            inFlight--;
+            consecutiveFailures = 0;
+            latencyMs = EWMA_ALPHA * durationMs + (1 - EWMA_ALPHA) * latencyMs;
+            errorRate = (1 - EWMA_ALPHA) * errorRate;
+        }
+
+        void recordRejected() {
+            inFlight--;
+        }
+
+        void recordFailure() {
+            inFlight--;
+            consecutiveFailures++;
+            errorRate = EWMA_ALPHA + (1 - EWMA_ALPHA) * errorRate;
+            if (consecutiveFailures >= COOLDOWN_FAILURES) {
+                cooldownUntil = nowMs() + cooldownMs;
+                consecutiveFailures = 0;
+            }
+        }
+
+        /**
+         * 预估完成时间：排队加上延迟，进行中的请求越多越慢，按错误率加罚
+         */
+        double expectedCostMs(long queueEstimateMs) {
+            return (queueEstimateMs + latencyMs * (1 + 0.5 * inFlight)) * (1 + ERROR_PENALTY * errorRate);
+        }
+
+        int score() {
+            if (nowMs() < cooldownUntil) {
+                return 0;
+            }
+            double latencyFactor = Math.min(1, TARGET_LATENCY_MS / Math.max(1, latencyMs));
+            return (int) Math.round(100 * (1 - errorRate) * latencyFactor);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.aicreator.services;
+
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.util.Map;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.POST;
+import retrofit2.http.Path;
+import retrofit2.http.Tag;
+
+/**
+ * HuggingFace推理API服务接口
+ */
+public interface HuggingFaceApiService {
+
+    /**
+     * 运行文生图模型
+     * @param model 模型ID，如"stabilityai/stable-diffusion-xl-base-1.0"
+     * @param body 包含inputs和parameters的请求体
+     * @param priority 限流排队的优先级
+     * @return 图像二进制数据
+     */
+    @POST("models/{model}")
+    Call<ResponseBody> textToImage(
+            @Path(value = "model", encoded = true) String model,
+            @Body Map<String, Object> body,
+            @Tag PriorityExecutor.Priority priority
+    );
+}
@@ -0,0 +1,99 @@
+package com.example.aicreator.services;
+
+import android.content.Context;
+
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * HuggingFace推理API后端
+ * 同步返回图像数据，保存为本地文件
+ */
+public class HuggingFaceBackend implements GenerationBackend {
+
+    private static final String MODEL_ID = "stabilityai/stable-diffusion-xl-base-1.0";
+
+    private final Context appContext;
+    private final HuggingFaceApiService apiService;
+    private final Executor diskExecutor;
+
+    public HuggingFaceBackend(Context context, HuggingFaceApiService apiService) {
+        this.appContext = context.getApplicationContext();
+        this.apiService = apiService;
+        this.diskExecutor = AppExecutors.getInstance().diskIO();
+    }
+
+    @Override
+    public String getName() {
+        return "HuggingFace";
+    }
+
+    @Override
+    public String getModelId() {
+        return MODEL_ID;
+    }
+
+    @Override
+    public long getQueueEstimateMs() {
+        return 0;
+    }
+
+    @Override
+    public void generate(Map<String, Object> params, Callback callback) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("width", params.get("width"));
+        parameters.put("height", params.get("height"));
+        parameters.put("guidance_scale", params.get("guidance_scale"));
+        parameters.put("num_inference_steps", params.get("num_inference_steps"));
+        if (params.get("seed") != null) {
+            parameters.put("seed", params.get("seed"));
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("inputs", params.get("prompt"));
+        body.put("parameters", parameters);
+
+        apiService.textToImage(MODEL_ID, body, PriorityExecutor.Priority.HIGH).enqueue(new retrofit2.Callback<ResponseBody>() {
+            @Override
+            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    // 模型加载中时返回503
+                    callback.onFailure(response.code() == 503
+                            ? "模型正在加载，请稍后重试"
+                            : "网络请求失败: " + response.message(),
+                            GenerationRouter.isRetryableStatus(response.code()));
+                    if (response.errorBody() != null) {
+                        response.errorBody().close();
+                    }
+                    return;
+                }
+                // 回调在主线程，写文件交给磁盘线程池
+                ResponseBody image = response.body();
+                diskExecutor.execute(() -> {
+                    try (ResponseBody body = image) {
+                        MediaType type = body.contentType();
+                        String extension = GeneratedImageFiles.extensionFor(type != null ? type.toString() : null);
+                        callback.onSuccess(GeneratedImageFiles.write(appContext, getName(), extension,
+                                body.source()));
+                    } catch (IOException e) {
+                        callback.onFailure("保存生成图像失败: " + e.getMessage(), false);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable t) {
+                callback.onFailure("网络错误: " + t.getMessage(), true);
+            }
+        });
+    }
+}
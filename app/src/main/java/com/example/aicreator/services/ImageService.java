@@ -1,31 +1,58 @@
 package com.example.aicreator.services;
 
+import android.content.Context;
 import android.util.Log;
 
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.aicreator.database.GeneratedImageDao;
+import com.example.aicreator.database.ImageWriteBuffer;
 import com.example.aicreator.models.GeneratedImage;
-import com.example.aicreator.models.ReplicateResponse;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 图像服务类
- * 处理图像生成和数据库存储的逻辑
+ * 处理图像生成和数据库存储的逻辑，生成请求由GenerationRouter分配给服务商
  */
 public class ImageService {
     private static final String TAG = "ImageService";
+    
     private final GeneratedImageDao imageDao;
-    private final ReplicateApiService apiService;
+    private final GenerationRouter router;
+    private final GenerationCache generationCache;
 
     public ImageService(ReplicateApiService apiService) {
-        this.apiService = apiService;
+        this(singleBackendRouter(apiService), null);
+    }
+    
+    public ImageService(Context context, ReplicateApiService apiService) {
+        this(singleBackendRouter(apiService), GenerationCache.getInstance(context));
+    }
+    
+    /**
+     * 使用包含所有服务商的共享路由器
+     * @param context 上下文
+     */
+    public ImageService(Context context) {
+        this(GenerationRouter.getInstance(context), GenerationCache.getInstance(context));
+    }
+    
+    public ImageService(GenerationRouter router, GenerationCache generationCache) {
+        this.router = router;
+        this.generationCache = generationCache;
         this.imageDao = new GeneratedImageDao();
     }
     
+    private static GenerationRouter singleBackendRouter(ReplicateApiService apiService) {
+        return new GenerationRouter(Collections.singletonList(
+                new ReplicateBackend(apiService, PredictionTracker.getInstance())));
+    }
+    
     /**
      * 生成图像并保存到数据库
      * @param userId 用户ID
@@ -46,58 +73,108 @@ public class ImageService {
             MutableLiveData<Boolean> isLoadingLiveData,
             MutableLiveData<String> errorLiveData,
             MutableLiveData<String> resultLiveData) {
+        generateAndSaveImage(userId, prompt, width, height, creativityLevel, null, false,
+                isLoadingLiveData, errorLiveData, resultLiveData);
+    }
+    
+    /**
+     * 生成图像并保存到数据库，相同参数的结果优先从缓存返回
+     * @param userId 用户ID
+     * @param prompt 图像描述
+     * @param width 宽度
+     * @param height 高度
+     * @param creativityLevel 创意度
+     * @param seed 随机种子，为null时由模型随机选择
+     * @param forceRegenerate 是否跳过缓存重新生成
+     * @param isLoadingLiveData 加载状态LiveData
+     * @param errorLiveData 错误信息LiveData
+     * @param resultLiveData 结果LiveData
+     */
+    public void generateAndSaveImage(
+            int userId,
+            String prompt,
+            int width,
+            int height,
+            float creativityLevel,
+            Long seed,
+            boolean forceRegenerate,
+            MutableLiveData<Boolean> isLoadingLiveData,
+            MutableLiveData<String> errorLiveData,
+            MutableLiveData<String> resultLiveData) {
         
         // 设置加载状态
         isLoadingLiveData.postValue(true);
         
         // 构建请求参数
-        Map<String, Object> params = buildRequestParams(prompt, width, height, creativityLevel);
+        Map<String, Object> params = buildRequestParams(prompt, width, height, creativityLevel, seed);
+        
+        if (generationCache == null || forceRegenerate) {
+            runPrediction(userId, prompt, params, isLoadingLiveData, errorLiveData, resultLiveData);
+            return;
+        }
         
-        // 调用Replicate API生成图像
-        apiService.runModel("stability-ai/sdxl", 
-                "a85a424be8c4e503f8698d2bc76fb2f544ec8e3f98f55c39677311b47fa5dad4", 
-                params)
-                .enqueue(new retrofit2.Callback<ReplicateResponse>() {
-                    @Override
-                    public void onResponse(retrofit2.Call<ReplicateResponse> call, 
-                                           retrofit2.Response<ReplicateResponse> response) {
-                        isLoadingLiveData.postValue(false);
-                        
-                        if (response.isSuccessful() && response.body() != null) {
-                            ReplicateResponse result = response.body();
-                            
-                            if (result.isSuccessful() && result.getOutput() != null && !result.getOutput().isEmpty()) {
-                                // 获取生成的图像URL
-                                String imageUrl = result.getOutput().get(0);
-                                
-                                // 保存到数据库
-                                saveGeneratedImage(userId, prompt, imageUrl);
-                                
-                                // 更新UI
-                                resultLiveData.postValue(imageUrl);
-                            } else {
-                                // API调用成功但处理失败
-                                String error = result.getError();
-                                errorLiveData.postValue(error != null ? error : "生成图像失败，请重试");
-                            }
-                        } else {
-                            // API调用失败
-                            errorLiveData.postValue("网络请求失败: " + response.message());
-                        }
-                    }
-                    
-                    @Override
-                    public void onFailure(retrofit2.Call<ReplicateResponse> call, Throwable t) {
-                        isLoadingLiveData.postValue(false);
-                        errorLiveData.postValue("网络错误: " + t.getMessage());
-                    }
-                });
+        // 结果按实际生成的后端缓存，按路由顺序查询各后端的缓存，都未命中时再调用模型
+        List<String> modelIds = new ArrayList<>();
+        for (GenerationBackend backend : router.getRankedBackends()) {
+            modelIds.add(backend.getModelId());
+        }
+        generationCache.lookup(modelIds, params, new GenerationCache.LookupCallback() {
+            @Override
+            public void onHit(GenerationCache.CachedResult result) {
+                Log.d(TAG, "生成结果缓存命中，命中率: " + generationCache.getHitRate());
+                isLoadingLiveData.postValue(false);
+                
+                // 缓存命中也是一次生成，同样记录到历史中
+                saveGeneratedImage(userId, prompt, result.getOutputUrl());
+                resultLiveData.postValue(result.getDisplayUri());
+            }
+            
+            @Override
+            public void onMiss() {
+                runPrediction(userId, prompt, params, isLoadingLiveData, errorLiveData, resultLiveData);
+            }
+        });
     }
     
     /**
-     * 构建Replicate API请求参数
+     * 调用模型生成图像
      */
-    private Map<String, Object> buildRequestParams(String prompt, int width, int height, float creativityLevel) {
+    private void runPrediction(
+            int userId,
+            String prompt,
+            Map<String, Object> params,
+            MutableLiveData<Boolean> isLoadingLiveData,
+            MutableLiveData<String> errorLiveData,
+            MutableLiveData<String> resultLiveData) {
+        
+        router.generate(params, new GenerationRouter.Callback() {
+            @Override
+            public void onSuccess(GenerationBackend backend, String imageUrl) {
+                isLoadingLiveData.postValue(false);
+                
+                // 保存到数据库和结果缓存，本地文件不需要再缓存
+                saveGeneratedImage(userId, prompt, imageUrl);
+                if (generationCache != null && isRemoteUrl(imageUrl)) {
+                    generationCache.store(backend.getModelId(), params, imageUrl);
+                }
+                
+                // 更新UI
+                resultLiveData.postValue(imageUrl);
+            }
+            
+            @Override
+            public void onFailure(String error) {
+                isLoadingLiveData.postValue(false);
+                errorLiveData.postValue(error);
+            }
+        });
+    }
+    
+    /**
+     * 构建通用生成参数，字段与Replicate的输入一致，其他后端自行转换
+     */
+    private Map<String, Object> buildRequestParams(String prompt, int width, int height, float creativityLevel,
+                                                   Long seed) {
         Map<String, Object> params = new java.util.HashMap<>();
         params.put("prompt", prompt);
         params.put("width", width);
@@ -105,6 +182,9 @@ public class ImageService {
         params.put("guidance_scale", creativityLevel);
         params.put("num_outputs", 1);
         params.put("num_inference_steps", 30);
+        if (seed != null) {
+            params.put("seed", seed);
+        }
         return params;
     }
     
@@ -112,19 +192,25 @@ public class ImageService {
      * 保存生成的图像到数据库
      */
     private void saveGeneratedImage(int userId, String prompt, String imageUrl) {
+        // 远程数据库供所有设备读取，本地文件（HuggingFace和OpenRouter的结果）的地址在其他设备上无效，
+        // 只保留在本机的生成目录中
+        if (!isRemoteUrl(imageUrl)) {
+            Log.d(TAG, "生成结果为本地文件，不写入远程数据库: " + imageUrl);
+            return;
+        }
+        
         GeneratedImage image = new GeneratedImage();
         image.setUserId(userId);
         image.setPrompt(prompt);
         image.setImageUrl(imageUrl);
         image.setCreatedAt(new Date());
         
-        // 异步保存到数据库
-        new Thread(() -> {
-            boolean success = imageDao.saveImage(image);
-            if (!success) {
-                Log.e(TAG, "保存图像到数据库失败");
-            }
-        }).start();
+        // 交给写缓冲合并为批量插入，失败由写缓冲记录日志
+        ImageWriteBuffer.getInstance().save(image);
+    }
+    
+    private static boolean isRemoteUrl(String imageUrl) {
+        return imageUrl != null && (imageUrl.startsWith("http://") || imageUrl.startsWith("https://"));
     }
     
     /**
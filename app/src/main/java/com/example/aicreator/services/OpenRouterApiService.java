@@ -0,0 +1,27 @@
+package com.example.aicreator.services;
+
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.util.Map;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.POST;
+import retrofit2.http.Tag;
+
+/**
+ * OpenRouter API服务接口
+ */
+public interface OpenRouterApiService {
+
+    /**
+     * 对话补全，请求图像输出时生成的图像在message.images中返回
+     * @param body 请求体
+     * @param priority 限流排队的优先级
+     * @return 原始响应
+     */
+    @POST("v1/chat/completions")
+    Call<ResponseBody> chatCompletions(@Body Map<String, Object> body,
+                                       @Tag PriorityExecutor.Priority priority);
+}
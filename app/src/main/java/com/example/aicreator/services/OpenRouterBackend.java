@@ -0,0 +1,145 @@
+package com.example.aicreator.services;
+
+import android.content.Context;
+import android.util.Base64;
+
+import com.example.aicreator.network.ModelTypeAdapterFactory;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * OpenRouter后端
+ * 通过对话补全接口请求图像输出，图像以data URL或远程URL返回
+ */
+public class OpenRouterBackend implements GenerationBackend {
+
+    private static final String MODEL_ID = "google/gemini-2.5-flash-image-preview";
+
+    private final Context appContext;
+    private final OpenRouterApiService apiService;
+    private final Executor diskExecutor;
+
+    public OpenRouterBackend(Context context, OpenRouterApiService apiService) {
+        this.appContext = context.getApplicationContext();
+        this.apiService = apiService;
+        this.diskExecutor = AppExecutors.getInstance().diskIO();
+    }
+
+    @Override
+    public String getName() {
+        return "OpenRouter";
+    }
+
+    @Override
+    public String getModelId() {
+        return MODEL_ID;
+    }
+
+    @Override
+    public long getQueueEstimateMs() {
+        return 0;
+    }
+
+    @Override
+    public void generate(Map<String, Object> params, Callback callback) {
+        // 对话模型没有尺寸参数，把尺寸写进提示词
+        String prompt = params.get("prompt") + "\n(" + params.get("width") + "x" + params.get("height") + ")";
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "user");
+        message.put("content", prompt);
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", MODEL_ID);
+        body.put("modalities", Arrays.asList("image", "text"));
+        body.put("messages", Collections.singletonList(message));
+        if (params.get("seed") != null) {
+            body.put("seed", params.get("seed"));
+        }
+
+        apiService.chatCompletions(body, PriorityExecutor.Priority.HIGH).enqueue(new retrofit2.Callback<ResponseBody>() {
+            @Override
+            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    callback.onFailure("网络请求失败: " + response.message(),
+                            GenerationRouter.isRetryableStatus(response.code()));
+                    if (response.errorBody() != null) {
+                        response.errorBody().close();
+                    }
+                    return;
+                }
+                // 回调在主线程，解析和解码交给磁盘线程池
+                ResponseBody result = response.body();
+                diskExecutor.execute(() -> {
+                    try (ResponseBody responseBody = result) {
+                        String imageUrl = extractImageUrl(responseBody.string());
+                        if (imageUrl == null) {
+                            callback.onFailure("生成图像失败，请重试", false);
+                        } else if (imageUrl.startsWith("data:")) {
+                            callback.onSuccess(saveDataUrl(imageUrl));
+                        } else {
+                            callback.onSuccess(imageUrl);
+                        }
+                    } catch (IOException | JsonParseException | IllegalArgumentException e) {
+                        callback.onFailure("解析生成结果失败: " + e.getMessage(), false);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable t) {
+                callback.onFailure("网络错误: " + t.getMessage(), true);
+            }
+        });
+    }
+
+    /**
+     * 取出choices[0].message.images[0].image_url.url
+     */
+    private static String extractImageUrl(String json) {
+        JsonObject root = ModelTypeAdapterFactory.gson().fromJson(json, JsonObject.class);
+        if (root == null) {
+            return null;
+        }
+        JsonArray choices = root.getAsJsonArray("choices");
+        if (choices == null || choices.size() == 0) {
+            return null;
+        }
+        JsonObject message = choices.get(0).getAsJsonObject().getAsJsonObject("message");
+        JsonArray images = message != null ? message.getAsJsonArray("images") : null;
+        if (images == null || images.size() == 0) {
+            return null;
+        }
+        JsonObject imageUrl = images.get(0).getAsJsonObject().getAsJsonObject("image_url");
+        JsonElement url = imageUrl != null ? imageUrl.get("url") : null;
+        return url != null && url.isJsonPrimitive() ? url.getAsString() : null;
+    }
+
+    /**
+     * 解码data:image/png;base64,...格式的图像并保存
+     */
+    private String saveDataUrl(String dataUrl) throws IOException {
+        int comma = dataUrl.indexOf(',');
+        if (comma < 0 || !dataUrl.substring(0, comma).endsWith(";base64")) {
+            throw new IOException("不支持的图像数据格式");
+        }
+        String contentType = dataUrl.substring("data:".length(), comma);
+        byte[] bytes = Base64.decode(dataUrl.substring(comma + 1), Base64.DEFAULT);
+        return GeneratedImageFiles.write(appContext, getName(),
+                GeneratedImageFiles.extensionFor(contentType), new Buffer().write(bytes));
+    }
+}
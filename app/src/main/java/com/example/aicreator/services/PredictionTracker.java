@@ -0,0 +1,348 @@
+package com.example.aicreator.services;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.aicreator.models.ReplicateResponse;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+import com.example.aicreator.utils.RetrofitClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Replicate预测跟踪器
+ * 根据预测ID持续跟踪预测状态，直到成功、失败或超时
+ * 轮询间隔根据观测到的排队时间和推理时间自适应调整，并限制全局同时进行的轮询请求数
+ */
+public class PredictionTracker {
+    private static final String TAG = "PredictionTracker";
+
+    // 全局同时进行的轮询请求上限
+    private static final int MAX_CONCURRENT_POLLS = 3;
+
+    // 轮询间隔范围（毫秒）
+    private static final long MIN_POLL_INTERVAL_MS = 500;
+    private static final long MAX_POLL_INTERVAL_MS = 8000;
+
+    // 超过预估时间后的退避系数
+    private static final double BACKOFF_FACTOR = 1.5;
+
+    // 没有历史数据时的默认排队时间和推理时间（毫秒）
+    private static final long DEFAULT_QUEUE_ESTIMATE_MS = 3000;
+    private static final long DEFAULT_PREDICT_ESTIMATE_MS = 8000;
+
+    // 指数加权平均的平滑系数
+    private static final double EWMA_ALPHA = 0.3;
+
+    // 单个预测的最长跟踪时间（毫秒）
+    private static final long MAX_TRACKING_TIME_MS = 10 * 60 * 1000;
+
+    // 连续网络错误上限
+    private static final int MAX_CONSECUTIVE_ERRORS = 5;
+
+    // 模型在最近一次完成后多长时间内视为热启动（毫秒）
+    private static final long WARM_WINDOW_MS = 60 * 1000;
+
+    // 热启动判定的排队时间上限（毫秒）
+    private static final long WARM_QUEUE_THRESHOLD_MS = 2000;
+
+    // 模型热启动时同步等待的秒数
+    public static final int SYNC_WAIT_SECONDS = 30;
+
+    private static PredictionTracker instance;
+
+    private final ReplicateApiService apiService;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore pollPermits = new Semaphore(MAX_CONCURRENT_POLLS);
+    private final Map<String, ModelStats> modelStats = new ConcurrentHashMap<>();
+    private final Map<String, TrackedPrediction> activePredictions = new ConcurrentHashMap<>();
+
+    /**
+     * 预测结果监听器
+     */
+    public interface Listener {
+        void onSucceeded(ReplicateResponse response);
+        void onFailed(String error);
+    }
+
+    public PredictionTracker(ReplicateApiService apiService) {
+        this(apiService, AppExecutors.getInstance().scheduler());
+    }
+    
+    public PredictionTracker(ReplicateApiService apiService, ScheduledExecutorService scheduler) {
+        this.apiService = apiService;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 获取PredictionTracker单例实例
+     */
+    public static synchronized PredictionTracker getInstance() {
+        if (instance == null) {
+            instance = new PredictionTracker(
+                    RetrofitClient.getReplicateInstance().create(ReplicateApiService.class));
+        }
+        return instance;
+    }
+
+    /**
+     * 获取创建预测时使用的Prefer请求头
+     * 模型最近刚完成过预测且排队时间很短时，使用同步等待减少轮询次数
+     * @param model 模型标识
+     * @return Prefer请求头，模型可能冷启动时返回null
+     */
+    public String getPreferHeader(String model) {
+        ModelStats stats = modelStats.get(model);
+        if (stats == null) {
+            return null;
+        }
+        long sinceLastCompletion = SystemClock.elapsedRealtime() - stats.lastCompletedAt;
+        if (sinceLastCompletion < WARM_WINDOW_MS && stats.queueEstimateMs < WARM_QUEUE_THRESHOLD_MS) {
+            return "wait=" + SYNC_WAIT_SECONDS;
+        }
+        return null;
+    }
+
+    /**
+     * 开始跟踪预测
+     * @param model 模型标识，用于统计该模型的排队和推理时间
+     * @param initial 创建预测时返回的响应
+     * @param listener 结果监听器，在网络线程回调
+     */
+    public void track(String model, ReplicateResponse initial, Listener listener) {
+        if (initial.isSuccessful()) {
+            statsFor(model).recordCompletion(-1, initial.getPredictTimeMillis());
+            listener.onSucceeded(initial);
+            return;
+        }
+        if (!initial.isProcessing() || initial.getId() == null) {
+            String error = initial.getError();
+            listener.onFailed(error != null ? error : "生成图像失败，请重试");
+            return;
+        }
+
+        TrackedPrediction prediction = new TrackedPrediction(initial.getId(), model, listener);
+        prediction.updateStatus(initial.getStatus());
+        activePredictions.put(prediction.id, prediction);
+        scheduleNextPoll(prediction);
+    }
+
+    /**
+     * 获取模型的预估排队时间
+     * @param model 模型标识
+     * @return 排队时间（毫秒），没有历史数据时返回默认值
+     */
+    public long getQueueEstimateMs(String model) {
+        ModelStats stats = modelStats.get(model);
+        return stats != null ? stats.queueEstimateMs : DEFAULT_QUEUE_ESTIMATE_MS;
+    }
+
+    /**
+     * 获取当前正在跟踪的预测数量
+     */
+    public int getActiveCount() {
+        return activePredictions.size();
+    }
+
+    /**
+     * 安排下一次轮询
+     */
+    private void scheduleNextPoll(TrackedPrediction prediction) {
+        scheduleNextPoll(prediction, computePollDelay(prediction));
+    }
+
+    private void scheduleNextPoll(TrackedPrediction prediction, long delayMs) {
+        scheduler.schedule(() -> poll(prediction), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 根据模型的历史排队时间和推理时间计算轮询间隔
+     * 在预计完成前按剩余时间等待，超过预估后按指数退避
+     */
+    private long computePollDelay(TrackedPrediction prediction) {
+        ModelStats stats = statsFor(prediction.model);
+        long now = SystemClock.elapsedRealtime();
+
+        long remaining;
+        if (prediction.processingSince > 0) {
+            remaining = stats.predictEstimateMs - (now - prediction.processingSince);
+        } else {
+            remaining = stats.queueEstimateMs - (now - prediction.createdAt);
+        }
+
+        long delay;
+        if (remaining > MIN_POLL_INTERVAL_MS) {
+            delay = remaining;
+        } else {
+            delay = prediction.backoffMs;
+            prediction.backoffMs = Math.min((long) (prediction.backoffMs * BACKOFF_FACTOR), MAX_POLL_INTERVAL_MS);
+        }
+        return Math.max(MIN_POLL_INTERVAL_MS, Math.min(delay, MAX_POLL_INTERVAL_MS));
+    }
+
+    /**
+     * 执行一次轮询
+     */
+    private void poll(TrackedPrediction prediction) {
+        if (SystemClock.elapsedRealtime() - prediction.createdAt > MAX_TRACKING_TIME_MS) {
+            apiService.cancelPrediction(prediction.id).enqueue(new Callback<ReplicateResponse>() {
+                @Override
+                public void onResponse(Call<ReplicateResponse> call, Response<ReplicateResponse> response) {
+                }
+
+                @Override
+                public void onFailure(Call<ReplicateResponse> call, Throwable t) {
+                    Log.w(TAG, "取消超时预测失败: " + t.getMessage());
+                }
+            });
+            finish(prediction);
+            prediction.listener.onFailed("生成超时，请重试");
+            return;
+        }
+
+        // 轮询名额已满时稍后再试，不阻塞调度线程
+        if (!pollPermits.tryAcquire()) {
+            scheduleNextPoll(prediction, MIN_POLL_INTERVAL_MS);
+            return;
+        }
+
+        // 轮询在限流器中排在交互式的生成请求之后
+        apiService.getPrediction(prediction.id, PriorityExecutor.Priority.LOW).enqueue(new Callback<ReplicateResponse>() {
+            @Override
+            public void onResponse(Call<ReplicateResponse> call, Response<ReplicateResponse> response) {
+                pollPermits.release();
+                if (response.isSuccessful() && response.body() != null) {
+                    prediction.consecutiveErrors = 0;
+                    handlePollResult(prediction, response.body());
+                } else {
+                    handlePollError(prediction, "网络请求失败: " + response.message());
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ReplicateResponse> call, Throwable t) {
+                pollPermits.release();
+                handlePollError(prediction, "网络错误: " + t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 处理轮询结果
+     */
+    private void handlePollResult(TrackedPrediction prediction, ReplicateResponse result) {
+        prediction.updateStatus(result.getStatus());
+
+        if (result.isSuccessful()) {
+            finish(prediction);
+            long processingTime = prediction.processingSince > 0
+                    ? SystemClock.elapsedRealtime() - prediction.processingSince : -1;
+            statsFor(prediction.model).recordCompletion(processingTime, result.getPredictTimeMillis());
+            prediction.listener.onSucceeded(result);
+        } else if (result.isProcessing()) {
+            scheduleNextPoll(prediction);
+        } else {
+            finish(prediction);
+            String error = result.getError();
+            prediction.listener.onFailed(error != null ? error : "生成图像失败，请重试");
+        }
+    }
+
+    /**
+     * 处理轮询错误，连续失败次数过多时放弃跟踪
+     */
+    private void handlePollError(TrackedPrediction prediction, String error) {
+        prediction.consecutiveErrors++;
+        Log.w(TAG, "轮询预测失败(" + prediction.consecutiveErrors + "): " + error);
+        if (prediction.consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
+            finish(prediction);
+            prediction.listener.onFailed(error);
+            return;
+        }
+        long delay = Math.min(MIN_POLL_INTERVAL_MS << prediction.consecutiveErrors, MAX_POLL_INTERVAL_MS);
+        scheduleNextPoll(prediction, delay);
+    }
+
+    private void finish(TrackedPrediction prediction) {
+        activePredictions.remove(prediction.id);
+    }
+
+    private ModelStats statsFor(String model) {
+        ModelStats stats = modelStats.get(model);
+        if (stats == null) {
+            modelStats.putIfAbsent(model, new ModelStats());
+            stats = modelStats.get(model);
+        }
+        return stats;
+    }
+
+    /**
+     * 正在跟踪的预测
+     */
+    private class TrackedPrediction {
+        final String id;
+        final String model;
+        final Listener listener;
+        final long createdAt;
+        volatile long processingSince;
+        volatile long backoffMs = MIN_POLL_INTERVAL_MS;
+        volatile int consecutiveErrors;
+
+        TrackedPrediction(String id, String model, Listener listener) {
+            this.id = id;
+            this.model = model;
+            this.listener = listener;
+            this.createdAt = SystemClock.elapsedRealtime();
+        }
+
+        /**
+         * 更新状态，首次进入processing时记录排队时间
+         */
+        void updateStatus(String status) {
+            if ("processing".equals(status) && processingSince == 0) {
+                processingSince = SystemClock.elapsedRealtime();
+                backoffMs = MIN_POLL_INTERVAL_MS;
+                statsFor(model).recordQueueTime(processingSince - createdAt);
+            }
+        }
+    }
+
+    /**
+     * 单个模型的排队和推理时间统计
+     */
+    private static class ModelStats {
+        volatile long queueEstimateMs = DEFAULT_QUEUE_ESTIMATE_MS;
+        volatile long predictEstimateMs = DEFAULT_PREDICT_ESTIMATE_MS;
+        volatile long lastCompletedAt;
+
+        synchronized void recordQueueTime(long queueMs) {
+            queueEstimateMs = ewma(queueEstimateMs, queueMs);
+        }
+
+        /**
+         * 记录一次完成的预测
+         * @param observedMs 本地观测到的处理时间，未知时为-1
+         * @param predictTimeMs 服务端返回的推理时间，未知时为-1
+         */
+        synchronized void recordCompletion(long observedMs, long predictTimeMs) {
+            long sample = predictTimeMs > 0 ? predictTimeMs : observedMs;
+            if (sample > 0) {
+                predictEstimateMs = ewma(predictEstimateMs, sample);
+            }
+            lastCompletedAt = SystemClock.elapsedRealtime();
+        }
+
+        private static long ewma(long current, long sample) {
+            return (long) (EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * current);
+        }
+    }
+}
@@ -4,12 +4,15 @@ import java.util.Map;
 
 import retrofit2.Call;
 import retrofit2.http.Body;
+import retrofit2.http.GET;
 import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
+import retrofit2.http.Tag;
 
 import com.example.aicreator.models.ReplicateRequest;
 import com.example.aicreator.models.ReplicateResponse;
+import com.example.aicreator.utils.PriorityExecutor;
 
 /**
  * Replicate API服务接口
@@ -58,4 +61,40 @@ public interface ReplicateApiService {
             @Path("model") String model,
             @Body Map<String, Object> input
     );
-} 
\ No newline at end of file
+    
+    /**
+     * 创建预测
+     * @param prefer 同步等待请求头（如"wait=30"），为null时立即返回
+     * @param request 包含模型版本和输入参数的请求体
+     * @param priority 限流排队的优先级
+     * @return API响应，模型未完成时状态为starting或processing
+     */
+    @POST("v1/predictions")
+    Call<ReplicateResponse> createPrediction(
+            @Header("Prefer") String prefer,
+            @Body ReplicateRequest request,
+            @Tag PriorityExecutor.Priority priority
+    );
+    
+    /**
+     * 查询预测状态
+     * @param predictionId 预测ID
+     * @param priority 限流排队的优先级
+     * @return API响应
+     */
+    @GET("v1/predictions/{id}")
+    Call<ReplicateResponse> getPrediction(
+            @Path("id") String predictionId,
+            @Tag PriorityExecutor.Priority priority
+    );
+    
+    /**
+     * 取消预测
+     * @param predictionId 预测ID
+     * @return API响应
+     */
+    @POST("v1/predictions/{id}/cancel")
+    Call<ReplicateResponse> cancelPrediction(
+            @Path("id") String predictionId
+    );
+}
@@ -0,0 +1,88 @@
+package com.example.aicreator.services;
+
+import com.example.aicreator.models.ReplicateRequest;
+import com.example.aicreator.models.ReplicateResponse;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Replicate后端
+ * 创建预测后由PredictionTracker跟踪到完成，模型热启动时同步等待结果
+ */
+public class ReplicateBackend implements GenerationBackend {
+
+    // 使用的模型及版本
+    private static final String MODEL_NAME = "stability-ai/sdxl";
+    private static final String MODEL_VERSION = "a85a424be8c4e503f8698d2bc76fb2f544ec8e3f98f55c39677311b47fa5dad4";
+
+    private final ReplicateApiService apiService;
+    private final PredictionTracker predictionTracker;
+
+    public ReplicateBackend(ReplicateApiService apiService, PredictionTracker predictionTracker) {
+        this.apiService = apiService;
+        this.predictionTracker = predictionTracker;
+    }
+
+    @Override
+    public String getName() {
+        return "Replicate";
+    }
+
+    @Override
+    public String getModelId() {
+        return MODEL_VERSION;
+    }
+
+    @Override
+    public long getQueueEstimateMs() {
+        return predictionTracker.getQueueEstimateMs(MODEL_NAME);
+    }
+
+    @Override
+    public void generate(Map<String, Object> params, Callback callback) {
+        ReplicateRequest request = new ReplicateRequest();
+        request.setVersion(MODEL_VERSION);
+        request.setInput(params);
+
+        apiService.createPrediction(predictionTracker.getPreferHeader(MODEL_NAME), request,
+                        PriorityExecutor.Priority.HIGH)
+                .enqueue(new retrofit2.Callback<ReplicateResponse>() {
+                    @Override
+                    public void onResponse(Call<ReplicateResponse> call, Response<ReplicateResponse> response) {
+                        if (!response.isSuccessful() || response.body() == null) {
+                            callback.onFailure(response.code() == 429
+                                    ? "请求过于频繁，请稍后重试"
+                                    : "网络请求失败: " + response.message(),
+                                    GenerationRouter.isRetryableStatus(response.code()));
+                            return;
+                        }
+                        // 跟踪预测直到完成
+                        predictionTracker.track(MODEL_NAME, response.body(), new PredictionTracker.Listener() {
+                            @Override
+                            public void onSucceeded(ReplicateResponse result) {
+                                if (result.getOutput() != null && !result.getOutput().isEmpty()) {
+                                    callback.onSuccess(result.getOutput().get(0));
+                                } else {
+                                    callback.onFailure("生成图像失败，请重试", false);
+                                }
+                            }
+
+                            @Override
+                            public void onFailed(String error) {
+                                // 预测已经提交，失败（内容审核、超时等）后换后端会重复计费
+                                callback.onFailure(error, false);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(Call<ReplicateResponse> call, Throwable t) {
+                        callback.onFailure("网络错误: " + t.getMessage(), true);
+                    }
+                });
+    }
+}
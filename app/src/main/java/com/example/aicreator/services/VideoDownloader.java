@@ -0,0 +1,727 @@
+package com.example.aicreator.services;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.aicreator.network.HttpClientProvider;
+import com.example.aicreator.network.ResilienceInterceptor;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.CancellationScope;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.HashingSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * 视频下载器
+ * 使用HTTP Range请求断点续传，大文件拆分为多个分段并行下载，
+ * 下载完成后校验长度（服务器提供MD5时同时校验内容），并以LiveData报告字节进度
+ */
+public class VideoDownloader {
+    private static final String TAG = "VideoDownloader";
+
+    // 未完成文件目录（位于缓存目录，存储空间不足时可被系统清理）
+    private static final String PARTIAL_DIR = "downloads";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final String CHECKPOINT_SUFFIX = ".meta";
+
+    // 超过该大小且服务器支持Range时才分段并行下载
+    private static final long SEGMENT_THRESHOLD_BYTES = 4L * 1024 * 1024;
+    private static final long MIN_SEGMENT_BYTES = 2L * 1024 * 1024;
+    private static final int MAX_SEGMENTS = 4;
+
+    // 每次从连接读取的最大字节数，缓冲区由Okio的分段池复用
+    private static final long READ_CHUNK_BYTES = 64 * 1024;
+
+    // 每写入这么多字节保存一次断点
+    private static final long CHECKPOINT_BYTES = 1024 * 1024;
+
+    // 进度更新的最小间隔
+    private static final long PROGRESS_INTERVAL_MS = 100;
+
+    // 连接中断后的重试
+    private static final int MAX_RETRIES = 3;
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    // 超过该时间未更新的未完成文件会被清理
+    private static final long STALE_PARTIAL_MS = 24L * 60 * 60 * 1000;
+
+    private static VideoDownloader instance;
+
+    private final OkHttpClient client;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final File partialDir;
+
+    // 正在下载的未完成文件名，同一链接同时只允许一个下载
+    private final Set<String> activeDownloads = new HashSet<>();
+
+    /**
+     * 下载结果回调接口，在后台线程调用
+     */
+    public interface Callback {
+        void onComplete(File file);
+        void onError(String errorMsg);
+    }
+
+    /**
+     * 创建下载器
+     * @param context 上下文
+     * @param client 用于下载的OkHttpClient
+     * @param executor 执行下载分段的线程池，分段在读取期间一直占用线程，不应与其他网络任务共用
+     * @param scheduler 为重试计时的调度器
+     */
+    public VideoDownloader(Context context, OkHttpClient client, Executor executor,
+                           ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.partialDir = new File(context.getCacheDir(), PARTIAL_DIR);
+    }
+
+    /**
+     * 获取VideoDownloader单例实例
+     */
+    public static synchronized VideoDownloader getInstance(Context context) {
+        if (instance == null) {
+            instance = new VideoDownloader(context.getApplicationContext(),
+                    HttpClientProvider.getDownloadClient(),
+                    new PriorityExecutor("video-download", MAX_SEGMENTS, Process.THREAD_PRIORITY_BACKGROUND),
+                    AppExecutors.getInstance().scheduler());
+        }
+        return instance;
+    }
+
+    /**
+     * 开始下载，同一链接之前中断的下载会从断点继续
+     * @param url 下载链接
+     * @param target 保存位置
+     * @param callback 结果回调
+     * @return 下载任务，可用于观察进度和取消
+     */
+    public DownloadTask download(String url, File target, Callback callback) {
+        DownloadTask task = new DownloadTask(url, target, callback);
+        executor.execute(task::prepare);
+        return task;
+    }
+
+    /**
+     * 未完成文件名，由链接决定，保证重试时能找到之前的断点
+     */
+    private static String partialName(String url) {
+        return ByteString.encodeUtf8(url).sha1().hex();
+    }
+
+    /**
+     * 清理长时间未更新的未完成文件
+     */
+    private void cleanStalePartials() {
+        File[] files = partialDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long expireBefore = System.currentTimeMillis() - STALE_PARTIAL_MS;
+        for (File file : files) {
+            if (file.lastModified() < expireBefore) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * 下载进度
+     */
+    public static class DownloadProgress {
+        private final long bytesDownloaded;
+        private final long totalBytes;
+
+        public DownloadProgress(long bytesDownloaded, long totalBytes) {
+            this.bytesDownloaded = bytesDownloaded;
+            this.totalBytes = totalBytes;
+        }
+
+        public long getBytesDownloaded() {
+            return bytesDownloaded;
+        }
+
+        /**
+         * 获取文件总大小
+         * @return 总字节数，服务器未提供时返回-1
+         */
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * 获取下载百分比
+         * @return 百分比（0-100），总大小未知时返回-1
+         */
+        public int getPercent() {
+            if (totalBytes <= 0) {
+                return -1;
+            }
+            return (int) Math.min(100, bytesDownloaded * 100 / totalBytes);
+        }
+    }
+
+    /**
+     * 服务器返回的文件信息
+     */
+    private static class RemoteInfo {
+        long contentLength = -1;
+        boolean acceptsRanges;
+        // ETag或Last-Modified，用于If-Range和判断断点是否仍然有效
+        String validator;
+        // Base64编码的MD5，服务器未提供时为null
+        String md5;
+    }
+
+    /**
+     * 文件的一个下载分段，end为-1表示长度未知，读到结束为止
+     */
+    private static class Segment {
+        final long start;
+        final long end;
+        // 只由下载该分段的线程写入
+        volatile long downloaded;
+
+        Segment(long start, long end, long downloaded) {
+            this.start = start;
+            this.end = end;
+            this.downloaded = downloaded;
+        }
+
+        long length() {
+            return end < 0 ? -1 : end - start + 1;
+        }
+
+        boolean isComplete() {
+            return end >= 0 && downloaded >= length();
+        }
+    }
+
+    /**
+     * 单个下载任务
+     */
+    public class DownloadTask implements CancellationScope.Cancellable {
+        private final String url;
+        private final File target;
+        private final Callback callback;
+        private final File partialFile;
+        private final File checkpointFile;
+
+        private final MutableLiveData<DownloadProgress> progress = new MutableLiveData<>();
+        private final AtomicLong bytesDownloaded = new AtomicLong();
+        private final AtomicLong lastProgressTime = new AtomicLong();
+        private final Set<okhttp3.Call> activeCalls = Collections.synchronizedSet(new HashSet<>());
+
+        private volatile boolean cancelled;
+        private volatile boolean failed;
+
+        private RemoteInfo info;
+        private List<Segment> segments;
+
+        // 以下状态只在持有this锁时访问
+        private int remainingSegments;
+        private IOException firstError;
+        private boolean discardPartial;
+
+        DownloadTask(String url, File target, Callback callback) {
+            this.url = url;
+            this.target = target;
+            this.callback = callback;
+            String name = partialName(url);
+            this.partialFile = new File(partialDir, name + PARTIAL_SUFFIX);
+            this.checkpointFile = new File(partialDir, name + CHECKPOINT_SUFFIX);
+        }
+
+        /**
+         * 获取下载进度
+         * @return 进度LiveData
+         */
+        public LiveData<DownloadProgress> getProgress() {
+            return progress;
+        }
+
+        /**
+         * 取消下载，已下载的部分保留用于续传
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            synchronized (activeCalls) {
+                for (okhttp3.Call call : activeCalls) {
+                    call.cancel();
+                }
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 查询文件信息、读取断点并分配分段
+         */
+        private void prepare() {
+            synchronized (activeDownloads) {
+                if (!activeDownloads.add(partialFile.getName())) {
+                    callback.onError("该视频正在下载");
+                    return;
+                }
+            }
+
+            try {
+                if (HttpUrl.parse(url) == null) {
+                    throw new IOException("无效的下载链接");
+                }
+                if (!partialDir.exists() && !partialDir.mkdirs()) {
+                    throw new IOException("无法创建下载目录");
+                }
+                cleanStalePartials();
+
+                info = probe();
+                segments = readCheckpoint();
+                if (segments != null) {
+                    Log.d(TAG, "从断点继续下载: " + sumDownloaded(segments) + "/" + info.contentLength);
+                } else {
+                    partialFile.delete();
+                    segments = planSegments();
+                }
+            } catch (IOException e) {
+                finish(e);
+                return;
+            }
+
+            bytesDownloaded.set(sumDownloaded(segments));
+            progress.postValue(new DownloadProgress(bytesDownloaded.get(), info.contentLength));
+
+            synchronized (this) {
+                remainingSegments = segments.size();
+            }
+            for (Segment segment : segments) {
+                runSegment(segment, 0);
+            }
+        }
+
+        /**
+         * 通过HEAD请求获取文件大小、是否支持Range和校验信息，失败时按未知大小单连接下载
+         */
+        private RemoteInfo probe() throws IOException {
+            RemoteInfo result = new RemoteInfo();
+            Request request = new Request.Builder().url(url).head().build();
+            okhttp3.Call call = track(client.newCall(request));
+            try (Response response = call.execute()) {
+                if (!response.isSuccessful()) {
+                    Log.w(TAG, "获取文件信息失败: " + response.code());
+                    return result;
+                }
+                result.contentLength = parseLong(response.header("Content-Length"));
+                result.acceptsRanges = "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+                result.validator = response.header("ETag");
+                if (result.validator == null) {
+                    result.validator = response.header("Last-Modified");
+                }
+                result.md5 = parseMd5(response);
+            } catch (IOException e) {
+                if (cancelled) {
+                    throw e;
+                }
+                Log.w(TAG, "获取文件信息异常: " + e.getMessage());
+            } finally {
+                activeCalls.remove(call);
+            }
+            return result;
+        }
+
+        /**
+         * 按文件大小分配分段
+         */
+        private List<Segment> planSegments() {
+            List<Segment> planned = new ArrayList<>();
+            long length = info.contentLength;
+            if (length < 0) {
+                planned.add(new Segment(0, -1, 0));
+                return planned;
+            }
+
+            int count = 1;
+            if (info.acceptsRanges && length >= SEGMENT_THRESHOLD_BYTES) {
+                count = (int) Math.min(MAX_SEGMENTS, length / MIN_SEGMENT_BYTES);
+            }
+            long segmentSize = length / count;
+            for (int i = 0; i < count; i++) {
+                long start = i * segmentSize;
+                long end = i == count - 1 ? length - 1 : start + segmentSize - 1;
+                planned.add(new Segment(start, end, 0));
+            }
+            return planned;
+        }
+
+        /**
+         * 在线程池中下载一个分段，连接中断时从已下载位置重试。
+         * 重试前的等待由调度器计时，不占用下载线程
+         * @param attempt 已重试的次数
+         */
+        private void runSegment(Segment segment, int attempt) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        transfer(segment);
+                        segmentFinished(null);
+                    } catch (IOException e) {
+                        if (cancelled || failed || attempt >= MAX_RETRIES) {
+                            segmentFinished(e);
+                            return;
+                        }
+                        Log.w(TAG, "分段下载中断，第" + (attempt + 1) + "次重试: " + e.getMessage());
+                        saveCheckpoint();
+                        try {
+                            scheduler.schedule(() -> runSegment(segment, attempt + 1),
+                                    RETRY_BACKOFF_MS * (attempt + 1), TimeUnit.MILLISECONDS);
+                        } catch (RejectedExecutionException rejected) {
+                            segmentFinished(e);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                segmentFinished(new IOException("下载线程池已关闭"));
+            }
+        }
+
+        /**
+         * 从分段的已下载位置开始读取并写入未完成文件
+         */
+        private void transfer(Segment segment) throws IOException {
+            if (segment.isComplete()) {
+                return;
+            }
+            if (cancelled) {
+                throw new IOException("下载已取消");
+            }
+
+            long from = segment.start + segment.downloaded;
+            boolean ranged = from > 0 || segments.size() > 1;
+            // 中断后由runSegment从已下载位置续传，拦截器不再重试同一请求
+            Request.Builder builder = new Request.Builder()
+                    .url(url)
+                    .header(ResilienceInterceptor.NO_RETRY_HEADER, "1");
+            if (ranged) {
+                builder.header("Range", "bytes=" + from + "-" + (segment.end >= 0 ? segment.end : ""));
+                if (info.validator != null) {
+                    builder.header("If-Range", info.validator);
+                }
+            }
+
+            okhttp3.Call call = track(client.newCall(builder.build()));
+            try (Response response = call.execute()) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    throw new IOException("HTTP " + response.code());
+                }
+                if (ranged && response.code() != 206) {
+                    // 服务器忽略了Range或文件已变化，只有单连接下载可以从头开始
+                    if (segments.size() > 1) {
+                        markPartialInvalid();
+                        throw new IOException("服务器文件已变化");
+                    }
+                    bytesDownloaded.addAndGet(-segment.downloaded);
+                    segment.downloaded = 0;
+                    from = 0;
+                }
+
+                long limit = segment.end >= 0 ? segment.length() - segment.downloaded : Long.MAX_VALUE;
+                writeBody(response.body().source(), segment, from, limit);
+            } finally {
+                activeCalls.remove(call);
+            }
+
+            if (segment.end >= 0 && !segment.isComplete()) {
+                throw new IOException("连接提前关闭");
+            }
+        }
+
+        /**
+         * 把响应体写入未完成文件的指定位置，只统计已写入文件的字节
+         */
+        private void writeBody(BufferedSource source, Segment segment, long position, long limit)
+                throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(partialFile, "rw")) {
+                if (segments.size() == 1) {
+                    // 单连接下载时位置之后的内容都已失效（例如服务器不支持Range而从头下载）
+                    file.setLength(position);
+                }
+                file.seek(position);
+                Sink sink = Okio.sink(Channels.newOutputStream(file.getChannel()));
+                Buffer buffer = new Buffer();
+                long sinceCheckpoint = 0;
+
+                while (limit > 0) {
+                    long read = source.read(buffer, Math.min(READ_CHUNK_BYTES, limit));
+                    if (read == -1) {
+                        break;
+                    }
+                    sink.write(buffer, read);
+                    segment.downloaded += read;
+                    limit -= read;
+                    onBytesWritten(read);
+
+                    sinceCheckpoint += read;
+                    if (sinceCheckpoint >= CHECKPOINT_BYTES) {
+                        saveCheckpoint();
+                        sinceCheckpoint = 0;
+                    }
+                    if (cancelled) {
+                        throw new IOException("下载已取消");
+                    }
+                }
+            }
+        }
+
+        private void onBytesWritten(long count) {
+            long total = bytesDownloaded.addAndGet(count);
+            long now = SystemClock.elapsedRealtime();
+            long last = lastProgressTime.get();
+            if (now - last >= PROGRESS_INTERVAL_MS && lastProgressTime.compareAndSet(last, now)) {
+                progress.postValue(new DownloadProgress(total, info.contentLength));
+            }
+        }
+
+        private void segmentFinished(IOException error) {
+            synchronized (this) {
+                if (error != null && firstError == null) {
+                    firstError = error;
+                    // 一个分段失败后停止其他分段，已下载的部分保留用于续传
+                    failed = true;
+                    synchronized (activeCalls) {
+                        for (okhttp3.Call call : activeCalls) {
+                            call.cancel();
+                        }
+                    }
+                }
+                if (--remainingSegments > 0) {
+                    return;
+                }
+                error = firstError;
+            }
+            finish(error);
+        }
+
+        /**
+         * 所有分段结束后校验并移动到保存位置，然后回调结果
+         */
+        private void finish(IOException error) {
+            String failure = null;
+            try {
+                if (error == null) {
+                    verify();
+                    moveToTarget();
+                    checkpointFile.delete();
+                } else {
+                    if (discardPartial()) {
+                        partialFile.delete();
+                        checkpointFile.delete();
+                    } else if (segments != null) {
+                        saveCheckpoint();
+                    }
+                    if (cancelled) {
+                        Log.d(TAG, "下载已取消: " + bytesDownloaded.get() + "字节已保留");
+                    } else {
+                        Log.e(TAG, "下载视频失败: " + error.getMessage());
+                        failure = "下载视频失败: " + error.getMessage();
+                    }
+                }
+            } catch (IOException e) {
+                partialFile.delete();
+                checkpointFile.delete();
+                Log.e(TAG, "下载视频校验失败: " + e.getMessage());
+                failure = "下载视频失败: " + e.getMessage();
+            } finally {
+                // 先释放再回调，回调中可以立即重新下载同一链接
+                synchronized (activeDownloads) {
+                    activeDownloads.remove(partialFile.getName());
+                }
+            }
+
+            if (failure != null) {
+                callback.onError(failure);
+            } else if (error == null) {
+                progress.postValue(new DownloadProgress(bytesDownloaded.get(), info.contentLength));
+                callback.onComplete(target);
+            }
+        }
+
+        /**
+         * 校验文件长度，服务器提供MD5时同时校验内容
+         */
+        private void verify() throws IOException {
+            if (info.contentLength >= 0 && partialFile.length() != info.contentLength) {
+                throw new IOException("文件长度不匹配: " + partialFile.length() + "/" + info.contentLength);
+            }
+            if (info.md5 == null) {
+                return;
+            }
+            try (BufferedSource source = Okio.buffer(Okio.source(partialFile));
+                 HashingSink hashingSink = HashingSink.md5(Okio.blackhole())) {
+                source.readAll(hashingSink);
+                if (!hashingSink.hash().base64().equals(info.md5)) {
+                    throw new IOException("文件校验和不匹配");
+                }
+            }
+        }
+
+        private void moveToTarget() throws IOException {
+            File parent = target.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("无法创建目录: " + parent);
+            }
+            if (target.exists()) {
+                target.delete();
+            }
+            if (partialFile.renameTo(target)) {
+                return;
+            }
+
+            // 不在同一文件系统时复制后删除
+            try (BufferedSource source = Okio.buffer(Okio.source(partialFile));
+                 BufferedSink sink = Okio.buffer(Okio.sink(target))) {
+                sink.writeAll(source);
+            }
+            partialFile.delete();
+        }
+
+        /**
+         * 读取断点，文件已变化或断点无效时返回null
+         */
+        private List<Segment> readCheckpoint() {
+            if (!partialFile.exists() || !checkpointFile.exists()) {
+                return null;
+            }
+            try (BufferedSource source = Okio.buffer(Okio.source(checkpointFile))) {
+                String validator = source.readUtf8LineStrict();
+                long length = Long.parseLong(source.readUtf8LineStrict());
+                if (info.contentLength < 0 || length != info.contentLength
+                        || info.validator == null || !info.validator.equals(validator)) {
+                    return null;
+                }
+
+                List<Segment> restored = new ArrayList<>();
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    String[] parts = line.split(" ");
+                    restored.add(new Segment(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                            Long.parseLong(parts[2])));
+                }
+                return restored.isEmpty() ? null : restored;
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "读取断点失败: " + e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * 保存各分段的已下载位置，只有服务器提供校验信息时断点才可用
+         */
+        private synchronized void saveCheckpoint() {
+            if (info.validator == null || info.contentLength < 0 || discardPartial) {
+                return;
+            }
+            try (BufferedSink sink = Okio.buffer(Okio.sink(checkpointFile))) {
+                sink.writeUtf8(info.validator).writeUtf8("\n");
+                sink.writeDecimalLong(info.contentLength).writeUtf8("\n");
+                for (Segment segment : segments) {
+                    sink.writeDecimalLong(segment.start).writeUtf8(" ")
+                            .writeDecimalLong(segment.end).writeUtf8(" ")
+                            .writeDecimalLong(segment.downloaded).writeUtf8("\n");
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "保存断点失败: " + e.getMessage());
+            }
+        }
+
+        private synchronized void markPartialInvalid() {
+            discardPartial = true;
+        }
+
+        private synchronized boolean discardPartial() {
+            return discardPartial;
+        }
+
+        /**
+         * 登记请求以便取消，任务已取消时立即取消请求
+         */
+        private okhttp3.Call track(okhttp3.Call call) {
+            activeCalls.add(call);
+            if (cancelled || failed) {
+                call.cancel();
+            }
+            return call;
+        }
+    }
+
+    private static long sumDownloaded(List<Segment> segments) {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.downloaded;
+        }
+        return total;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读取服务器提供的MD5（Content-MD5或x-goog-hash），均为Base64编码
+     */
+    private static String parseMd5(Response response) {
+        String contentMd5 = response.header("Content-MD5");
+        if (contentMd5 != null) {
+            return contentMd5.trim();
+        }
+        for (String value : response.headers("x-goog-hash")) {
+            for (String part : value.split(",")) {
+                String trimmed = part.trim();
+                if (trimmed.startsWith("md5=")) {
+                    return trimmed.substring(4);
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.aicreator.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用线程池注册表
+ * 按任务类型划分为磁盘/数据库、网络和计算三个有界线程池，外加一个定时任务线程和主线程执行器，
+ * 所有存储库和服务通过它提交后台任务，不再各自创建线程
+ */
+public class AppExecutors {
+    private static final String TAG = "AppExecutors";
+
+    // 磁盘和数据库线程数，SQLite WAL下读可以并发，写仍然串行
+    private static final int DISK_THREADS = 2;
+
+    // 网络线程数，OkHttp同步调用会阻塞线程
+    private static final int NETWORK_THREADS = 4;
+
+    // 计算线程数上限（解码、哈希等）
+    private static final int MAX_CPU_THREADS = 4;
+
+    private static AppExecutors instance;
+
+    private final PriorityExecutor diskIO;
+    private final PriorityExecutor networkIO;
+    private final PriorityExecutor cpu;
+    private final ScheduledExecutorService scheduler;
+    private final Executor mainThread;
+
+    public AppExecutors(int diskThreads, int networkThreads, int cpuThreads) {
+        diskIO = new PriorityExecutor("app-disk", diskThreads, Process.THREAD_PRIORITY_BACKGROUND);
+        networkIO = new PriorityExecutor("app-network", networkThreads, Process.THREAD_PRIORITY_BACKGROUND);
+        cpu = new PriorityExecutor("app-cpu", cpuThreads,
+                Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+
+        ScheduledThreadPoolExecutor scheduledPool = new ScheduledThreadPoolExecutor(1,
+                runnable -> new Thread(runnable, "app-scheduler"));
+        scheduledPool.setRemoveOnCancelPolicy(true);
+        scheduler = scheduledPool;
+
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        mainThread = mainHandler::post;
+    }
+
+    /**
+     * 获取AppExecutors单例实例
+     */
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            int cpuThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, MAX_CPU_THREADS));
+            instance = new AppExecutors(DISK_THREADS, NETWORK_THREADS, cpuThreads);
+        }
+        return instance;
+    }
+
+    /**
+     * 磁盘和数据库任务线程池
+     */
+    public PriorityExecutor diskIO() {
+        return diskIO;
+    }
+
+    /**
+     * 阻塞式网络任务线程池
+     */
+    public PriorityExecutor networkIO() {
+        return networkIO;
+    }
+
+    /**
+     * 计算密集型任务线程池
+     */
+    public PriorityExecutor cpu() {
+        return cpu;
+    }
+
+    /**
+     * 定时任务执行器，任务本身应尽快返回或转交给其他线程池
+     */
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 主线程执行器
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * 输出各线程池的统计信息
+     */
+    public void logStats() {
+        Log.d(TAG, diskIO.getStatsSummary());
+        Log.d(TAG, networkIO.getStatsSummary());
+        Log.d(TAG, cpu.getStatsSummary());
+    }
+
+    /**
+     * 关闭所有线程池，等待已提交的任务完成，超时后中断剩余任务
+     * @param timeoutMs 总的最长等待时间（毫秒）
+     * @return 全部任务在超时前完成时返回true
+     */
+    public boolean shutdown(long timeoutMs) {
+        PriorityExecutor[] pools = {diskIO, networkIO, cpu};
+
+        scheduler.shutdown();
+        for (PriorityExecutor pool : pools) {
+            pool.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean terminated = true;
+        try {
+            terminated &= awaitUntil(scheduler, deadline);
+            for (PriorityExecutor pool : pools) {
+                terminated &= awaitUntil(pool, deadline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            terminated = false;
+        }
+
+        if (!terminated) {
+            Log.w(TAG, "线程池关闭超时，中断剩余任务");
+            scheduler.shutdownNow();
+            for (PriorityExecutor pool : pools) {
+                pool.shutdownNow();
+            }
+        }
+        return terminated;
+    }
+
+    private static boolean awaitUntil(ExecutorService executor, long deadline)
+            throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        return executor.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+    }
+}
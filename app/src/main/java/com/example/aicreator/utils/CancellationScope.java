@@ -0,0 +1,144 @@
+package com.example.aicreator.utils;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import retrofit2.Call;
+
+/**
+ * 取消作用域
+ * 由ViewModel持有，登记其发起的网络请求、下载和永久观察者，
+ * ViewModel清除时调用cancel()统一中止，避免界面销毁后后台工作继续占用资源
+ */
+public class CancellationScope {
+
+    /**
+     * 可取消的工作
+     */
+    public interface Cancellable {
+        void cancel();
+    }
+
+    /**
+     * 登记句柄，工作正常结束后调用remove()取消登记
+     */
+    public interface Registration {
+        void remove();
+    }
+
+    private final Set<Cancellable> children = new LinkedHashSet<>();
+    private volatile boolean cancelled;
+
+    /**
+     * 登记可取消的工作，作用域已取消时立即取消
+     * @param cancellable 可取消的工作
+     * @return 登记句柄
+     */
+    public Registration add(Cancellable cancellable) {
+        synchronized (children) {
+            if (!cancelled) {
+                children.add(cancellable);
+                return () -> {
+                    synchronized (children) {
+                        children.remove(cancellable);
+                    }
+                };
+            }
+        }
+        cancellable.cancel();
+        return () -> { };
+    }
+
+    /**
+     * 登记Retrofit请求
+     * @param call 请求
+     * @return 登记句柄
+     */
+    public Registration add(Call<?> call) {
+        return add(call::cancel);
+    }
+
+    /**
+     * 登记OkHttp请求（例如文件下载），取消时中断正在读取的响应流
+     * @param call 请求
+     * @return 登记句柄
+     */
+    public Registration add(okhttp3.Call call) {
+        return add(call::cancel);
+    }
+
+    /**
+     * 永久观察LiveData，作用域取消时移除观察者
+     * 需要在主线程调用
+     * @param source 数据源
+     * @param observer 观察者
+     * @return 登记句柄，调用remove()会同时移除观察者
+     */
+    public <T> Registration observe(LiveData<T> source, Observer<? super T> observer) {
+        source.observeForever(observer);
+        Registration registration = add(() -> source.removeObserver(observer));
+        return () -> {
+            registration.remove();
+            source.removeObserver(observer);
+        };
+    }
+
+    /**
+     * 只接收一次结果的永久观察，收到结果或作用域取消后移除观察者
+     * 需要在主线程调用
+     * @param source 数据源
+     * @param observer 观察者
+     */
+    public <T> void observeOnce(LiveData<T> source, Observer<? super T> observer) {
+        boolean[] delivered = new boolean[1];
+        Registration[] registration = new Registration[1];
+        registration[0] = observe(source, new Observer<T>() {
+            @Override
+            public void onChanged(T value) {
+                if (delivered[0]) {
+                    return;
+                }
+                delivered[0] = true;
+                if (registration[0] != null) {
+                    registration[0].remove();
+                }
+                observer.onChanged(value);
+            }
+        });
+        
+        // 数据源已有值时observeForever会同步回调，此时句柄尚未返回
+        if (delivered[0]) {
+            registration[0].remove();
+        }
+    }
+
+    /**
+     * 作用域是否已取消，长时间运行的任务应定期检查
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消所有登记的工作，之后登记的工作会被立即取消
+     */
+    public void cancel() {
+        List<Cancellable> toCancel;
+        synchronized (children) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toCancel = new ArrayList<>(children);
+            children.clear();
+        }
+        for (Cancellable cancellable : toCancel) {
+            cancellable.cancel();
+        }
+    }
+}
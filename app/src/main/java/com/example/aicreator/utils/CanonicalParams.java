@@ -0,0 +1,116 @@
+package com.example.aicreator.utils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 请求参数规范化工具类
+ * 将参数表转换为与键顺序、数值类型无关的规范字符串并计算哈希，
+ * 用于识别内容相同的生成请求
+ */
+public class CanonicalParams {
+    
+    /**
+     * 计算参数的规范化哈希
+     * @param namespace 命名空间（如模型版本），相同参数在不同命名空间下哈希不同
+     * @param params 请求参数
+     * @return SHA-256十六进制字符串
+     */
+    public static String hash(String namespace, Map<String, ?> params) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(namespace).append('\n');
+        appendValue(builder, params);
+        return sha256(builder.toString());
+    }
+    
+    /**
+     * 生成参数的规范化字符串
+     * @param params 请求参数
+     * @return 规范化字符串
+     */
+    public static String canonicalize(Map<String, ?> params) {
+        StringBuilder builder = new StringBuilder();
+        appendValue(builder, params);
+        return builder.toString();
+    }
+    
+    private static void appendValue(StringBuilder builder, Object value) {
+        if (value == null) {
+            builder.append("null");
+        } else if (value instanceof Map) {
+            // 按键排序，保证与插入顺序无关
+            TreeMap<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            builder.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                if (!first) {
+                    builder.append(',');
+                }
+                first = false;
+                appendString(builder, entry.getKey());
+                builder.append(':');
+                appendValue(builder, entry.getValue());
+            }
+            builder.append('}');
+        } else if (value instanceof Collection) {
+            builder.append('[');
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first) {
+                    builder.append(',');
+                }
+                first = false;
+                appendValue(builder, item);
+            }
+            builder.append(']');
+        } else if (value instanceof Number) {
+            // 7、7.0f、7.0d 规范化为同一表示
+            try {
+                BigDecimal decimal = new BigDecimal(value.toString()).stripTrailingZeros();
+                builder.append(decimal.compareTo(BigDecimal.ZERO) == 0 ? "0" : decimal.toPlainString());
+            } catch (NumberFormatException e) {
+                // NaN、Infinity等无法转换的值
+                builder.append(value);
+            }
+        } else if (value instanceof Boolean) {
+            builder.append(value);
+        } else {
+            appendString(builder, value.toString());
+        }
+    }
+    
+    private static void appendString(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        builder.append('"');
+    }
+    
+    private static String sha256(String input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
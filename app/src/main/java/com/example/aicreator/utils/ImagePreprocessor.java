@@ -0,0 +1,216 @@
+package com.example.aicreator.utils;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 图片预处理工具类
+ * 上传前按模型输入分辨率缩小用户选择的照片：以有限的采样率解码、按EXIF方向旋转、
+ * 缩放后重新编码为JPEG文件，上传时从磁盘流式发送
+ */
+public class ImagePreprocessor {
+    private static final String TAG = "ImagePreprocessor";
+
+    // 重新编码的JPEG质量，在模型输入分辨率下与原图无明显差别
+    public static final int DEFAULT_JPEG_QUALITY = 85;
+
+    /**
+     * 解码、缩放并重新编码图片
+     * @param resolver 内容解析器
+     * @param uri 图片URI
+     * @param maxDimension 输出图片的最大边长
+     * @param output 输出的JPEG文件
+     * @param quality JPEG质量
+     * @return 预处理后的图片
+     * @throws IOException 无法读取、解码或写入图片时抛出
+     */
+    public static PreparedImage prepare(ContentResolver resolver, Uri uri, int maxDimension,
+                                        File output, int quality) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+
+        // 只读取尺寸
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream input = openStream(resolver, uri)) {
+            BitmapFactory.decodeStream(input, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("无法识别的图片格式");
+        }
+
+        // 以2的幂采样，解码结果的最大边长不超过目标的两倍
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxDimension);
+        Bitmap decoded;
+        try (InputStream input = openStream(resolver, uri)) {
+            decoded = BitmapFactory.decodeStream(input, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("图片解码失败");
+        }
+
+        // 旋转、翻转和缩放合并为一次变换
+        Matrix matrix = orientationMatrix(readOrientation(resolver, uri));
+        int longSide = Math.max(decoded.getWidth(), decoded.getHeight());
+        if (longSide > maxDimension) {
+            float scale = (float) maxDimension / longSide;
+            matrix.postScale(scale, scale);
+        }
+
+        Bitmap result = decoded;
+        if (!matrix.isIdentity()) {
+            result = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(),
+                    matrix, true);
+            if (result != decoded) {
+                decoded.recycle();
+            }
+        }
+
+        int width = result.getWidth();
+        int height = result.getHeight();
+        try (OutputStream out = new FileOutputStream(output)) {
+            if (!result.compress(Bitmap.CompressFormat.JPEG, quality, out)) {
+                throw new IOException("图片编码失败");
+            }
+        } finally {
+            result.recycle();
+        }
+
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "图片预处理完成: " + bounds.outWidth + "x" + bounds.outHeight + " -> "
+                + width + "x" + height + "，采样率: " + options.inSampleSize
+                + "，耗时: " + elapsed + "ms");
+        return new PreparedImage(output, querySize(resolver, uri), elapsed);
+    }
+
+    /**
+     * 计算采样率：在解码结果不小于目标尺寸的前提下取最大的2的幂
+     */
+    static int calculateInSampleSize(int width, int height, int maxDimension) {
+        int longSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static InputStream openStream(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream input = resolver.openInputStream(uri);
+        if (input == null) {
+            throw new IOException("无法打开图片: " + uri);
+        }
+        return input;
+    }
+
+    private static int readOrientation(ContentResolver resolver, Uri uri) {
+        try (InputStream input = openStream(resolver, uri)) {
+            return new ExifInterface(input).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.w(TAG, "读取EXIF方向失败: " + e.getMessage());
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static Matrix orientationMatrix(int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setRotate(180);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+            default:
+                break;
+        }
+        return matrix;
+    }
+
+    /**
+     * 查询原始文件大小
+     * @return 字节数，无法获取时返回-1
+     */
+    private static long querySize(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.SIZE},
+                null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "查询图片大小失败: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * 预处理后的图片
+     */
+    public static class PreparedImage {
+        private final File file;
+        private final long originalBytes;
+        private final long prepareMillis;
+
+        PreparedImage(File file, long originalBytes, long prepareMillis) {
+            this.file = file;
+            this.originalBytes = originalBytes;
+            this.prepareMillis = prepareMillis;
+        }
+
+        /**
+         * 获取重新编码后的JPEG文件
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * 获取原始文件大小
+         * @return 字节数，无法获取时返回-1
+         */
+        public long getOriginalBytes() {
+            return originalBytes;
+        }
+
+        /**
+         * 获取预处理耗时（毫秒）
+         */
+        public long getPrepareMillis() {
+            return prepareMillis;
+        }
+    }
+}
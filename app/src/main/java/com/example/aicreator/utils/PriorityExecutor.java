@@ -0,0 +1,188 @@
+package com.example.aicreator.utils;
+
+import android.os.Process;
+
+import java.util.Locale;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带优先级和统计的线程池
+ * 线程数固定且空闲时回收，排队任务按优先级执行，同优先级按提交顺序执行，
+ * 并统计排队深度和排队等待时间
+ */
+public class PriorityExecutor extends ThreadPoolExecutor {
+
+    /**
+     * 任务优先级
+     */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    // 空闲线程的存活时间（秒）
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final String name;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public PriorityExecutor(String name, int threadCount, int threadPriority) {
+        super(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new NamedThreadFactory(name, threadPriority));
+        this.name = name;
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 以普通优先级执行任务
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof PrioritizedTask) {
+            super.execute(command);
+            updatePeakQueueDepth(getQueue().size());
+        } else {
+            execute(Priority.NORMAL, command);
+        }
+    }
+
+    /**
+     * 以指定优先级执行任务
+     * @param priority 优先级
+     * @param command 任务
+     */
+    public void execute(Priority priority, Runnable command) {
+        execute(new PrioritizedTask(command, priority, sequence.getAndIncrement()));
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        if (runnable instanceof PrioritizedTask) {
+            long waitNanos = System.nanoTime() - ((PrioritizedTask) runnable).enqueuedAt;
+            startedCount.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            updateMaxWait(waitNanos);
+        }
+    }
+
+    // accumulateAndGet需要API 24，这里用CAS循环
+    private void updatePeakQueueDepth(int depth) {
+        int current;
+        do {
+            current = peakQueueDepth.get();
+        } while (depth > current && !peakQueueDepth.compareAndSet(current, depth));
+    }
+
+    private void updateMaxWait(long waitNanos) {
+        long current;
+        do {
+            current = maxWaitNanos.get();
+        } while (waitNanos > current && !maxWaitNanos.compareAndSet(current, waitNanos));
+    }
+
+    /**
+     * 获取线程池名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取当前排队的任务数
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    /**
+     * 获取排队任务数的峰值
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    /**
+     * 获取平均排队等待时间（毫秒）
+     */
+    public double getAverageWaitMillis() {
+        long count = startedCount.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1_000_000;
+    }
+
+    /**
+     * 获取最长排队等待时间（毫秒）
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * 获取统计信息摘要
+     */
+    public String getStatsSummary() {
+        return String.format(Locale.ROOT,
+                "%s: 活动%d 排队%d(峰值%d) 完成%d 平均等待%.1fms 最长等待%.1fms",
+                name, getActiveCount(), getQueueDepth(), getPeakQueueDepth(),
+                getCompletedTaskCount(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+
+    /**
+     * 带优先级的任务，优先级相同时先提交的先执行
+     */
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        final Runnable delegate;
+        final Priority priority;
+        final long sequence;
+        final long enqueuedAt = System.nanoTime();
+
+        PrioritizedTask(Runnable delegate, Priority priority, long sequence) {
+            this.delegate = delegate;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * 按名称编号创建线程，并设置Linux线程优先级
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final int threadPriority;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String name, int threadPriority) {
+            this.name = name;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(threadPriority);
+                runnable.run();
+            }, name + "-" + counter.incrementAndGet());
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package com.example.aicreator.utils;
 
-import java.util.concurrent.TimeUnit;
+import android.util.Log;
+
+import com.example.aicreator.network.HttpClientProvider;
+import com.example.aicreator.network.ModelTypeAdapterFactory;
+import com.example.aicreator.network.RateLimitedCallFactory;
+import com.example.aicreator.network.RateLimiter;
 
-import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
  * Retrofit网络客户端工具类
- * 用于创建和配置Retrofit实例
+ * 用于创建和配置Retrofit实例，每个服务商使用独立的客户端限流器
  */
 public class RetrofitClient {
+    private static final String TAG = "RetrofitClient";
+    
     private static final String BASE_URL_REPLICATE = "https://api.replicate.com/";
     private static final String BASE_URL_HUGGINGFACE = "https://api-inference.huggingface.co/";
     private static final String BASE_URL_OPENROUTER = "https://openrouter.ai/api/";
@@ -20,16 +25,21 @@ public class RetrofitClient {
     private static Retrofit huggingFaceInstance;
     private static Retrofit openRouterInstance;
     
+    // 各服务商的限流配置：突发请求数和每分钟请求数
+    private static final RateLimiter REPLICATE_LIMITER = new RateLimiter("Replicate", 10, 600);
+    private static final RateLimiter HUGGINGFACE_LIMITER = new RateLimiter("HuggingFace", 5, 60);
+    private static final RateLimiter OPENROUTER_LIMITER = new RateLimiter("OpenRouter", 5, 20);
+    
     /**
      * 获取Replicate API的Retrofit实例
      * @return Retrofit实例
      */
-    public static Retrofit getReplicateInstance() {
+    public static synchronized Retrofit getReplicateInstance() {
         if (replicateInstance == null) {
             replicateInstance = new Retrofit.Builder()
                     .baseUrl(BASE_URL_REPLICATE)
-                    .client(getOkHttpClient())
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .callFactory(newRateLimitedCallFactory(REPLICATE_LIMITER))
+                    .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
                     .build();
         }
         return replicateInstance;
@@ -39,12 +49,12 @@ public class RetrofitClient {
      * 获取HuggingFace API的Retrofit实例
      * @return Retrofit实例
      */
-    public static Retrofit getHuggingFaceInstance() {
+    public static synchronized Retrofit getHuggingFaceInstance() {
         if (huggingFaceInstance == null) {
             huggingFaceInstance = new Retrofit.Builder()
                     .baseUrl(BASE_URL_HUGGINGFACE)
-                    .client(getOkHttpClient())
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .callFactory(newRateLimitedCallFactory(HUGGINGFACE_LIMITER))
+                    .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
                     .build();
         }
         return huggingFaceInstance;
@@ -54,30 +64,48 @@ public class RetrofitClient {
      * 获取OpenRouter API的Retrofit实例
      * @return Retrofit实例
      */
-    public static Retrofit getOpenRouterInstance() {
+    public static synchronized Retrofit getOpenRouterInstance() {
         if (openRouterInstance == null) {
             openRouterInstance = new Retrofit.Builder()
                     .baseUrl(BASE_URL_OPENROUTER)
-                    .client(getOkHttpClient())
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .callFactory(newRateLimitedCallFactory(OPENROUTER_LIMITER))
+                    .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
                     .build();
         }
         return openRouterInstance;
     }
     
     /**
-     * 创建OkHttpClient实例
-     * @return OkHttpClient实例
+     * 获取各服务商的API地址，用于启动时预热连接
+     * @return API地址数组
+     */
+    public static String[] getBaseUrls() {
+        return new String[]{BASE_URL_REPLICATE, BASE_URL_HUGGINGFACE, BASE_URL_OPENROUTER};
+    }
+    
+    /**
+     * 创建经过限流器排队的请求工厂，客户端与其他客户端共享连接池和调度器
+     * @param limiter 服务商的限流器
+     * @return 请求工厂
+     */
+    private static RateLimitedCallFactory newRateLimitedCallFactory(RateLimiter limiter) {
+        return new RateLimitedCallFactory(HttpClientProvider.newApiClientBuilder().build(), limiter);
+    }
+    
+    /**
+     * 获取各服务商的限流器，用于查看排队深度和等待时间
+     * @return 限流器数组
+     */
+    public static RateLimiter[] getRateLimiters() {
+        return new RateLimiter[]{REPLICATE_LIMITER, HUGGINGFACE_LIMITER, OPENROUTER_LIMITER};
+    }
+    
+    /**
+     * 输出各服务商的限流统计信息
      */
-    private static OkHttpClient getOkHttpClient() {
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        
-        return new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .addInterceptor(loggingInterceptor)
-                .build();
+    public static void logRateLimiterStats() {
+        for (RateLimiter limiter : getRateLimiters()) {
+            Log.d(TAG, limiter.getStatsSummary());
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.example.aicreator.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 可手动设置结果的Future
+ * minSdk 21不能使用CompletableFuture，由生产者调用set()或setException()完成，
+ * 完成后依次执行通过addListener()注册的监听器
+ */
+public class SettableFuture<T> implements Future<T> {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private T value;
+    private Throwable failure;
+    private boolean cancelled;
+    private List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * 设置结果
+     * @return 首次完成时返回true，已完成时返回false
+     */
+    public boolean set(T result) {
+        synchronized (this) {
+            if (done.getCount() == 0) {
+                return false;
+            }
+            value = result;
+            done.countDown();
+        }
+        runListeners();
+        return true;
+    }
+
+    /**
+     * 设置异常
+     * @return 首次完成时返回true，已完成时返回false
+     */
+    public boolean setException(Throwable throwable) {
+        synchronized (this) {
+            if (done.getCount() == 0) {
+                return false;
+            }
+            failure = throwable;
+            done.countDown();
+        }
+        runListeners();
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (done.getCount() == 0) {
+                return false;
+            }
+            cancelled = true;
+            done.countDown();
+        }
+        runListeners();
+        return true;
+    }
+
+    /**
+     * 添加完成监听器，已完成时立即提交执行
+     * @param listener 监听器
+     * @param executor 执行监听器的执行器
+     */
+    public void addListener(Runnable listener, Executor executor) {
+        synchronized (this) {
+            if (done.getCount() != 0) {
+                listeners.add(() -> executor.execute(listener));
+                return;
+            }
+        }
+        executor.execute(listener);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        done.await();
+        return getResult();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    private void runListeners() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            toRun = listeners;
+            listeners = null;
+        }
+        for (Runnable listener : toRun) {
+            listener.run();
+        }
+    }
+
+    private synchronized T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return value;
+    }
+}
@@ -13,14 +13,19 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.aicreator.models.GeneratedVideo;
+import com.example.aicreator.models.VideoGenerationResponse;
 import com.example.aicreator.repository.VideoRepository;
-import com.example.aicreator.utils.FileUtils;
+import com.example.aicreator.services.VideoDownloader;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.CancellationScope;
+import com.example.aicreator.utils.ImagePreprocessor;
+import com.example.aicreator.utils.PriorityExecutor;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,12 +33,8 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import retrofit2.Call;
 
 /**
  * 图生视频ViewModel
@@ -42,23 +43,47 @@ import okhttp3.Response;
 public class ImageToVideoViewModel extends AndroidViewModel {
     private static final String TAG = "ImageToVideoViewModel";
     
+    // 缩小后的源图片目录
+    private static final String SOURCE_IMAGE_DIR = "video_sources";
+    
     private final VideoRepository videoRepository;
-    private final Executor executor;
+    private final AppExecutors executors;
+    private final VideoDownloader videoDownloader;
+    
+    // 清除时取消生成请求和视频下载
+    private final CancellationScope scope = new CancellationScope();
     
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
     private final MutableLiveData<String> successMessage = new MutableLiveData<>();
     private final MutableLiveData<File> selectedImageFile = new MutableLiveData<>();
+    
+    // 预处理后的源图片
+    private volatile ImagePreprocessor.PreparedImage preparedImage;
     private final MutableLiveData<Uri> generatedVideoUri = new MutableLiveData<>();
+    private final MutableLiveData<Integer> uploadProgress = new MutableLiveData<>();
+    private final MediatorLiveData<VideoDownloader.DownloadProgress> downloadProgress = new MediatorLiveData<>();
+    private LiveData<VideoDownloader.DownloadProgress> currentProgressSource;
     
     /**
      * 构造方法
      * @param application 应用程序实例
      */
     public ImageToVideoViewModel(@NonNull Application application) {
+        this(application, AppExecutors.getInstance(),
+                new VideoRepository(application, AppExecutors.getInstance()),
+                VideoDownloader.getInstance(application));
+    }
+    
+    /**
+     * 使用指定的依赖创建，供测试替换后端地址和线程池
+     */
+    ImageToVideoViewModel(@NonNull Application application, AppExecutors executors,
+                          VideoRepository videoRepository, VideoDownloader videoDownloader) {
         super(application);
-        videoRepository = new VideoRepository(application);
-        executor = Executors.newSingleThreadExecutor();
+        this.executors = executors;
+        this.videoRepository = videoRepository;
+        this.videoDownloader = videoDownloader;
     }
     
     /**
@@ -109,21 +134,49 @@ public class ImageToVideoViewModel extends AndroidViewModel {
         return generatedVideoUri;
     }
     
+    /**
+     * 获取图片上传进度
+     * @return 上传百分比LiveData
+     */
+    public LiveData<Integer> getUploadProgress() {
+        return uploadProgress;
+    }
+    
+    /**
+     * 获取视频下载进度
+     * @return 下载进度LiveData
+     */
+    public LiveData<VideoDownloader.DownloadProgress> getDownloadProgress() {
+        return downloadProgress;
+    }
+    
     /**
      * 设置选择的图片URI
+     * 按模型输入分辨率解码、旋转和缩放后保存，该文件既用于上传也作为视频列表的源图
      * @param imageUri 图片URI
      */
     public void setSelectedImageUri(Uri imageUri) {
-        executor.execute(() -> {
+        preparedImage = null;
+        executors.cpu().execute(PriorityExecutor.Priority.HIGH, () -> {
             try {
-                File imageFile = FileUtils.copyUriToTempFile(
+                File sourceDir = new File(getApplication().getFilesDir(), SOURCE_IMAGE_DIR);
+                if (!sourceDir.exists() && !sourceDir.mkdirs()) {
+                    throw new IOException("无法创建目录: " + sourceDir);
+                }
+                String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
+                        .format(new Date());
+                File imageFile = new File(sourceDir, "source_" + timestamp + ".jpg");
+                ImagePreprocessor.PreparedImage image = ImagePreprocessor.prepare(
                         getApplication().getContentResolver(),
                         imageUri,
-                        "image_source",
-                        ".jpg");
+                        VideoRepository.MODEL_INPUT_SIZE,
+                        imageFile,
+                        ImagePreprocessor.DEFAULT_JPEG_QUALITY);
+                
+                preparedImage = image;
                 selectedImageFile.postValue(imageFile);
             } catch (IOException e) {
-                Log.e(TAG, "无法复制图片文件: " + e.getMessage());
+                Log.e(TAG, "无法处理图片文件: " + e.getMessage());
                 errorMessage.postValue("无法处理所选图片");
             }
         });
@@ -136,23 +189,31 @@ public class ImageToVideoViewModel extends AndroidViewModel {
      * @param motionIntensity 运动强度
      */
     public void generateVideo(String style, int duration, int motionIntensity) {
-        File imageFile = selectedImageFile.getValue();
-        if (imageFile == null || !imageFile.exists()) {
+        ImagePreprocessor.PreparedImage image = preparedImage;
+        if (image == null || !image.getFile().exists()) {
             errorMessage.setValue("请先选择一张图片");
             return;
         }
         
         isLoading.setValue(true);
         
-        videoRepository.generateVideo(
-                imageFile.getAbsolutePath(),
+        Call<VideoGenerationResponse> call = videoRepository.generateVideo(
+                image,
                 style,
                 duration,
                 motionIntensity,
                 new VideoRepository.VideoGenerationCallback() {
+                    @Override
+                    public void onUploadProgress(long bytesSent, long totalBytes) {
+                        if (totalBytes > 0) {
+                            uploadProgress.postValue((int) (bytesSent * 100 / totalBytes));
+                        }
+                    }
+                    
                     @Override
                     public void onSuccess(String videoUrl) {
-                        downloadVideo(videoUrl, style, duration, motionIntensity, imageFile.getAbsolutePath());
+                        downloadVideo(videoUrl, style, duration, motionIntensity,
+                                image.getFile().getAbsolutePath());
                     }
                     
                     @Override
@@ -162,6 +223,7 @@ public class ImageToVideoViewModel extends AndroidViewModel {
                     }
                 }
         );
+        scope.add(call);
     }
     
     /**
@@ -174,55 +236,51 @@ public class ImageToVideoViewModel extends AndroidViewModel {
      */
     private void downloadVideo(String videoUrl, String style, int duration, 
                               int motionIntensity, String sourceImagePath) {
-        executor.execute(() -> {
-            OkHttpClient client = new OkHttpClient();
-            Request request = new Request.Builder()
-                    .url(videoUrl)
-                    .build();
-            
-            try {
-                Response response = client.newCall(request).execute();
-                if (response.isSuccessful() && response.body() != null) {
-                    // 保存到应用内部存储
-                    String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
-                            .format(new Date());
-                    File videoFile = new File(getApplication().getFilesDir(), 
-                            "video_" + timestamp + ".mp4");
-                    
-                    try (InputStream inputStream = response.body().byteStream();
-                         FileOutputStream outputStream = new FileOutputStream(videoFile)) {
-                        byte[] buffer = new byte[4096];
-                        int bytesRead;
-                        while ((bytesRead = inputStream.read(buffer)) != -1) {
-                            outputStream.write(buffer, 0, bytesRead);
-                        }
-                        outputStream.flush();
+        if (scope.isCancelled()) {
+            return;
+        }
+        
+        // 保存到应用内部存储
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
+                .format(new Date());
+        File videoFile = new File(getApplication().getFilesDir(), 
+                "video_" + timestamp + ".mp4");
+        
+        VideoDownloader.DownloadTask task = videoDownloader.download(videoUrl, videoFile,
+                new VideoDownloader.Callback() {
+                    @Override
+                    public void onComplete(File file) {
+                        // 保存到数据库
+                        GeneratedVideo generatedVideo = new GeneratedVideo();
+                        generatedVideo.setVideoPath(file.getAbsolutePath());
+                        generatedVideo.setSourceImagePath(sourceImagePath);
+                        generatedVideo.setVideoStyle(style);
+                        generatedVideo.setDuration(duration);
+                        generatedVideo.setMotionIntensity(motionIntensity);
+                        
+                        videoRepository.saveVideo(generatedVideo);
+                        
+                        // 发送成功消息和视频URI
+                        generatedVideoUri.postValue(Uri.fromFile(file));
+                        successMessage.postValue("视频生成成功");
+                        isLoading.postValue(false);
                     }
                     
-                    // 保存到数据库
-                    GeneratedVideo generatedVideo = new GeneratedVideo();
-                    generatedVideo.setVideoPath(videoFile.getAbsolutePath());
-                    generatedVideo.setSourceImagePath(sourceImagePath);
-                    generatedVideo.setVideoStyle(style);
-                    generatedVideo.setDuration(duration);
-                    generatedVideo.setMotionIntensity(motionIntensity);
-                    
-                    videoRepository.saveVideo(generatedVideo);
-                    
-                    // 发送成功消息和视频URI
-                    Uri videoUri = Uri.fromFile(videoFile);
-                    generatedVideoUri.postValue(videoUri);
-                    successMessage.postValue("视频生成成功");
-                } else {
-                    errorMessage.postValue("下载视频失败: " + response.code());
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "下载视频异常: " + e.getMessage());
-                errorMessage.postValue("下载视频失败: " + e.getMessage());
-            } finally {
-                isLoading.postValue(false);
-            }
-        });
+                    @Override
+                    public void onError(String errorMsg) {
+                        errorMessage.postValue(errorMsg);
+                        isLoading.postValue(false);
+                    }
+                });
+        
+        // 取消时保留已下载的部分，再次下载同一链接时从断点继续
+        scope.add(task);
+        
+        if (currentProgressSource != null) {
+            downloadProgress.removeSource(currentProgressSource);
+        }
+        currentProgressSource = task.getProgress();
+        downloadProgress.addSource(currentProgressSource, downloadProgress::setValue);
     }
     
     /**
@@ -231,7 +289,7 @@ public class ImageToVideoViewModel extends AndroidViewModel {
      * @return 保存后的URI
      */
     public void saveVideoToGallery(Uri videoUri) {
-        executor.execute(() -> {
+        executors.diskIO().execute(() -> {
             ContentResolver resolver = getApplication().getContentResolver();
             Uri externalUri;
             ContentValues values = new ContentValues();
@@ -305,4 +363,10 @@ public class ImageToVideoViewModel extends AndroidViewModel {
             videoRepository.updateFavoriteStatus(video.getId(), isFavorite);
         }
     }
-} 
\ No newline at end of file
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        scope.cancel();
+    }
+}
@@ -10,8 +10,12 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
 
 import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.model.ImageHistoryItem;
 import com.example.aicreator.models.GeneratedImage;
+import com.example.aicreator.repository.ImageHistoryPager;
 import com.example.aicreator.repository.ImageRepository;
+import com.example.aicreator.repository.PromptSearch;
+import com.example.aicreator.repository.Resource;
 
 import java.util.List;
 
@@ -28,8 +32,20 @@ public class TextToImageViewModel extends AndroidViewModel {
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
     private final MediatorLiveData<GeneratedImage> generatedImage = new MediatorLiveData<>();
     
-    // 用户历史图像
-    private LiveData<List<GeneratedImageEntity>> userImages;
+    // 当前正在观察的生成结果源
+    private LiveData<GeneratedImage> currentGenerateSource;
+    
+    // 用户历史图像，切换用户时更换数据源
+    private final MediatorLiveData<List<ImageHistoryItem>> userImages = new MediatorLiveData<>();
+    private ImageHistoryPager historyPager;
+    
+    // 历史记录的同步状态，切换用户时更换数据源
+    private final MediatorLiveData<Resource<Integer>> historyStatus = new MediatorLiveData<>();
+    private LiveData<Resource<Integer>> historyStatusSource;
+    
+    // 提示词搜索结果，切换用户时更换数据源
+    private final MediatorLiveData<List<ImageHistoryItem>> searchResults = new MediatorLiveData<>();
+    private PromptSearch promptSearch;
     
     // 当前用户ID，实际应用中应该从用户会话或登录状态获取
     private int currentUserId = 1; // 默认用户ID
@@ -40,8 +56,9 @@ public class TextToImageViewModel extends AndroidViewModel {
         // 初始化存储库
         repository = new ImageRepository(application);
         
-        // 加载用户的历史图像
-        userImages = repository.getUserImages(currentUserId);
+        // 加载用户历史图像的第一页
+        attachHistoryPager(currentUserId);
+        attachPromptSearch(currentUserId);
     }
     
     /**
@@ -68,10 +85,21 @@ public class TextToImageViewModel extends AndroidViewModel {
                 creativity
         );
         
+        // 重复提交相同参数时存储库返回同一个共享结果，无需重复添加
+        if (result == currentGenerateSource) {
+            return;
+        }
+        if (currentGenerateSource != null) {
+            generatedImage.removeSource(currentGenerateSource);
+        }
+        currentGenerateSource = result;
+        
         // 添加结果源
         generatedImage.addSource(result, image -> {
             if (image != null) {
                 generatedImage.setValue(image);
+            } else {
+                errorMessage.setValue("生成图像失败，请重试");
             }
             isLoading.setValue(false);
         });
@@ -106,10 +134,34 @@ public class TextToImageViewModel extends AndroidViewModel {
      * 获取用户的图像历史
      * @return 图像列表LiveData
      */
-    public LiveData<List<GeneratedImageEntity>> getUserImages() {
+    public LiveData<List<ImageHistoryItem>> getUserImages() {
         return userImages;
     }
     
+    /**
+     * 获取历史记录的同步状态
+     * @return 带状态的图像数量LiveData
+     */
+    public LiveData<Resource<Integer>> getHistoryStatus() {
+        return historyStatus;
+    }
+    
+    /**
+     * 加载更多历史图像
+     */
+    public void loadMoreHistory() {
+        historyPager.loadNextPage();
+    }
+    
+    /**
+     * 根据ID获取完整的图像记录
+     * @param imageId 图像ID
+     * @return 图像LiveData
+     */
+    public LiveData<GeneratedImageEntity> getImageById(int imageId) {
+        return repository.getImageById(imageId);
+    }
+    
     /**
      * 获取最近生成的图像
      * @param limit 限制数量
@@ -142,15 +194,71 @@ public class TextToImageViewModel extends AndroidViewModel {
     public void setCurrentUserId(int userId) {
         this.currentUserId = userId;
         // 切换用户后重新加载图像
-        userImages = repository.getUserImages(userId);
+        attachHistoryPager(userId);
+        attachPromptSearch(userId);
     }
     
     /**
-     * 搜索图像
+     * 搜索图像，连续输入时只查询最后一次的关键词
      * @param query 搜索关键词
+     */
+    public void searchImages(String query) {
+        promptSearch.setQuery(query);
+    }
+    
+    /**
+     * 获取搜索结果
      * @return 图像列表LiveData
      */
-    public LiveData<List<GeneratedImageEntity>> searchImages(String query) {
-        return repository.searchImages(query);
+    public LiveData<List<ImageHistoryItem>> getSearchResults() {
+        return searchResults;
+    }
+    
+    /**
+     * 为指定用户创建新的分页加载器并替换历史图像数据源
+     */
+    private void attachHistoryPager(int userId) {
+        if (historyPager != null) {
+            userImages.removeSource(historyPager.getItems());
+            historyPager.close();
+        }
+        historyPager = repository.createHistoryPager(userId);
+        userImages.addSource(historyPager.getItems(), userImages::setValue);
+        historyPager.loadNextPage();
+        
+        if (historyStatusSource != null) {
+            historyStatus.removeSource(historyStatusSource);
+        }
+        historyStatusSource = repository.getHistoryStatus(userId);
+        historyStatus.addSource(historyStatusSource, historyStatus::setValue);
+    }
+    
+    /**
+     * 为指定用户创建新的提示词搜索并替换搜索结果数据源
+     */
+    private void attachPromptSearch(int userId) {
+        if (promptSearch != null) {
+            searchResults.removeSource(promptSearch.getResults());
+            promptSearch.cancel();
+        }
+        promptSearch = repository.createPromptSearch(userId);
+        searchResults.addSource(promptSearch.getResults(), searchResults::setValue);
+    }
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        
+        // 生成请求由存储库合并共享，完成后仍会写入缓存和历史记录，这里只停止接收结果
+        if (currentGenerateSource != null) {
+            generatedImage.removeSource(currentGenerateSource);
+            currentGenerateSource = null;
+        }
+        if (historyPager != null) {
+            historyPager.close();
+        }
+        if (promptSearch != null) {
+            promptSearch.cancel();
+        }
     }
-} 
\ No newline at end of file
+}
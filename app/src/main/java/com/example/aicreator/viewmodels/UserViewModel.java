@@ -9,7 +9,9 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.example.aicreator.database.entity.UserEntity;
 import com.example.aicreator.models.User;
+import com.example.aicreator.repository.Resource;
 import com.example.aicreator.repository.UserRepository;
+import com.example.aicreator.utils.CancellationScope;
 
 /**
  * 用户ViewModel
@@ -19,6 +21,9 @@ public class UserViewModel extends AndroidViewModel {
 
     private final UserRepository repository;
     
+    // 清除时移除对存储库结果的观察
+    private final CancellationScope scope = new CancellationScope();
+    
     // 登录结果
     private final MutableLiveData<User> loginResult = new MutableLiveData<>();
     
@@ -29,7 +34,8 @@ public class UserViewModel extends AndroidViewModel {
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
     
     // 当前用户
-    private LiveData<UserEntity> currentUser;
+    private LiveData<Resource<UserEntity>> currentUser;
+    private int currentUserId;
     
     public UserViewModel(@NonNull Application application) {
         super(application);
@@ -45,7 +51,7 @@ public class UserViewModel extends AndroidViewModel {
         LiveData<User> result = repository.login(username, password);
         
         // 转发结果到 loginResult
-        result.observeForever(user -> {
+        scope.observeOnce(result, user -> {
             loginResult.setValue(user);
             
             if (user == null) {
@@ -64,7 +70,7 @@ public class UserViewModel extends AndroidViewModel {
         LiveData<User> result = repository.register(username, password, email);
         
         // 转发结果到 registerResult
-        result.observeForever(user -> {
+        scope.observeOnce(result, user -> {
             registerResult.setValue(user);
             
             if (user == null) {
@@ -74,10 +80,14 @@ public class UserViewModel extends AndroidViewModel {
     }
     
     /**
-     * 获取用户信息
+     * 获取用户信息，同一用户已在加载时不重复创建
      * @param userId 用户ID
      */
     public void loadUserById(int userId) {
+        if (currentUser != null && currentUserId == userId) {
+            return;
+        }
+        currentUserId = userId;
         currentUser = repository.getUserById(userId);
     }
     
@@ -115,9 +125,15 @@ public class UserViewModel extends AndroidViewModel {
     
     /**
      * 获取当前用户
-     * @return 当前用户LiveData
+     * @return 带缓存状态的当前用户LiveData，先返回本地数据再后台刷新
      */
-    public LiveData<UserEntity> getCurrentUser() {
+    public LiveData<Resource<UserEntity>> getCurrentUser() {
         return currentUser;
     }
-} 
\ No newline at end of file
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        scope.cancel();
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.aicreator.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectionPool测试
+ * 使用MySQL兼容模式的H2内存数据库代替MySQL服务器
+ */
+public class ConnectionPoolTest {
+
+    private static final String SELECT_BY_ID = "SELECT name FROM items WHERE id = ?";
+
+    private String jdbcUrl;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        jdbcUrl = "jdbc:h2:mem:pool" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(jdbcUrl, "sa", "", 2, 200);
+        try (Connection connection = pool.borrow(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items (id INT PRIMARY KEY AUTO_INCREMENT, name VARCHAR(50))");
+            statement.execute("INSERT INTO items (name) VALUES ('first')");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        pool.close();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void closeReturnsConnectionForReuse() throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            try (Connection connection = pool.borrow()) {
+                assertEquals("first", queryName(connection, 1));
+            }
+        }
+
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getTotalConnections());
+        assertEquals(1, pool.getIdleConnections());
+        assertEquals(6, pool.getBorrowCount());
+    }
+
+    @Test
+    public void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        long start = System.nanoTime();
+        try {
+            pool.borrow();
+            fail("连接池已满时应该超时");
+        } catch (SQLException expected) {
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("等待时间: " + waitedMs, waitedMs >= 150);
+        } finally {
+            first.close();
+            second.close();
+        }
+
+        assertEquals(1, pool.getBorrowTimeoutCount());
+        assertEquals(2, pool.getTotalConnections());
+    }
+
+    @Test
+    public void waitingBorrowerGetsReturnedConnection() throws Exception {
+        ConnectionPool slowPool = new ConnectionPool(jdbcUrl, "sa", "", 1, 5_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Connection held = slowPool.borrow();
+            CountDownLatch started = new CountDownLatch(1);
+            Future<String> waiting = executor.submit(() -> {
+                started.countDown();
+                try (Connection connection = slowPool.borrow()) {
+                    return queryName(connection, 1);
+                }
+            });
+
+            started.await();
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+            held.close();
+
+            assertEquals("first", waiting.get(2, TimeUnit.SECONDS));
+            assertEquals(1, slowPool.getCreatedCount());
+            assertTrue(slowPool.getMaxBorrowWaitMillis() >= 100);
+        } finally {
+            executor.shutdownNow();
+            slowPool.close();
+        }
+    }
+
+    @Test
+    public void uncommittedTransactionIsRolledBackOnReturn() throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO items (name) VALUES (?)")) {
+                insert.setString(1, "uncommitted");
+                insert.executeUpdate();
+            }
+        }
+
+        try (Connection connection = pool.borrow();
+             Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM items")) {
+            assertTrue(connection.getAutoCommit());
+            count.next();
+            assertEquals(1, count.getInt(1));
+        }
+    }
+
+    @Test
+    public void returnedProxyCannotBeUsed() throws SQLException {
+        Connection connection = pool.borrow();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        try {
+            connection.createStatement();
+            fail("归还后的连接不应该还能使用");
+        } catch (SQLException expected) {
+            // 预期的异常
+        }
+    }
+
+    @Test
+    public void closedPoolRejectsBorrow() {
+        pool.close();
+        try {
+            pool.borrow();
+            fail("关闭后的连接池不应该借出连接");
+        } catch (SQLException expected) {
+            assertEquals(0, pool.getTotalConnections());
+        }
+    }
+
+    @Test
+    public void preparedStatementIsReusedAcrossBorrows() throws SQLException {
+        PreparedStatement first;
+        try (Connection connection = pool.borrow();
+             PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID)) {
+            first = statement.unwrap(PreparedStatement.class);
+        }
+
+        try (Connection connection = pool.borrow();
+             PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID)) {
+            assertSame(first, statement.unwrap(PreparedStatement.class));
+            // 上一次借用设置的参数已被清空
+            statement.setInt(1, 1);
+            try (ResultSet result = statement.executeQuery()) {
+                assertTrue(result.next());
+            }
+        }
+    }
+
+    @Test
+    public void nestedUseOfSameSqlGetsSeparateStatement() throws SQLException {
+        try (Connection connection = pool.borrow();
+             PreparedStatement outer = connection.prepareStatement(SELECT_BY_ID);
+             PreparedStatement inner = connection.prepareStatement(SELECT_BY_ID)) {
+            assertNotSame(outer.unwrap(PreparedStatement.class), inner.unwrap(PreparedStatement.class));
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsClosedWhenCacheIsFull() throws SQLException {
+        PreparedStatement eldest;
+        try (Connection connection = pool.borrow()) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT 0")) {
+                eldest = statement.unwrap(PreparedStatement.class);
+            }
+            for (int i = 1; i <= DatabaseConfig.STATEMENT_CACHE_SIZE; i++) {
+                connection.prepareStatement("SELECT " + i).close();
+            }
+        }
+
+        assertTrue(eldest.isClosed());
+    }
+
+    private static String queryName(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID)) {
+            statement.setInt(1, id);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getString(1) : null;
+            }
+        }
+    }
+}
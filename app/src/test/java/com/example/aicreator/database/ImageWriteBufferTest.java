@@ -0,0 +1,159 @@
+package com.example.aicreator.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.aicreator.models.GeneratedImage;
+import com.example.aicreator.utils.AppExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ImageWriteBuffer测试
+ * 使用记录批次的假DAO代替MySQL
+ */
+public class ImageWriteBufferTest {
+
+    private AppExecutors executors;
+    private RecordingDao dao;
+    private ImageWriteBuffer buffer;
+
+    @Before
+    public void setUp() {
+        executors = new AppExecutors(1, 1, 1);
+        dao = new RecordingDao();
+        buffer = new ImageWriteBuffer(dao, executors);
+    }
+
+    @After
+    public void tearDown() {
+        executors.shutdown(1_000);
+    }
+
+    @Test
+    public void savesQueuedBeforeFlushAreWrittenInOneBatch() throws Exception {
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(buffer.save(newImage(i)));
+        }
+
+        buffer.flush();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i + 1, (int) futures.get(i).get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(1, buffer.getBatchCount());
+        assertEquals(3, dao.batchSizes().get(0).intValue());
+        assertEquals(3, buffer.getWrittenCount());
+    }
+
+    @Test
+    public void singleSaveIsWrittenAfterBatchDelay() throws Exception {
+        Future<Integer> future = buffer.save(newImage(0));
+
+        assertEquals(1, (int) future.get(2, TimeUnit.SECONDS));
+        assertEquals(1, buffer.getBatchCount());
+    }
+
+    @Test
+    public void largeBurstIsSplitIntoBoundedBatches() throws Exception {
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            futures.add(buffer.save(newImage(i)));
+        }
+        for (Future<Integer> future : futures) {
+            future.get(2, TimeUnit.SECONDS);
+        }
+
+        int total = 0;
+        for (int size : dao.batchSizes()) {
+            assertTrue("批次过大: " + size, size <= 50);
+            total += size;
+        }
+        assertEquals(120, total);
+        assertTrue(dao.batchSizes().size() < 120);
+    }
+
+    @Test
+    public void failedBatchCompletesFuturesExceptionally() throws Exception {
+        dao.fail = true;
+        Future<Integer> future = buffer.save(newImage(0));
+        buffer.flush();
+
+        assertRejected(future);
+        assertEquals(1, buffer.getFailedCount());
+    }
+
+    @Test
+    public void shutdownWritesPendingAndRejectsLaterSaves() throws Exception {
+        Future<Integer> pending = buffer.save(newImage(0));
+
+        assertTrue(buffer.shutdown(2_000));
+        assertEquals(1, (int) pending.get(0, TimeUnit.SECONDS));
+
+        Future<Integer> rejected = buffer.save(newImage(1));
+        assertRejected(rejected);
+        assertEquals(1, dao.batchSizes().size());
+    }
+
+    @Test
+    public void sharedInstanceRefusesSavesAfterShutdown() throws Exception {
+        ImageWriteBuffer.shutdownIfStarted(1_000);
+
+        // 关闭后获取的实例也不能再接收请求，不会访问数据库
+        assertRejected(ImageWriteBuffer.getInstance().save(newImage(0)));
+        assertRejected(ImageWriteBuffer.getInstance().save(newImage(1)));
+    }
+
+    private static void assertRejected(Future<Integer> future) throws Exception {
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail("保存请求应该被拒绝");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof SQLException);
+        }
+    }
+
+    private static GeneratedImage newImage(int index) {
+        GeneratedImage image = new GeneratedImage();
+        image.setUserId(1);
+        image.setPrompt("prompt " + index);
+        image.setImageUrl("https://example.com/" + index + ".png");
+        return image;
+    }
+
+    /**
+     * 记录每个批次大小并按顺序分配ID的DAO
+     */
+    private static class RecordingDao extends GeneratedImageDao {
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private int nextId = 1;
+        volatile boolean fail;
+
+        synchronized List<Integer> batchSizes() {
+            return new ArrayList<>(batchSizes);
+        }
+
+        @Override
+        public synchronized boolean saveImages(List<GeneratedImage> images) {
+            if (fail) {
+                return false;
+            }
+            batchSizes.add(images.size());
+            for (GeneratedImage image : images) {
+                image.setId(nextId++);
+            }
+            return true;
+        }
+    }
+}
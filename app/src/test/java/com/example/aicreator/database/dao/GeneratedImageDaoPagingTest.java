@@ -0,0 +1,184 @@
+package com.example.aicreator.database.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Application;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.entity.UserEntity;
+import com.example.aicreator.database.model.ImageHistoryItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 历史图像键集分页测试
+ * 基准测试默认跳过，使用 ./gradlew test -Pbenchmark 运行
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class GeneratedImageDaoPagingTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final int BENCHMARK_ROWS = 100_000;
+
+    private AppDatabase database;
+    private GeneratedImageDao imageDao;
+    private int userId;
+    private int otherUserId;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        imageDao = database.generatedImageDao();
+        userId = (int) database.userDao().insert(new UserEntity("alice", "secret", "alice@example.com"));
+        otherUserId = (int) database.userDao().insert(new UserEntity("bob", "secret", "bob@example.com"));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void pagesCoverAllRowsInOrderWithoutDuplicates() {
+        // 每三行共用一个创建时间，游标必须用id区分同一时间的行
+        insertImages(userId, 95, 3);
+        insertImages(otherUserId, 20, 1);
+
+        List<ImageHistoryItem> all = new ArrayList<>();
+        List<ImageHistoryItem> page = imageDao.getHistoryFirstPage(userId, 10);
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            ImageHistoryItem last = page.get(page.size() - 1);
+            page = imageDao.getHistoryPageAfter(userId, last.getCreatedAt().getTime(), last.getId(), 10);
+        }
+
+        assertEquals(95, all.size());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            assertTrue("重复的行: " + all.get(i).getId(), ids.add(all.get(i).getId()));
+            if (i > 0) {
+                assertTrue("顺序错误: " + i, isBefore(all.get(i - 1), all.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void lastPageIsShort() {
+        insertImages(userId, 25, 1);
+
+        List<ImageHistoryItem> first = imageDao.getHistoryFirstPage(userId, 20);
+        ImageHistoryItem last = first.get(first.size() - 1);
+        List<ImageHistoryItem> second = imageDao.getHistoryPageAfter(userId,
+                last.getCreatedAt().getTime(), last.getId(), 20);
+
+        assertEquals(20, first.size());
+        assertEquals(5, second.size());
+    }
+
+    @Test
+    public void pageQueryUsesCompositeIndex() {
+        String plan = explain("SELECT id, image_url, local_path, is_favorite, created_at FROM generated_images "
+                + "WHERE user_id = 1 AND (created_at < 5 OR (created_at = 5 AND id < 3)) "
+                + "ORDER BY created_at DESC, id DESC LIMIT 40");
+
+        assertTrue(plan, plan.contains("index_generated_images_user_id_created_at_id"));
+        assertTrue("不应额外排序: " + plan, !plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void benchmarkDeepPageAgainstOffset() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        database.runInTransaction(() -> insertImages(userId, BENCHMARK_ROWS, 1));
+
+        int pageSize = 40;
+        int depth = BENCHMARK_ROWS - 1_000;
+        ImageHistoryItem cursorItem = imageDao.getHistoryFirstPage(userId, depth).get(depth - 1);
+        long cursorTime = cursorItem.getCreatedAt().getTime();
+
+        int rounds = 50;
+        long keysetNanos = 0;
+        long offsetNanos = 0;
+        List<ImageHistoryItem> keysetPage = null;
+        List<Integer> offsetPage = null;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            keysetPage = imageDao.getHistoryPageAfter(userId, cursorTime, cursorItem.getId(), pageSize);
+            keysetNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            offsetPage = queryPageByOffset(depth, pageSize);
+            offsetNanos += System.nanoTime() - start;
+        }
+
+        for (int i = 0; i < pageSize; i++) {
+            assertEquals((int) offsetPage.get(i), keysetPage.get(i).getId());
+        }
+        System.out.println(String.format("第%d行之后的一页: 键集 %.2fms, OFFSET %.2fms",
+                depth, keysetNanos / 1e6 / rounds, offsetNanos / 1e6 / rounds));
+    }
+
+    private void insertImages(int ownerId, int count, int rowsPerTimestamp) {
+        List<GeneratedImageEntity> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            GeneratedImageEntity image = new GeneratedImageEntity(ownerId, "prompt " + i,
+                    "https://example.com/" + ownerId + "/" + i + ".png");
+            image.setCreatedAt(new Date(BASE_TIME + (i / rowsPerTimestamp) * 1_000L));
+            images.add(image);
+            if (images.size() == 1_000) {
+                imageDao.insertAll(images);
+                images.clear();
+            }
+        }
+        imageDao.insertAll(images);
+    }
+
+    private List<Integer> queryPageByOffset(int offset, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        try (Cursor cursor = database.query("SELECT id FROM generated_images WHERE user_id = ? "
+                + "ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?", new Object[]{userId, limit, offset})) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
+        }
+        return ids;
+    }
+
+    private String explain(String sql) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = database.query("EXPLAIN QUERY PLAN " + sql, null)) {
+            int detail = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private static boolean isBefore(ImageHistoryItem a, ImageHistoryItem b) {
+        long timeA = a.getCreatedAt().getTime();
+        long timeB = b.getCreatedAt().getTime();
+        return timeA > timeB || (timeA == timeB && a.getId() > b.getId());
+    }
+}
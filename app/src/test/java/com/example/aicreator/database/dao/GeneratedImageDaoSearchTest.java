@@ -0,0 +1,235 @@
+package com.example.aicreator.database.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Application;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.entity.GeneratedImageEntity;
+import com.example.aicreator.database.entity.UserEntity;
+import com.example.aicreator.database.model.ImageHistoryItem;
+import com.example.aicreator.database.model.ImageSearchMatch;
+import com.example.aicreator.database.util.FtsQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 提示词全文搜索测试
+ * 基准测试默认跳过，使用 ./gradlew test -Pbenchmark 运行
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class GeneratedImageDaoSearchTest {
+
+    private static final int BENCHMARK_ROWS = 100_000;
+    private static final String RARE_WORD = "aurora";
+
+    private static final String[] WORDS = {
+            "sunset", "portrait", "cyberpunk", "forest", "castle", "ocean", "neon", "dragon",
+            "watercolor", "mountain", "robot", "garden", "city", "winter", "desert", "galaxy"
+    };
+
+    private AppDatabase database;
+    private GeneratedImageDao imageDao;
+    private int userId;
+    private int otherUserId;
+    private long nextTime = 1_700_000_000_000L;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        imageDao = database.generatedImageDao();
+        userId = (int) database.userDao().insert(new UserEntity("alice", "secret", "alice@example.com"));
+        otherUserId = (int) database.userDao().insert(new UserEntity("bob", "secret", "bob@example.com"));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void prefixMatchIsScopedToUser() {
+        int sunset = insert(userId, "Sunset over the sea");
+        insert(userId, "Forest at night");
+        insert(otherUserId, "Sunny beach");
+
+        List<Integer> ids = search(userId, "sun");
+
+        assertEquals(Collections.singletonList(sunset), ids);
+    }
+
+    @Test
+    public void allTermsMustMatch() {
+        int both = insert(userId, "neon city street");
+        insert(userId, "neon sign");
+        insert(userId, "city skyline");
+
+        assertEquals(Collections.singletonList(both), search(userId, "city neon"));
+    }
+
+    @Test
+    public void indexFollowsUpdatesAndDeletes() {
+        int id = insert(userId, "castle in the clouds");
+        GeneratedImageEntity image = imageDao.getByIdsSync(Collections.singletonList(id)).get(0);
+        image.setPrompt("dragon over the sea");
+        imageDao.update(image);
+
+        assertTrue(search(userId, "castle").isEmpty());
+        assertEquals(Collections.singletonList(id), search(userId, "dragon"));
+
+        imageDao.deleteById(id);
+        assertTrue(search(userId, "dragon").isEmpty());
+    }
+
+    @Test
+    public void moreHitsRankHigher() {
+        int older = insert(userId, "cat cat dog");
+        int newer = insert(userId, "cat bird");
+
+        List<ImageSearchMatch> ranked = FtsQuery.rank(
+                imageDao.searchPrompts(userId, FtsQuery.toPrefixMatch("cat"), 10), 10);
+
+        assertEquals(older, ranked.get(0).getItem().getId());
+        assertEquals(newer, ranked.get(1).getItem().getId());
+    }
+
+    @Test
+    public void cjkQueryFallsBackToSubstring() {
+        int id = insert(userId, "赛博朋克风格的城市夜景");
+        insert(otherUserId, "城市夜景");
+
+        List<ImageHistoryItem> items = imageDao.searchPromptsBySubstring(userId, "城市", 10);
+
+        assertEquals(1, items.size());
+        assertEquals(id, items.get(0).getId());
+    }
+
+    @Test
+    public void matchRunsBeforeJoiningImages() {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = database.query("EXPLAIN QUERY PLAN SELECT g.id "
+                + "FROM generated_images_fts CROSS JOIN generated_images g ON g.id = generated_images_fts.rowid "
+                + "WHERE generated_images_fts MATCH 'cat*' AND g.user_id = 1 "
+                + "ORDER BY g.created_at DESC LIMIT 50", null)) {
+            int detail = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        }
+
+        // 全文查询在外层只执行一次
+        assertTrue(plan.toString(), plan.toString().startsWith("SCAN generated_images_fts")
+                || plan.toString().startsWith("SCAN TABLE generated_images_fts"));
+    }
+
+    @Test
+    public void substringWildcardsMatchLiterally() {
+        int percent = insert(userId, "100%的城市");
+        int underscore = insert(userId, "a_b城市");
+        insert(userId, "1000的城市");
+        insert(userId, "axb城市");
+
+        assertEquals(Collections.singletonList(percent), substring(userId, "100%"));
+        assertEquals(Collections.singletonList(underscore), substring(userId, "a_b"));
+    }
+
+    @Test
+    public void benchmarkFtsAgainstLike() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        database.runInTransaction(() -> {
+            List<GeneratedImageEntity> images = new ArrayList<>();
+            for (int i = 0; i < BENCHMARK_ROWS; i++) {
+                // 每1000行有一行包含较少见的词，LIKE需要扫描大部分行才能凑够一页
+                String prompt = WORDS[i % WORDS.length] + " " + WORDS[(i * 7) % WORDS.length]
+                        + " " + WORDS[(i * 13) % WORDS.length] + " variation " + i
+                        + (i % 1_000 == 0 ? " " + RARE_WORD : "");
+                images.add(newImage(userId, prompt));
+                if (images.size() == 1_000) {
+                    imageDao.insertAll(images);
+                    images.clear();
+                }
+            }
+            imageDao.insertAll(images);
+        });
+
+        // 两种查询取相同数量的行，FTS结果不做相关度排序，只比较查询本身
+        String match = FtsQuery.toPrefixMatch(RARE_WORD);
+        String pattern = FtsQuery.escapeLike(RARE_WORD);
+        int limit = 50;
+        int rounds = 20;
+        long ftsNanos = 0;
+        long likeNanos = 0;
+        List<Integer> ftsIds = null;
+        List<Integer> likeIds = null;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            List<ImageSearchMatch> ftsPage = imageDao.searchPrompts(userId, match, limit);
+            ftsNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<ImageHistoryItem> likePage = imageDao.searchPromptsBySubstring(userId, pattern, limit);
+            likeNanos += System.nanoTime() - start;
+
+            ftsIds = new ArrayList<>();
+            for (ImageSearchMatch item : ftsPage) {
+                ftsIds.add(item.getItem().getId());
+            }
+            likeIds = ids(likePage);
+        }
+
+        assertEquals(limit, ftsIds.size());
+        assertEquals(likeIds, ftsIds);
+        assertTrue(String.format("%d行中搜索: FTS %.2fms, LIKE %.2fms", BENCHMARK_ROWS,
+                ftsNanos / 1e6 / rounds, likeNanos / 1e6 / rounds), ftsNanos < likeNanos);
+    }
+
+    private List<Integer> substring(int ownerId, String query) {
+        return ids(imageDao.searchPromptsBySubstring(ownerId, FtsQuery.escapeLike(query), 10));
+    }
+
+    private static List<Integer> ids(List<ImageHistoryItem> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (ImageHistoryItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private int insert(int ownerId, String prompt) {
+        return (int) imageDao.insert(newImage(ownerId, prompt));
+    }
+
+    private GeneratedImageEntity newImage(int ownerId, String prompt) {
+        GeneratedImageEntity image = new GeneratedImageEntity(ownerId, prompt, "https://example.com/image.png");
+        image.setCreatedAt(new Date(nextTime++));
+        return image;
+    }
+
+    private List<Integer> search(int ownerId, String query) {
+        List<Integer> ids = new ArrayList<>();
+        for (ImageSearchMatch match : imageDao.searchPrompts(ownerId, FtsQuery.toPrefixMatch(query), 10)) {
+            ids.add(match.getItem().getId());
+        }
+        return ids;
+    }
+}
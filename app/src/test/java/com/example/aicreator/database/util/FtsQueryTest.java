@@ -0,0 +1,120 @@
+package com.example.aicreator.database.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.aicreator.database.model.ImageHistoryItem;
+import com.example.aicreator.database.model.ImageSearchMatch;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FtsQuery测试
+ */
+public class FtsQueryTest {
+
+    @Test
+    public void prefixMatchLowercasesAndAddsWildcards() {
+        assertEquals("red* cat*", FtsQuery.toPrefixMatch("Red  Cat"));
+        assertEquals("cyberpunk* 2077*", FtsQuery.toPrefixMatch(" cyberpunk-2077 "));
+    }
+
+    @Test
+    public void prefixMatchDropsFtsSyntax() {
+        // 引号、括号、冒号和大写的运算符都不能进入MATCH表达式
+        assertEquals("cat* or* dog*", FtsQuery.toPrefixMatch("cat OR dog"));
+        assertEquals("prompt* sunset* beach*", FtsQuery.toPrefixMatch("prompt:\"sunset\" (beach*)"));
+        assertEquals("near* 3* x*", FtsQuery.toPrefixMatch("NEAR/3 -x"));
+    }
+
+    @Test
+    public void prefixMatchReturnsNullWithoutTerms() {
+        assertNull(FtsQuery.toPrefixMatch(null));
+        assertNull(FtsQuery.toPrefixMatch(""));
+        assertNull(FtsQuery.toPrefixMatch("  *\"()- "));
+    }
+
+    @Test
+    public void escapeLikeQuotesWildcards() {
+        assertEquals("100\\%", FtsQuery.escapeLike("100%"));
+        assertEquals("a\\_b", FtsQuery.escapeLike("a_b"));
+        assertEquals("c\\\\d", FtsQuery.escapeLike("c\\d"));
+        assertEquals("城市夜景", FtsQuery.escapeLike("城市夜景"));
+    }
+
+    @Test
+    public void detectsCjkText() {
+        assertTrue(FtsQuery.containsCjk("赛博朋克城市"));
+        assertTrue(FtsQuery.containsCjk("neon 夜景"));
+        assertTrue(FtsQuery.containsCjk("さくら"));
+        assertTrue(FtsQuery.containsCjk("서울"));
+        assertFalse(FtsQuery.containsCjk("café noir"));
+        assertFalse(FtsQuery.containsCjk(null));
+    }
+
+    @Test
+    public void scoreSumsHitsWeightedByRarity() {
+        // 两个词，一列：第一个词本行命中2次、5行包含；第二个词本行命中1次、1行包含
+        byte[] info = matchInfo(2, 1, new int[][]{{2, 9, 5}, {1, 1, 1}});
+
+        assertEquals(2 / 5.0 + 1 / 1.0, FtsQuery.score(info), 1e-9);
+    }
+
+    @Test
+    public void scoreIgnoresMalformedData() {
+        assertEquals(0, FtsQuery.score(null), 0);
+        assertEquals(0, FtsQuery.score(new byte[4]), 0);
+        // 声明了两个词但数据只够一个词
+        byte[] truncated = Arrays.copyOf(matchInfo(2, 1, new int[][]{{1, 1, 1}, {1, 1, 1}}), 20);
+        assertEquals(0, FtsQuery.score(truncated), 0);
+    }
+
+    @Test
+    public void rankOrdersByScoreAndKeepsRecencyForTies() {
+        List<ImageSearchMatch> candidates = new ArrayList<>();
+        // 候选集按时间倒序：id 4最新
+        candidates.add(match(4, matchInfo(1, 1, new int[][]{{1, 1, 4}})));
+        candidates.add(match(3, matchInfo(1, 1, new int[][]{{3, 3, 4}})));
+        candidates.add(match(2, matchInfo(1, 1, new int[][]{{1, 1, 4}})));
+        candidates.add(match(1, null));
+
+        List<ImageSearchMatch> ranked = FtsQuery.rank(candidates, 3);
+
+        assertEquals(3, ranked.size());
+        assertEquals(3, ranked.get(0).getItem().getId());
+        assertEquals(4, ranked.get(1).getItem().getId());
+        assertEquals(2, ranked.get(2).getItem().getId());
+    }
+
+    /**
+     * 按matchinfo('pcx')的格式构造数据：词数、列数，然后每个词每列三个整数
+     */
+    private static byte[] matchInfo(int phrases, int columns, int[][] hits) {
+        ByteBuffer buffer = ByteBuffer.allocate((2 + 3 * phrases * columns) * 4)
+                .order(ByteOrder.nativeOrder());
+        buffer.putInt(phrases).putInt(columns);
+        for (int[] hit : hits) {
+            for (int value : hit) {
+                buffer.putInt(value);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static ImageSearchMatch match(int id, byte[] info) {
+        ImageHistoryItem item = new ImageHistoryItem();
+        item.setId(id);
+        ImageSearchMatch match = new ImageSearchMatch();
+        match.setItem(item);
+        match.setMatchInfo(info);
+        return match;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.aicreator.network;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowNetwork;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * CachingDns网络切换测试
+ * 需要Robolectric提供的ConnectivityManager，其余行为见CachingDnsTest
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class CachingDnsNetworkTest {
+
+    private static final String HOST = "api.replicate.com";
+
+    @Test
+    public void networkChangesClearCache() throws UnknownHostException {
+        CachingDnsTest.FakeDns resolver = new CachingDnsTest.FakeDns();
+        resolver.answer(HOST, InetAddress.getByName("10.0.0.1"));
+        CachingDns dns = new CachingDns(resolver, Runnable::run);
+
+        Context context = ApplicationProvider.getApplicationContext();
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        dns.watchNetworkChanges(context);
+        ConnectivityManager.NetworkCallback callback =
+                Shadows.shadowOf(connectivityManager).getNetworkCallbacks().iterator().next();
+        dns.lookup(HOST);
+
+        // 注册时已连接的网络不清空缓存
+        for (Network network : connectivityManager.getAllNetworks()) {
+            callback.onAvailable(network);
+        }
+        dns.lookup(HOST);
+        assertEquals(1, resolver.lookups(HOST));
+
+        Network newNetwork = ShadowNetwork.newInstance(100);
+        callback.onAvailable(newNetwork);
+        dns.lookup(HOST);
+        assertEquals(2, resolver.lookups(HOST));
+
+        callback.onLost(newNetwork);
+        dns.lookup(HOST);
+        assertEquals(3, resolver.lookups(HOST));
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.aicreator.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CachingDns测试
+ * 使用假的解析器、手动执行的刷新线程池和手动推进的时钟
+ */
+public class CachingDnsTest {
+
+    private static final String HOST = "api.replicate.com";
+
+    // 同时解析同一主机的线程数
+    private static final int CONCURRENT_LOOKUPS = 8;
+
+    private FakeDns resolver;
+    private QueueExecutor refreshExecutor;
+    private FakeClock clock;
+    private CachingDns dns;
+
+    @Before
+    public void setUp() throws UnknownHostException {
+        resolver = new FakeDns();
+        refreshExecutor = new QueueExecutor();
+        clock = new FakeClock();
+        dns = new CachingDns(resolver, refreshExecutor, clock);
+        resolver.answer(HOST, address("10.0.0.1"));
+    }
+
+    @Test
+    public void successIsCachedUntilTtl() throws UnknownHostException {
+        List<InetAddress> first = dns.lookup(HOST);
+        clock.advanceBy(3, TimeUnit.MINUTES);
+        List<InetAddress> second = dns.lookup(HOST);
+
+        assertSame(first, second);
+        assertEquals(1, resolver.lookups(HOST));
+
+        clock.advanceBy(3, TimeUnit.MINUTES);
+        dns.lookup(HOST);
+
+        assertEquals(2, resolver.lookups(HOST));
+    }
+
+    @Test
+    public void failureIsCachedForNegativeTtl() throws UnknownHostException {
+        resolver.fail(HOST);
+        assertLookupFails();
+        clock.advanceBy(5, TimeUnit.SECONDS);
+        assertLookupFails();
+
+        assertEquals(1, resolver.lookups(HOST));
+
+        resolver.answer(HOST, address("10.0.0.2"));
+        clock.advanceBy(6, TimeUnit.SECONDS);
+
+        assertEquals(address("10.0.0.2"), dns.lookup(HOST).get(0));
+        assertEquals(2, resolver.lookups(HOST));
+    }
+
+    @Test
+    public void entryNearExpiryIsRefreshedInBackground() throws UnknownHostException {
+        dns.lookup(HOST);
+        resolver.answer(HOST, address("10.0.0.2"));
+        clock.advanceBy(4 * 60 + 30, TimeUnit.SECONDS);
+
+        // 临近过期时仍返回旧结果，只安排一次后台刷新
+        assertEquals(address("10.0.0.1"), dns.lookup(HOST).get(0));
+        dns.lookup(HOST);
+        assertEquals(1, resolver.lookups(HOST));
+        assertEquals(1, refreshExecutor.size());
+
+        refreshExecutor.runAll();
+        assertEquals(2, resolver.lookups(HOST));
+
+        // 刷新后的结果从刷新时开始计算有效期
+        clock.advanceBy(2, TimeUnit.MINUTES);
+        assertEquals(address("10.0.0.2"), dns.lookup(HOST).get(0));
+        assertEquals(2, resolver.lookups(HOST));
+    }
+
+    @Test
+    public void failedRefreshKeepsCachedAddresses() throws UnknownHostException {
+        dns.lookup(HOST);
+        resolver.fail(HOST);
+        clock.advanceBy(4 * 60 + 30, TimeUnit.SECONDS);
+
+        dns.lookup(HOST);
+        refreshExecutor.runAll();
+
+        assertEquals(address("10.0.0.1"), dns.lookup(HOST).get(0));
+        // 刷新失败后再次使用会重新安排刷新
+        assertEquals(1, refreshExecutor.size());
+
+        clock.advanceBy(1, TimeUnit.MINUTES);
+        refreshExecutor.clear();
+        assertLookupFails();
+    }
+
+    @Test
+    public void addressesAlternateBetweenFamilies() throws UnknownHostException {
+        resolver.answer(HOST, address("10.0.0.1"), address("10.0.0.2"), address("10.0.0.3"),
+                address("2001:db8::1"), address("2001:db8::2"));
+
+        List<InetAddress> addresses = dns.lookup(HOST);
+
+        assertEquals(Arrays.asList(address("2001:db8::1"), address("10.0.0.1"), address("2001:db8::2"),
+                address("10.0.0.2"), address("10.0.0.3")), addresses);
+    }
+
+    @Test
+    public void singleFamilyKeepsOrder() throws UnknownHostException {
+        resolver.answer(HOST, address("10.0.0.2"), address("10.0.0.1"));
+
+        assertEquals(Arrays.asList(address("10.0.0.2"), address("10.0.0.1")), dns.lookup(HOST));
+    }
+
+    @Test
+    public void clearForcesNewLookup() throws UnknownHostException {
+        dns.lookup(HOST);
+        dns.clear();
+        dns.lookup(HOST);
+
+        assertEquals(2, resolver.lookups(HOST));
+        assertTrue(dns.getStatsSummary(), dns.getStatsSummary().contains("网络切换清空1"));
+        assertEquals(0, dns.getHitRate(), 0);
+    }
+
+    @Test
+    public void clearDropsCachedFailure() throws UnknownHostException {
+        resolver.fail(HOST);
+        assertLookupFails();
+        resolver.answer(HOST, address("10.0.0.2"));
+
+        dns.clear();
+
+        assertEquals(address("10.0.0.2"), dns.lookup(HOST).get(0));
+    }
+
+    @Test
+    public void concurrentMissesShareOneLookup() throws Exception {
+        resolver.block();
+        List<Thread> threads = new ArrayList<>();
+        List<List<InetAddress>> results = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_LOOKUPS; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    List<InetAddress> addresses = dns.lookup(HOST);
+                    synchronized (results) {
+                        results.add(addresses);
+                    }
+                } catch (UnknownHostException e) {
+                    // 结果数量不足时断言失败
+                }
+            }));
+        }
+        runBlocked(threads);
+
+        assertEquals(1, resolver.lookups(HOST));
+        assertEquals(CONCURRENT_LOOKUPS, results.size());
+        for (List<InetAddress> addresses : results) {
+            assertSame(results.get(0), addresses);
+        }
+    }
+
+    @Test
+    public void concurrentMissesShareFailure() throws Exception {
+        resolver.fail(HOST);
+        resolver.block();
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_LOOKUPS; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    dns.lookup(HOST);
+                } catch (UnknownHostException e) {
+                    failures.incrementAndGet();
+                }
+            }));
+        }
+        runBlocked(threads);
+
+        assertEquals(1, resolver.lookups(HOST));
+        assertEquals(CONCURRENT_LOOKUPS, failures.get());
+        // 失败结果按失败的有效期缓存
+        assertLookupFails();
+        assertEquals(1, resolver.lookups(HOST));
+    }
+
+    /**
+     * 启动线程，等所有线程都在等待解析结果后放行解析器
+     */
+    private void runBlocked(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!allWaiting(threads) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("线程没有全部进入等待", allWaiting(threads));
+        resolver.release();
+        for (Thread thread : threads) {
+            thread.join(5_000);
+        }
+    }
+
+    private static boolean allWaiting(List<Thread> threads) {
+        for (Thread thread : threads) {
+            if (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void assertLookupFails() {
+        try {
+            dns.lookup(HOST);
+            fail("解析应该失败");
+        } catch (UnknownHostException expected) {
+            // 预期的异常
+        }
+    }
+
+    private static InetAddress address(String literal) throws UnknownHostException {
+        // IP字面量不会触发真正的DNS查询
+        return InetAddress.getByName(literal);
+    }
+
+    /**
+     * 返回预设结果并记录每个主机的解析次数，可以阻塞解析直到测试放行
+     */
+    static class FakeDns implements okhttp3.Dns {
+        private final Map<String, List<InetAddress>> answers = new HashMap<>();
+        private final Map<String, Integer> lookups = new HashMap<>();
+        private volatile CountDownLatch gate;
+
+        synchronized void answer(String hostname, InetAddress... addresses) {
+            answers.put(hostname, Arrays.asList(addresses));
+        }
+
+        synchronized void fail(String hostname) {
+            answers.put(hostname, null);
+        }
+
+        synchronized int lookups(String hostname) {
+            Integer count = lookups.get(hostname);
+            return count == null ? 0 : count;
+        }
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @NonNull
+        @Override
+        public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+            List<InetAddress> addresses;
+            synchronized (this) {
+                lookups.put(hostname, lookups(hostname) + 1);
+                addresses = answers.get(hostname);
+            }
+            CountDownLatch currentGate = gate;
+            if (currentGate != null) {
+                try {
+                    currentGate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (addresses == null) {
+                throw new UnknownHostException(hostname);
+            }
+            return addresses;
+        }
+    }
+
+    /**
+     * 手动推进的时钟
+     */
+    private static class FakeClock implements CachingDns.Clock {
+        private long now = 1_000_000;
+
+        void advanceBy(long duration, TimeUnit unit) {
+            now += unit.toMillis(duration);
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return now;
+        }
+    }
+
+    /**
+     * 由测试手动执行的线程池
+     */
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            tasks.add(command);
+        }
+
+        int size() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        void clear() {
+            tasks.clear();
+        }
+    }
+}
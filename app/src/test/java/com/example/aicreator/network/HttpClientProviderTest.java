@@ -0,0 +1,78 @@
+package com.example.aicreator.network;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * HttpClientProvider测试
+ * API客户端和下载客户端都从共享客户端派生，对同一主机的请求应复用同一条连接
+ */
+public class HttpClientProviderTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        HttpClientProvider.getSharedClient().connectionPool().evictAll();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void apiCallAndDownloadReuseOneConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"status\":\"succeeded\"}"));
+        server.enqueue(new MockResponse().setBody("video-bytes"));
+
+        OkHttpClient apiClient = HttpClientProvider.newApiClientBuilder().build();
+        OkHttpClient downloadClient = HttpClientProvider.getDownloadClient();
+
+        execute(apiClient, "/v1/predictions/abc");
+        execute(downloadClient, "/files/video.mp4");
+
+        RecordedRequest apiRequest = server.takeRequest();
+        RecordedRequest downloadRequest = server.takeRequest();
+        assertEquals("/v1/predictions/abc", apiRequest.getPath());
+        // 序号是该请求在所属连接上的编号，0表示新建的连接
+        assertEquals(0, apiRequest.getSequenceNumber());
+        assertEquals(1, downloadRequest.getSequenceNumber());
+        assertEquals(1, HttpClientProvider.getConnectionCount());
+    }
+
+    @Test
+    public void derivedClientsShareDispatcherAndPool() {
+        OkHttpClient shared = HttpClientProvider.getSharedClient();
+        OkHttpClient apiClient = HttpClientProvider.newApiClientBuilder().build();
+        OkHttpClient downloadClient = HttpClientProvider.getDownloadClient();
+
+        assertEquals(shared.connectionPool(), apiClient.connectionPool());
+        assertEquals(shared.connectionPool(), downloadClient.connectionPool());
+        assertEquals(shared.dispatcher(), apiClient.dispatcher());
+        assertEquals(shared.dispatcher(), downloadClient.dispatcher());
+    }
+
+    private void execute(OkHttpClient client, String path) throws IOException {
+        Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+            // 读完响应体后连接才会回到连接池
+            response.body().string();
+        }
+    }
+}
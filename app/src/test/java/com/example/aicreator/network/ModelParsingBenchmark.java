@@ -0,0 +1,78 @@
+package com.example.aicreator.network;
+
+import com.example.aicreator.models.ReplicateResponse;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicate预测结果解析的JMH基准测试
+ * 比较流式适配器与Gson反射解析，由ModelTypeAdapterFactoryTest在-Pbenchmark时启动
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModelParsingBenchmark {
+
+    private Gson streamingGson;
+    private Gson reflectiveGson;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        streamingGson = ModelTypeAdapterFactory.gson();
+        reflectiveGson = new Gson();
+        json = predictionJson(200);
+    }
+
+    @Benchmark
+    public ReplicateResponse streaming() {
+        return streamingGson.fromJson(json, ReplicateResponse.class);
+    }
+
+    @Benchmark
+    public ReplicateResponse reflective() {
+        return reflectiveGson.fromJson(json, ReplicateResponse.class);
+    }
+
+    /**
+     * 生成接近真实轮询结果的JSON：包含完整的input参数和较长的logs
+     * @param logLines 日志行数
+     * @return JSON字符串
+     */
+    static String predictionJson(int logLines) {
+        StringBuilder logs = new StringBuilder();
+        for (int i = 0; i < logLines; i++) {
+            logs.append(i).append("%|██████████| ").append(i).append("/").append(logLines)
+                    .append(" [00:0").append(i % 10).append("<00:00, 6.21it/s]\\n");
+        }
+        return "{"
+                + "\"id\":\"gm3qorzdhgbfurvjtvhg6dckhu\","
+                + "\"version\":\"5c7d5dc6dd8bf75c1acaa8565735e7986bc5b66206b55cca93cb72c9bf15ccaa\","
+                + "\"urls\":{\"get\":\"https://api.replicate.com/v1/predictions/gm3qorzdhgbfurvjtvhg6dckhu\","
+                + "\"cancel\":\"https://api.replicate.com/v1/predictions/gm3qorzdhgbfurvjtvhg6dckhu/cancel\"},"
+                + "\"input\":{\"prompt\":\"a watercolor painting of a castle on a cliff at sunset, highly detailed\","
+                + "\"negative_prompt\":\"blurry, low quality\",\"width\":768,\"height\":768,"
+                + "\"num_outputs\":2,\"num_inference_steps\":50,\"guidance_scale\":7.5,"
+                + "\"scheduler\":\"K_EULER\",\"seed\":42,\"refine\":\"expert_ensemble_refiner\","
+                + "\"lora_scale\":0.6,\"apply_watermark\":false},"
+                + "\"logs\":\"" + logs + "\","
+                + "\"output\":[\"https://replicate.delivery/pbxt/out-0.png\","
+                + "\"https://replicate.delivery/pbxt/out-1.png\"],"
+                + "\"error\":null,"
+                + "\"status\":\"succeeded\","
+                + "\"created_at\":\"2024-05-01T10:00:00.000000Z\","
+                + "\"started_at\":\"2024-05-01T10:00:01.500000Z\","
+                + "\"completed_at\":\"2024-05-01T10:00:09.250000Z\","
+                + "\"metrics\":{\"predict_time\":7.75,\"total_time\":9.25}"
+                + "}";
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.aicreator.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.example.aicreator.models.GeneratedImage;
+import com.example.aicreator.models.ReplicateResponse;
+import com.example.aicreator.models.User;
+import com.example.aicreator.models.VideoGenerationResponse;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 流式模型适配器测试
+ * 解析结果应与Gson反射解析一致；基准测试默认跳过，使用 ./gradlew test -Pbenchmark 运行
+ */
+public class ModelTypeAdapterFactoryTest {
+
+    private final Gson streaming = ModelTypeAdapterFactory.gson();
+    private final Gson reflective = new Gson();
+
+    @Test
+    public void replicateResponseMatchesReflectiveParsing() {
+        String json = ModelParsingBenchmark.predictionJson(20);
+
+        ReplicateResponse expected = reflective.fromJson(json, ReplicateResponse.class);
+        ReplicateResponse actual = streaming.fromJson(json, ReplicateResponse.class);
+
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getOutput(), actual.getOutput());
+        assertEquals(expected.getError(), actual.getError());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getStartedAt(), actual.getStartedAt());
+        assertEquals(expected.getCompletedAt(), actual.getCompletedAt());
+        // 反射解析不会读取metrics
+        assertEquals(7.75, actual.getPredictTimeSeconds(), 0.0001);
+    }
+
+    @Test
+    public void singleOutputUrlBecomesList() {
+        ReplicateResponse response = streaming.fromJson(
+                "{\"status\":\"succeeded\",\"output\":\"https://replicate.delivery/out.mp4\"}",
+                ReplicateResponse.class);
+
+        assertEquals(Collections.singletonList("https://replicate.delivery/out.mp4"), response.getOutput());
+        assertEquals(-1, response.getPredictTimeSeconds(), 0);
+    }
+
+    @Test
+    public void structuredErrorIsReportedAsUnknown() {
+        ReplicateResponse response = streaming.fromJson(
+                "{\"status\":\"failed\",\"error\":{\"detail\":\"out of memory\"},\"output\":null}",
+                ReplicateResponse.class);
+
+        assertEquals("unknown error", response.getError());
+        assertNull(response.getOutput());
+    }
+
+    @Test
+    public void userRoundTripsThroughReflectiveFormat() {
+        User user = new User();
+        user.setId(7);
+        user.setUsername("alice");
+        user.setPassword("secret");
+        user.setEmail("alice@example.com");
+        user.setCreatedAt(new Date(1_700_000_000_000L));
+        String json = reflective.toJson(user);
+
+        User parsed = streaming.fromJson(json, User.class);
+
+        assertEquals(user.getId(), parsed.getId());
+        assertEquals(user.getUsername(), parsed.getUsername());
+        assertEquals(user.getEmail(), parsed.getEmail());
+        assertEquals(reflective.toJson(user.getCreatedAt()), reflective.toJson(parsed.getCreatedAt()));
+        assertNull(parsed.getLastLogin());
+        assertEquals(json, streaming.toJson(parsed));
+    }
+
+    @Test
+    public void generatedImageMatchesReflectiveParsing() {
+        String json = "{\"id\":3,\"userId\":7,\"prompt\":\"neon city\",\"imageUrl\":\"https://example.com/3.png\","
+                + "\"isFavorite\":true,\"localPath\":null,\"extra\":[1,2,3]}";
+
+        GeneratedImage expected = reflective.fromJson(json, GeneratedImage.class);
+        GeneratedImage actual = streaming.fromJson(json, GeneratedImage.class);
+
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getPrompt(), actual.getPrompt());
+        assertEquals(expected.getImageUrl(), actual.getImageUrl());
+        assertEquals(expected.isFavorite(), actual.isFavorite());
+        assertNull(actual.getLocalPath());
+    }
+
+    @Test
+    public void videoResponseReadsOnlyUrl() {
+        VideoGenerationResponse response = streaming.fromJson(
+                "{\"video_url\":\"https://example.com/v.mp4\",\"frames\":[{\"i\":0}]}",
+                VideoGenerationResponse.class);
+
+        assertEquals("https://example.com/v.mp4", response.getVideoUrl());
+    }
+
+    @Test
+    public void benchmarkStreamingAgainstReflective() throws Exception {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        // 耗时和每次操作分配的字节数（gc.alloc.rate.norm）写入报告文件
+        File report = new File("build/reports/jmh/model-parsing.json");
+        Files.createDirectories(report.getParentFile().toPath());
+        // 在独立的JVM中运行，避免测试进程的JIT状态和堆影响结果；子进程使用当前的类路径
+        Options options = new OptionsBuilder()
+                .include(ModelParsingBenchmark.class.getName())
+                .forks(1)
+                .jvmArgsAppend("-cp", System.getProperty("java.class.path"))
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .addProfiler(GCProfiler.class)
+                .result(report.getPath())
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+
+        Map<String, RunResult> results = new HashMap<>();
+        for (RunResult result : new Runner(options).run()) {
+            String method = result.getParams().getBenchmark();
+            results.put(method.substring(method.lastIndexOf('.') + 1), result);
+        }
+
+        double streamingBytes = allocatedBytesPerOp(results.get("streaming"));
+        double reflectiveBytes = allocatedBytesPerOp(results.get("reflective"));
+        // 流式解析多读取了反射解析忽略的metrics，允许略多的分配
+        assertTrue("流式解析每次分配" + streamingBytes + "字节，反射解析" + reflectiveBytes + "字节",
+                streamingBytes <= reflectiveBytes * 1.1);
+    }
+
+    /**
+     * 读取GC分析器记录的每次操作分配的字节数
+     */
+    private static double allocatedBytesPerOp(RunResult result) {
+        assertNotNull(result);
+        Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+        assertNotNull("缺少gc.alloc.rate.norm", allocation);
+        return allocation.getScore();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.aicreator.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Pipe;
+import org.junit.Test;
+
+/**
+ * 上传停滞判定测试
+ * 用缓冲区很小且无人读取的Pipe模拟写不出去的连接
+ */
+public class ProgressRequestBodyTest {
+
+    private static final long IDLE_TIMEOUT_MS = 200;
+
+    @Test
+    public void blockedWriteIsReportedAsStall() throws Exception {
+        ProgressRequestBody body = newBody();
+        Pipe pipe = new Pipe(16 * 1024);
+
+        Exception error = writeTo(body, pipe);
+
+        assertTrue(error instanceof ProgressRequestBody.StalledException);
+        assertEquals(16 * 1024, ((ProgressRequestBody.StalledException) error).getBytesWritten());
+    }
+
+    @Test
+    public void interruptedWriteIsNotReportedAsStall() throws Exception {
+        ProgressRequestBody body = newBody();
+        Pipe pipe = new Pipe(16 * 1024);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        AtomicReference<Boolean> interrupted = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            error.set(writeTo(body, pipe));
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        writer.start();
+        Thread.sleep(IDLE_TIMEOUT_MS / 4);
+        writer.interrupt();
+        writer.join(5_000);
+
+        assertTrue(error.get() instanceof InterruptedIOException);
+        assertFalse(error.get() instanceof ProgressRequestBody.StalledException);
+        assertTrue(interrupted.get());
+    }
+
+    private static ProgressRequestBody newBody() {
+        RequestBody content = RequestBody.create(new byte[256 * 1024],
+                MediaType.get("application/octet-stream"));
+        return new ProgressRequestBody(content, IDLE_TIMEOUT_MS, 0, (bytesWritten, contentLength) -> { });
+    }
+
+    /**
+     * 写入请求体，返回抛出的异常。写不出去的数据留在缓冲区，不关闭Sink以免关闭时再次阻塞
+     */
+    private static Exception writeTo(ProgressRequestBody body, Pipe pipe) {
+        BufferedSink sink = Okio.buffer(pipe.sink());
+        try {
+            body.writeTo(sink);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
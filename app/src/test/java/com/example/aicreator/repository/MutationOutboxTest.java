@@ -0,0 +1,142 @@
+package com.example.aicreator.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.aicreator.database.AppDatabase;
+import com.example.aicreator.database.dao.PendingMutationDao;
+import com.example.aicreator.database.entity.PendingMutationEntity;
+import com.example.aicreator.network.ApiService;
+import com.example.aicreator.network.ModelTypeAdapterFactory;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 发件箱重试测试
+ * 服务器读完请求后不响应直接断开连接，模拟发送途中网络中断
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class MutationOutboxTest {
+
+    private static final int IMAGE_ID = 7;
+
+    private AppDatabase database;
+    private PendingMutationDao mutationDao;
+    private MockWebServer server;
+    private AppExecutors executors;
+    private MutationOutbox outbox;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        mutationDao = database.pendingMutationDao();
+
+        server = new MockWebServer();
+        server.start();
+        ApiService apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient.Builder().retryOnConnectionFailure(false).build())
+                .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
+                .build()
+                .create(ApiService.class);
+
+        executors = new AppExecutors(1, 1, 1);
+        outbox = new MutationOutbox(database, apiService, executors,
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executors.shutdown(1_000);
+        server.shutdown();
+        database.close();
+    }
+
+    @Test
+    public void connectionFailuresDoNotExhaustRetries() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        }
+
+        outbox.enqueueImageFavorite(IMAGE_ID, true);
+        awaitRequests(1);
+        for (int i = 2; i <= 10; i++) {
+            outbox.requestFlush();
+            awaitRequests(i);
+        }
+
+        List<PendingMutationEntity> queued =
+                mutationDao.getQueued(PendingMutationEntity.TYPE_IMAGE_FAVORITE, IMAGE_ID);
+        assertEquals(1, queued.size());
+        PendingMutationEntity mutation = queued.get(0);
+        assertEquals(PendingMutationEntity.STATUS_PENDING, mutation.getStatus());
+        assertEquals(0, mutation.getAttemptCount());
+        assertNotNull(mutation.getLastError());
+        // 同步时仍然保留本地的收藏状态
+        assertTrue(mutationDao.getUnsyncedTargetIds(Collections.singletonList(
+                PendingMutationEntity.TYPE_IMAGE_FAVORITE)).contains(IMAGE_ID));
+    }
+
+    @Test
+    public void mutationIsSentOnceConnectionRecovers() throws Exception {
+        for (int i = 0; i < 9; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        }
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        outbox.enqueueImageFavorite(IMAGE_ID, true);
+        awaitRequests(1);
+        for (int i = 2; i <= 10; i++) {
+            outbox.requestFlush();
+            awaitRequests(i);
+        }
+
+        assertTrue(mutationDao.getQueued(PendingMutationEntity.TYPE_IMAGE_FAVORITE, IMAGE_ID).isEmpty());
+    }
+
+    /**
+     * 等待服务器收到指定数量的请求，并且发送线程处理完结果
+     */
+    private void awaitRequests(int count) throws InterruptedException {
+        PriorityExecutor networkIO = executors.networkIO();
+        PriorityExecutor diskIO = executors.diskIO();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((server.getRequestCount() < count
+                || networkIO.getActiveCount() > 0 || networkIO.getQueueDepth() > 0
+                || diskIO.getActiveCount() > 0 || diskIO.getQueueDepth() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue("服务器只收到" + server.getRequestCount() + "个请求", server.getRequestCount() >= count);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.aicreator.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * GenerationRouter测试
+ * 每个桩后端对应一个MockWebServer，由测试设置响应状态码和延迟
+ */
+public class GenerationRouterTest {
+
+    private static final long COOLDOWN_MS = 300;
+
+    private OkHttpClient client;
+    private StubBackend primary;
+    private StubBackend secondary;
+
+    @Before
+    public void setUp() throws IOException {
+        client = new OkHttpClient();
+        primary = new StubBackend("primary", client);
+        secondary = new StubBackend("secondary", client);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        primary.shutdown();
+        secondary.shutdown();
+        client.dispatcher().executorService().shutdownNow();
+    }
+
+    @Test
+    public void serverErrorFailsOverToNextBackend() throws Exception {
+        primary.status = 503;
+        GenerationRouter router = new GenerationRouter(Arrays.asList(primary, secondary));
+
+        Result result = generate(router);
+
+        assertSame(secondary, result.backend);
+        assertEquals(secondary.imageUrl(), result.imageUri);
+        assertEquals(1, primary.server.getRequestCount());
+        assertEquals(1, secondary.server.getRequestCount());
+    }
+
+    @Test
+    public void rateLimitFailsOverToNextBackend() throws Exception {
+        primary.status = 429;
+        GenerationRouter router = new GenerationRouter(Arrays.asList(primary, secondary));
+
+        Result result = generate(router);
+
+        assertSame(secondary, result.backend);
+    }
+
+    @Test
+    public void clientErrorIsNotRetriedOnOtherBackend() throws Exception {
+        primary.status = 400;
+        GenerationRouter router = new GenerationRouter(Arrays.asList(primary, secondary));
+        int scoreBefore = router.getHealthScore(primary);
+
+        Result result = generate(router);
+
+        assertEquals("HTTP 400", result.error);
+        assertEquals(0, secondary.server.getRequestCount());
+        // 拒绝请求不影响后端的健康统计
+        assertEquals(scoreBefore, router.getHealthScore(primary));
+        assertSame(primary, router.peekBackend());
+    }
+
+    @Test
+    public void allBackendsFailingReportsLastError() throws Exception {
+        primary.status = 500;
+        secondary.status = 502;
+        GenerationRouter router = new GenerationRouter(Arrays.asList(primary, secondary));
+
+        Result result = generate(router);
+
+        assertEquals("HTTP 502", result.error);
+        assertEquals(1, primary.server.getRequestCount());
+        assertEquals(1, secondary.server.getRequestCount());
+    }
+
+    @Test
+    public void slowBackendLosesFirstPlace() throws Exception {
+        primary.delayMs = 400;
+        secondary.delayMs = 20;
+        // 初始估计100ms和150ms，一次400ms的响应就让primary的估计超过secondary
+        GenerationRouter router = new GenerationRouter(Arrays.asList(primary, secondary), 100, 50, COOLDOWN_MS);
+
+        assertSame(primary, generate(router).backend);
+        assertSame(secondary, router.peekBackend());
+        assertSame(secondary, generate(router).backend);
+        assertSame(secondary, generate(router).backend);
+
+        assertEquals(1, primary.server.getRequestCount());
+        assertTrue(router.getHealthSummary(), router.getHealthScore(secondary) > 0);
+    }
+
+    @Test
+    public void repeatedFailuresCoolBackendDown() throws Exception {
+        primary.status = 503;
+        // secondary的初始估计远大于primary，primary在冷却前一直排在第一
+        GenerationRouter router = new GenerationRouter(Arrays.asList(primary, secondary), 100, 10_000, COOLDOWN_MS);
+        for (int i = 0; i < 3; i++) {
+            assertSame(secondary, generate(router).backend);
+        }
+
+        assertEquals(0, router.getHealthScore(primary));
+        assertSame(primary, router.getRankedBackends().get(1));
+        assertSame(secondary, generate(router).backend);
+        assertEquals(3, primary.server.getRequestCount());
+
+        Thread.sleep(COOLDOWN_MS + 50);
+        primary.status = 200;
+
+        assertTrue(router.getHealthScore(primary) > 0);
+        assertSame(primary, generate(router).backend);
+        assertEquals(4, primary.server.getRequestCount());
+    }
+
+    private static Result generate(GenerationRouter router) throws InterruptedException {
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(1);
+        Map<String, Object> params = new HashMap<>();
+        params.put("prompt", "a castle at sunset");
+        router.generate(params, new GenerationRouter.Callback() {
+            @Override
+            public void onSuccess(GenerationBackend backend, String imageUri) {
+                result.backend = backend;
+                result.imageUri = imageUri;
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                result.error = error;
+                done.countDown();
+            }
+        });
+        assertTrue("生成超时", done.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static class Result {
+        volatile GenerationBackend backend;
+        volatile String imageUri;
+        volatile String error;
+    }
+
+    /**
+     * 请求MockWebServer的桩后端，按状态码区分可重试和不可重试的错误，与真实后端一致
+     */
+    private static class StubBackend implements GenerationBackend {
+        final MockWebServer server = new MockWebServer();
+        private final String name;
+        private final OkHttpClient client;
+
+        volatile int status = 200;
+        volatile long delayMs;
+
+        StubBackend(String name, OkHttpClient client) throws IOException {
+            this.name = name;
+            this.client = client;
+            server.setDispatcher(new Dispatcher() {
+                @NonNull
+                @Override
+                public MockResponse dispatch(@NonNull RecordedRequest request) {
+                    return new MockResponse()
+                            .setResponseCode(status)
+                            .setBody(imageUrl())
+                            .setHeadersDelay(delayMs, TimeUnit.MILLISECONDS);
+                }
+            });
+            server.start();
+        }
+
+        String imageUrl() {
+            return "https://example.com/" + name + ".png";
+        }
+
+        void shutdown() throws IOException {
+            server.shutdown();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getModelId() {
+            return name + "-model";
+        }
+
+        @Override
+        public long getQueueEstimateMs() {
+            return 0;
+        }
+
+        @Override
+        public void generate(Map<String, Object> params, Callback callback) {
+            Request request = new Request.Builder().url(server.url("/generate")).build();
+            client.newCall(request).enqueue(new okhttp3.Callback() {
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                    try (Response closing = response) {
+                        if (closing.isSuccessful()) {
+                            callback.onSuccess(closing.body().string());
+                        } else {
+                            callback.onFailure("HTTP " + closing.code(),
+                                    GenerationRouter.isRetryableStatus(closing.code()));
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    callback.onFailure("网络错误: " + e.getMessage(), true);
+                }
+            });
+        }
+    }
+}
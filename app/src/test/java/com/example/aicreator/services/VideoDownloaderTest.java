@@ -0,0 +1,360 @@
+package com.example.aicreator.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * VideoDownloader测试
+ * MockWebServer按Range请求返回文件内容，并可以在发送响应体的途中断开连接
+ */
+public class VideoDownloaderTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private FileDispatcher dispatcher;
+    private OkHttpClient client;
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+    private VideoDownloader downloader;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        dispatcher = new FileDispatcher();
+        server.setDispatcher(dispatcher);
+        server.start();
+
+        client = new OkHttpClient();
+        executor = Executors.newFixedThreadPool(4);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        File cacheDir = folder.newFolder("cache");
+        Context context = new ContextWrapper(null) {
+            @Override
+            public File getCacheDir() {
+                return cacheDir;
+            }
+        };
+        downloader = new VideoDownloader(context, client, executor, scheduler);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+        client.dispatcher().executorService().shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void smallFileDownloadsOverOneConnection() throws Exception {
+        dispatcher.content = randomBytes(300 * 1024);
+
+        Result result = download("/small.mp4");
+
+        assertNull(result.error);
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.file.toPath()));
+        assertEquals(1, dispatcher.getRanges().size());
+        assertNull(dispatcher.getRanges().get(0));
+    }
+
+    @Test
+    public void largeFileIsSplitIntoRangeSegments() throws Exception {
+        dispatcher.content = randomBytes(8 * 1024 * 1024);
+
+        Result result = download("/large.mp4");
+
+        assertNull(result.error);
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.file.toPath()));
+        List<String> ranges = dispatcher.getRanges();
+        assertEquals(4, ranges.size());
+        assertTrue(ranges.contains("bytes=0-2097151"));
+        assertTrue(ranges.contains("bytes=6291456-8388607"));
+    }
+
+    @Test
+    public void droppedConnectionResumesFromWrittenBytes() throws Exception {
+        dispatcher.content = randomBytes(512 * 1024);
+        dispatcher.disconnectGets.set(1);
+
+        Result result = download("/drop.mp4");
+
+        assertNull(result.error);
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.file.toPath()));
+        List<String> ranges = dispatcher.getRanges();
+        assertEquals(2, ranges.size());
+        long resumedFrom = rangeStart(ranges.get(1));
+        assertTrue("续传位置: " + resumedFrom, resumedFrom > 0 && resumedFrom < dispatcher.content.length);
+        assertEquals(ETAG, dispatcher.ifRanges.get(1));
+    }
+
+    @Test
+    public void serverIgnoringRangeRestartsFromScratch() throws Exception {
+        dispatcher.content = randomBytes(512 * 1024);
+        dispatcher.disconnectGets.set(1);
+        dispatcher.ignoreRange = true;
+
+        Result result = download("/norange.mp4");
+
+        assertNull(result.error);
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.file.toPath()));
+    }
+
+    @Test
+    public void repeatedDisconnectsFailAndKeepPartialForResume() throws Exception {
+        dispatcher.content = randomBytes(512 * 1024);
+        dispatcher.disconnectGets.set(Integer.MAX_VALUE);
+
+        Result failed = download("/flaky.mp4");
+
+        assertNotNull(failed.error);
+        assertFalse(failed.file.exists());
+        // 初始请求加3次重试
+        assertEquals(4, dispatcher.getRanges().size());
+
+        dispatcher.disconnectGets.set(0);
+        dispatcher.clearRequests();
+        Result resumed = download("/flaky.mp4");
+
+        assertNull(resumed.error);
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(resumed.file.toPath()));
+        assertTrue(rangeStart(dispatcher.getRanges().get(0)) > 0);
+    }
+
+    @Test
+    public void checksumMismatchFailsAndDiscardsPartial() throws Exception {
+        dispatcher.content = randomBytes(64 * 1024);
+        dispatcher.md5 = ByteString.encodeUtf8("other").md5().base64();
+
+        Result result = download("/corrupt.mp4");
+
+        assertNotNull(result.error);
+        assertFalse(result.file.exists());
+        assertEquals(0, countPartialFiles());
+    }
+
+    @Test
+    public void matchingChecksumPasses() throws Exception {
+        dispatcher.content = randomBytes(64 * 1024);
+        dispatcher.md5 = ByteString.of(dispatcher.content).md5().base64();
+
+        Result result = download("/checked.mp4");
+
+        assertNull(result.error);
+    }
+
+    @Test
+    public void cancelStopsTransferAndLaterDownloadResumes() throws Exception {
+        dispatcher.content = randomBytes(2 * 1024 * 1024);
+        dispatcher.throttleBytesPerSecond = 256 * 1024;
+        File target = new File(folder.getRoot(), "cancelled.mp4");
+        String url = server.url("/slow.mp4").toString();
+        AtomicReference<String> error = new AtomicReference<>();
+
+        VideoDownloader.DownloadTask task = downloader.download(url, target, new VideoDownloader.Callback() {
+            @Override
+            public void onComplete(File file) {
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                error.set(errorMsg);
+            }
+        });
+        Thread.sleep(1_500);
+        task.cancel();
+        awaitCancelled();
+
+        assertTrue(task.isCancelled());
+        assertNull("取消不应回调错误", error.get());
+        assertFalse(target.exists());
+
+        dispatcher.throttleBytesPerSecond = 0;
+        dispatcher.clearRequests();
+        Result resumed = download("/slow.mp4");
+
+        assertNull(resumed.error);
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(resumed.file.toPath()));
+        assertTrue(rangeStart(dispatcher.getRanges().get(0)) >= 256 * 1024);
+    }
+
+    private Result download(String path) throws InterruptedException {
+        Result result = new Result();
+        result.file = new File(folder.getRoot(), path.substring(1));
+        CountDownLatch done = new CountDownLatch(1);
+        downloader.download(server.url(path).toString(), result.file, new VideoDownloader.Callback() {
+            @Override
+            public void onComplete(File file) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                result.error = errorMsg;
+                done.countDown();
+            }
+        });
+        assertTrue("下载超时", done.await(30, TimeUnit.SECONDS));
+        return result;
+    }
+
+    /**
+     * 等待取消的任务释放连接并保存断点
+     */
+    private void awaitCancelled() throws InterruptedException {
+        File downloads = new File(folder.getRoot(), "cache/downloads");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((client.dispatcher().runningCallsCount() > 0 || !hasCheckpoint(downloads))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        // 断点保存后任务才释放同一链接的下载名额
+        Thread.sleep(100);
+        assertEquals(0, client.dispatcher().runningCallsCount());
+        assertTrue(hasCheckpoint(downloads));
+    }
+
+    private static boolean hasCheckpoint(File dir) {
+        File[] files = dir.listFiles((parent, name) -> name.endsWith(".meta"));
+        return files != null && files.length > 0;
+    }
+
+    private int countPartialFiles() {
+        File[] files = new File(folder.getRoot(), "cache/downloads").listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    private static long rangeStart(String range) {
+        Matcher matcher = Pattern.compile("bytes=(\\d+)-").matcher(range);
+        assertTrue(range, matcher.find());
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class Result {
+        File file;
+        volatile String error;
+    }
+
+    /**
+     * 提供单个文件的服务端：HEAD返回大小、ETag和Accept-Ranges，GET支持Range
+     */
+    private static class FileDispatcher extends Dispatcher {
+        private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+        volatile byte[] content;
+        volatile String md5;
+        volatile boolean ignoreRange;
+        volatile long throttleBytesPerSecond;
+        final AtomicInteger disconnectGets = new AtomicInteger();
+
+        // 每个GET请求的Range和If-Range请求头，没有时为null
+        private final List<String> ranges = new ArrayList<>();
+        final List<String> ifRanges = new ArrayList<>();
+
+        synchronized List<String> getRanges() {
+            return new ArrayList<>(ranges);
+        }
+
+        synchronized void clearRequests() {
+            ranges.clear();
+            ifRanges.clear();
+        }
+
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            MockResponse response = new MockResponse()
+                    .setHeader("ETag", ETAG)
+                    .setHeader("Accept-Ranges", "bytes");
+            if (md5 != null) {
+                response.setHeader("Content-MD5", md5);
+            }
+            if ("HEAD".equals(request.getMethod())) {
+                return response.setHeader("Content-Length", content.length);
+            }
+
+            String range = request.getHeader("Range");
+            synchronized (this) {
+                ranges.add(range);
+                ifRanges.add(request.getHeader("If-Range"));
+            }
+
+            int start = 0;
+            int end = content.length - 1;
+            Matcher matcher = range != null ? RANGE.matcher(range) : null;
+            if (matcher != null && matcher.matches() && !ignoreRange) {
+                start = Integer.parseInt(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    end = Integer.parseInt(matcher.group(2));
+                }
+                response.setResponseCode(206)
+                        .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            }
+
+            response.setBody(new Buffer().write(content, start, end - start + 1));
+            if (disconnectGets.getAndDecrement() > 0) {
+                // 发送一半响应体后断开连接
+                response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+            } else {
+                disconnectGets.set(0);
+            }
+            if (throttleBytesPerSecond > 0) {
+                response.throttleBody(throttleBytesPerSecond / 10, 100, TimeUnit.MILLISECONDS);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.aicreator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.MutableLiveData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+/**
+ * CancellationScope测试
+ * 取消作用域后不应再有执行中的请求或打开的连接
+ */
+public class CancellationScopeTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private CancellationScope scope;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+        scope = new CancellationScope();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.dispatcher().executorService().shutdownNow();
+        client.connectionPool().evictAll();
+        server.shutdown();
+    }
+
+    @Test
+    public void cancelCancelsRegisteredWorkOnce() {
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        scope.add(first::incrementAndGet);
+        scope.add(second::incrementAndGet);
+
+        scope.cancel();
+        scope.cancel();
+
+        assertTrue(scope.isCancelled());
+        assertEquals(1, first.get());
+        assertEquals(1, second.get());
+    }
+
+    @Test
+    public void removedWorkIsNotCancelled() {
+        AtomicInteger cancelled = new AtomicInteger();
+        CancellationScope.Registration registration = scope.add(cancelled::incrementAndGet);
+
+        registration.remove();
+        scope.cancel();
+
+        assertEquals(0, cancelled.get());
+    }
+
+    @Test
+    public void workAddedAfterCancelIsCancelledImmediately() {
+        scope.cancel();
+        AtomicInteger cancelled = new AtomicInteger();
+
+        scope.add(cancelled::incrementAndGet);
+
+        assertEquals(1, cancelled.get());
+    }
+
+    @Test
+    public void cancelAbortsWaitingCallAndReleasesConnection() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        Call call = client.newCall(new Request.Builder().url(server.url("/predictions/1")).build());
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicReference<IOException> error = new AtomicReference<>();
+        scope.add(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                error.set(e);
+                failed.countDown();
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                response.close();
+            }
+        });
+        server.takeRequest(5, TimeUnit.SECONDS);
+
+        scope.cancel();
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertNotNull(error.get());
+        assertTrue(call.isCanceled());
+        assertNoActiveWork();
+    }
+
+    @Test
+    public void cancelInterruptsDownloadBeingRead() throws Exception {
+        // 每秒只发送1KB，取消时下载一定还在读取响应体
+        server.enqueue(new MockResponse()
+                .setBody(new Buffer().write(new byte[64 * 1024]))
+                .throttleBody(1024, 1, TimeUnit.SECONDS));
+        Call call = client.newCall(new Request.Builder().url(server.url("/video.mp4")).build());
+        scope.add(call);
+
+        AtomicReference<IOException> error = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try (Response response = call.execute();
+                 InputStream body = response.body().byteStream()) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) != -1) {
+                    // 丢弃数据
+                }
+            } catch (IOException e) {
+                error.set(e);
+            }
+        });
+        reader.start();
+        server.takeRequest(5, TimeUnit.SECONDS);
+        Thread.sleep(200);
+
+        scope.cancel();
+        reader.join(5_000);
+
+        assertFalse(reader.isAlive());
+        assertNotNull(error.get());
+        assertNoActiveWork();
+    }
+
+    @Test
+    public void cancelAbortsRetrofitCall() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        SlowApi api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .build()
+                .create(SlowApi.class);
+        retrofit2.Call<ResponseBody> call = api.slow();
+        CountDownLatch failed = new CountDownLatch(1);
+        scope.add(call);
+        call.enqueue(new retrofit2.Callback<ResponseBody>() {
+            @Override
+            public void onResponse(@NonNull retrofit2.Call<ResponseBody> call,
+                                   @NonNull retrofit2.Response<ResponseBody> response) {
+            }
+
+            @Override
+            public void onFailure(@NonNull retrofit2.Call<ResponseBody> call, @NonNull Throwable t) {
+                failed.countDown();
+            }
+        });
+        server.takeRequest(5, TimeUnit.SECONDS);
+
+        scope.cancel();
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertNoActiveWork();
+    }
+
+    @Test
+    public void cancelRemovesObservers() {
+        MutableLiveData<String> source = new MutableLiveData<>();
+        List<String> received = new ArrayList<>();
+        scope.observe(source, received::add);
+        source.setValue("a");
+
+        scope.cancel();
+        source.setValue("b");
+
+        assertEquals(1, received.size());
+        assertFalse(source.hasObservers());
+    }
+
+    @Test
+    public void observeOnceDeliversSingleValue() {
+        MutableLiveData<String> source = new MutableLiveData<>();
+        List<String> received = new ArrayList<>();
+        scope.observeOnce(source, received::add);
+
+        source.setValue("a");
+        source.setValue("b");
+
+        assertEquals(1, received.size());
+        assertEquals("a", received.get(0));
+        assertFalse(source.hasObservers());
+    }
+
+    @Test
+    public void observeOnceWithExistingValueRemovesObserver() {
+        MutableLiveData<String> source = new MutableLiveData<>("ready");
+        List<String> received = new ArrayList<>();
+
+        scope.observeOnce(source, received::add);
+
+        assertEquals(1, received.size());
+        assertFalse(source.hasObservers());
+    }
+
+    /**
+     * 调度器中没有执行中的请求，连接池中也没有打开的连接
+     */
+    private void assertNoActiveWork() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((client.dispatcher().runningCallsCount() > 0 || client.connectionPool().connectionCount() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, client.dispatcher().runningCallsCount());
+        assertEquals(0, client.dispatcher().queuedCallsCount());
+        assertEquals(0, client.connectionPool().connectionCount());
+    }
+
+    private interface SlowApi {
+        @GET("slow")
+        retrofit2.Call<ResponseBody> slow();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.aicreator.viewmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.net.Uri;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.aicreator.network.ApiService;
+import com.example.aicreator.network.HttpClientProvider;
+import com.example.aicreator.network.ModelTypeAdapterFactory;
+import com.example.aicreator.repository.VideoRepository;
+import com.example.aicreator.services.VideoDownloader;
+import com.example.aicreator.utils.AppExecutors;
+import com.example.aicreator.utils.PriorityExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * ImageToVideoViewModel清除测试
+ * ViewModel清除后，共享客户端中不应再有执行中的请求或打开的连接，下载任务也应停止
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class ImageToVideoViewModelTest {
+
+    private static final int VIDEO_BYTES = 1024 * 1024;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Application application;
+    private MockWebServer server;
+    private VideoDispatcher dispatcher;
+    private AppExecutors executors;
+    private PriorityExecutor downloadIO;
+    private ImageToVideoViewModel viewModel;
+
+    @Before
+    public void setUp() throws IOException {
+        application = ApplicationProvider.getApplicationContext();
+        server = new MockWebServer();
+        dispatcher = new VideoDispatcher();
+        server.setDispatcher(dispatcher);
+        server.start();
+
+        executors = new AppExecutors(1, 4, 1);
+        ApiService apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(HttpClientProvider.newApiClientBuilder().build())
+                .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
+                .build()
+                .create(ApiService.class);
+        downloadIO = new PriorityExecutor("video-download", 4, Process.THREAD_PRIORITY_BACKGROUND);
+        VideoDownloader downloader = new VideoDownloader(application,
+                HttpClientProvider.getDownloadClient(), downloadIO, executors.scheduler());
+        viewModel = new ImageToVideoViewModel(application, executors,
+                new VideoRepository(application, executors, apiService), downloader);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executors.shutdown(1_000);
+        downloadIO.shutdownNow();
+        HttpClientProvider.getSharedClient().connectionPool().evictAll();
+        server.shutdown();
+    }
+
+    @Test
+    public void clearingDuringGenerationCancelsRequest() throws Exception {
+        dispatcher.respondToGenerate = false;
+        selectImage();
+
+        viewModel.generateVideo("cinematic", 4, 5);
+        assertTrue(dispatcher.generateReceived.await(5, TimeUnit.SECONDS));
+        viewModel.onCleared();
+
+        assertNoActiveWork();
+        assertNull(viewModel.getErrorMessage().getValue());
+    }
+
+    @Test
+    public void clearingDuringDownloadStopsTransfer() throws Exception {
+        selectImage();
+
+        viewModel.generateVideo("cinematic", 4, 5);
+        assertTrue(dispatcher.downloadStarted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        viewModel.onCleared();
+
+        assertNoActiveWork();
+        assertNull(viewModel.getErrorMessage().getValue());
+        assertNull(viewModel.getGeneratedVideoUri().getValue());
+    }
+
+    /**
+     * 选择一张图片并等待预处理完成
+     */
+    private void selectImage() throws Exception {
+        File source = folder.newFile("source.jpg");
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "jpg", source);
+        CountDownLatch prepared = new CountDownLatch(1);
+        viewModel.getSelectedImageFile().observeForever(file -> prepared.countDown());
+
+        viewModel.setSelectedImageUri(Uri.fromFile(source));
+
+        assertTrue("图片预处理超时", prepared.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 共享调度器中没有请求，连接池中没有连接，下载线程池中没有任务
+     */
+    private void assertNoActiveWork() throws InterruptedException {
+        OkHttpClient client = HttpClientProvider.getSharedClient();
+        PriorityExecutor networkIO = executors.networkIO();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((client.dispatcher().runningCallsCount() > 0
+                || client.connectionPool().connectionCount() > 0
+                || networkIO.getActiveCount() > 0
+                || downloadIO.getActiveCount() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, client.dispatcher().runningCallsCount());
+        assertEquals(0, client.dispatcher().queuedCallsCount());
+        assertEquals(0, client.connectionPool().connectionCount());
+        assertEquals(0, networkIO.getActiveCount());
+        assertEquals(0, networkIO.getQueueDepth());
+        assertEquals(0, downloadIO.getActiveCount());
+        assertEquals(0, downloadIO.getQueueDepth());
+    }
+
+    /**
+     * 生成接口返回指向本服务器的视频地址，视频按较慢的速度发送
+     */
+    private class VideoDispatcher extends Dispatcher {
+        volatile boolean respondToGenerate = true;
+        final CountDownLatch generateReceived = new CountDownLatch(1);
+        final CountDownLatch downloadStarted = new CountDownLatch(1);
+
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            String path = request.getPath();
+            if (path.startsWith("/videos/generate")) {
+                generateReceived.countDown();
+                if (!respondToGenerate) {
+                    return new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE);
+                }
+                return new MockResponse().setBody(
+                        "{\"video_url\":\"" + server.url("/video.mp4") + "\"}");
+            }
+
+            MockResponse response = new MockResponse()
+                    .setHeader("ETag", "\"v1\"")
+                    .setHeader("Accept-Ranges", "bytes");
+            if ("HEAD".equals(request.getMethod())) {
+                return response.setHeader("Content-Length", VIDEO_BYTES);
+            }
+            downloadStarted.countDown();
+            // 每秒64KB，清除时下载一定还在进行
+            return response
+                    .setBody(new Buffer().write(new byte[VIDEO_BYTES]))
+                    .throttleBody(64 * 1024, 1, TimeUnit.SECONDS);
+        }
+    }
+}